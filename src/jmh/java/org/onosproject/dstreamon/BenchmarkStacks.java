@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon;
+
+import java.util.Locale;
+
+/**
+ * Builds the stacks used by the D-StreaMon benchmarks.
+ */
+public final class BenchmarkStacks {
+
+    private static final String UUID_FORMAT = "%08x-97fa-46a0-b1c6-%012x";
+
+    private static final String JSON_FORMAT = "{" +
+            "\"stack_uuid\": \"%s\"," +
+            "\"user\": {" +
+            "\"uuid\": \"%s\"," +
+            "\"ip\": \"%s\"," +
+            "\"mac\": \"%s\"," +
+            "\"port_uuid\": \"%s\"" +
+            "}," +
+            "\"probe\": {" +
+            "\"uuid\": \"%s\"," +
+            "\"ip\": \"%s\"," +
+            "\"mac\": \"%s\"," +
+            "\"port_uuid\": \"%s\"" +
+            "}" +
+            "}";
+
+    private BenchmarkStacks() {
+    }
+
+    /**
+     * Returns the string fields of the i-th stack, in the order
+     * expected by DStreaMonStack.dStreaMonStack.
+     *
+     * @param i the stack index
+     * @return the stack fields
+     */
+    public static String[] fields(int i) {
+        return new String[]{
+                uuid(0x10000000, i), uuid(0x20000000, i), uuid(0x30000000, i),
+                ip(10, i), ip(11, i),
+                mac(0x16, i), mac(0x17, i),
+                uuid(0x40000000, i), uuid(0x50000000, i)
+        };
+    }
+
+    /**
+     * Returns the i-th stack.
+     *
+     * @param i the stack index
+     * @return the stack
+     */
+    public static DStreaMonStack stack(int i) {
+        String[] f = fields(i);
+        return DStreaMonStack.dStreaMonStack(f[0], f[1], f[2], f[3], f[4], f[5], f[6], f[7], f[8]);
+    }
+
+    /**
+     * Returns the i-th stack as posted by OpenStack Heat.
+     *
+     * @param i the stack index
+     * @return the stack json
+     */
+    public static String json(int i) {
+        String[] f = fields(i);
+        return String.format(Locale.ROOT, JSON_FORMAT, f[0], f[1], f[3], f[5], f[7], f[2], f[4], f[6], f[8]);
+    }
+
+    private static String uuid(int prefix, int i) {
+        return String.format(Locale.ROOT, UUID_FORMAT, prefix, i);
+    }
+
+    private static String ip(int net, int i) {
+        return String.format(Locale.ROOT, "%d.%d.%d.%d", net, (i >> 16) & 0xff, (i >> 8) & 0xff, i & 0xff);
+    }
+
+    private static String mac(int oui, int i) {
+        return String.format(Locale.ROOT, "fa:16:%02x:%02x:%02x:%02x", oui, (i >> 16) & 0xff, (i >> 8) & 0xff, i & 0xff);
+    }
+
+}
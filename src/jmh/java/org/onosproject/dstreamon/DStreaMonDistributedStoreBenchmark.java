@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+
+/**
+ * Measures the DStreaMon store operations, using the local maps
+ * created by initForTest.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DStreaMonDistributedStoreBenchmark {
+
+    private static final int STORED = 10000;
+    private static final int FRESH = 1024;
+
+    private DStreaMonDistributedStore store;
+    private DStreaMonStack[] stored;
+    private DStreaMonStack[] fresh;
+    private int next;
+
+    @Setup
+    public void setUp() throws DStreaMonException {
+        store = new DStreaMonDistributedStore();
+        store.initForTest();
+        stored = new DStreaMonStack[STORED];
+        for (int i = 0; i < STORED; i++) {
+            stored[i] = BenchmarkStacks.stack(i);
+            store.putStack(stored[i]);
+        }
+        fresh = new DStreaMonStack[FRESH];
+        for (int i = 0; i < FRESH; i++) {
+            fresh[i] = BenchmarkStacks.stack(STORED + i);
+        }
+    }
+
+    @Benchmark
+    public DStreaMonStack putAndRemove() throws DStreaMonException {
+        DStreaMonStack stack = fresh[next++ & (FRESH - 1)];
+        store.putStack(stack);
+        return store.removeStack(stack.stackUuid());
+    }
+
+    @Benchmark
+    public DStreaMonStack get() {
+        return store.getStack(stored[next++ % STORED].stackUuid());
+    }
+
+    @Benchmark
+    public Set<DStreaMonStack> getByProbe() {
+        return store.getStacksByProbe(stored[next++ % STORED].probeUuid());
+    }
+
+}
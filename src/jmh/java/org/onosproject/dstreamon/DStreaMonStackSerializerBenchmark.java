@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon;
+
+import org.onlab.util.KryoNamespace;
+import org.onosproject.store.serializers.KryoNamespaces;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the Kryo serialization of the stacks, as done on every
+ * write and remote read of the stack consistent map.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DStreaMonStackSerializerBenchmark {
+
+    private KryoNamespace serializer;
+    private DStreaMonStack stack;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        serializer = KryoNamespace.newBuilder()
+                .register(KryoNamespaces.API)
+                .nextId(KryoNamespaces.BEGIN_USER_CUSTOM_ID)
+                .register(new DStreaMonStackSerializer(), new Class[]{DStreaMonStack.class})
+                .build();
+        stack = BenchmarkStacks.stack(42);
+        bytes = serializer.serialize(stack);
+    }
+
+    @Benchmark
+    public byte[] write() {
+        return serializer.serialize(stack);
+    }
+
+    @Benchmark
+    public DStreaMonStack read() {
+        return serializer.deserialize(bytes);
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon.rest;
+
+import org.onlab.metrics.MetricsManager;
+import org.onlab.osgi.ServiceDirectory;
+import org.onlab.rest.BaseResource;
+import org.onosproject.dstreamon.BenchmarkStacks;
+import org.onosproject.dstreamon.DStreaMonMetrics;
+import org.onosproject.dstreamon.DStreaMonService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Measures the decoding of the stacks posted to the REST API,
+ * with a DStreaMon service doing nothing but timing the decoding
+ * with a local metrics service.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class StackResourceBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    private StackResource resource;
+    private byte[] stack;
+    private byte[] batch;
+
+    @Setup
+    public void setUp() {
+        DStreaMonMetrics metrics = new DStreaMonMetrics(new MetricsManager());
+        DStreaMonService service = (DStreaMonService) Proxy.newProxyInstance(
+                DStreaMonService.class.getClassLoader(), new Class[]{DStreaMonService.class},
+                (proxy, method, args) -> {
+                    if (method.getReturnType() == DStreaMonMetrics.class) {
+                        return metrics;
+                    }
+                    return method.getReturnType() == Map.class ? Collections.emptyMap() : null;
+                });
+        BaseResource.setServiceDirectory(new ServiceDirectory() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T get(Class<T> serviceClass) {
+                return serviceClass == DStreaMonService.class ? (T) service : null;
+            }
+        });
+        resource = new StackResource();
+
+        stack = BenchmarkStacks.json(42).getBytes(StandardCharsets.UTF_8);
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            builder.append(i == 0 ? "" : ",").append(BenchmarkStacks.json(i));
+        }
+        batch = builder.append("]").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Response registerStack() {
+        return resource.registerStack(false, new ByteArrayInputStream(stack));
+    }
+
+    @Benchmark
+    public Response registerStacks() {
+        return resource.registerStacks(new ByteArrayInputStream(batch));
+    }
+
+}
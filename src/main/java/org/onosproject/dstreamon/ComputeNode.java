@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon;
+
+import com.google.common.collect.Maps;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.behaviour.BridgeConfig;
+import org.onosproject.net.behaviour.BridgeDescription;
+import org.onosproject.net.behaviour.MirroringConfig;
+import org.onosproject.net.driver.DriverHandler;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Helper to hold the OVSDB behaviours of a compute node.
+ */
+final class ComputeNode {
+
+    /**
+     * The integration bridge connecting the vms of the node.
+     */
+    static final String BR_INT = "br-int";
+
+    private static final String OPENFLOW_SCHEME = "of:";
+
+    private final DeviceId deviceId;
+    private final MirroringConfig mirroringConfig;
+    private final BridgeConfig bridgeConfig;
+
+    /**
+     * Creates a new org.onosproject.dstreamon.ComputeNode.
+     *
+     * @param deviceId the OVSDB device of the node
+     * @param handler the driver handler of the device
+     */
+    ComputeNode(DeviceId deviceId, DriverHandler handler) {
+        this.deviceId = deviceId;
+        this.mirroringConfig = handler.behaviour(MirroringConfig.class);
+        this.bridgeConfig = handler.behaviour(BridgeConfig.class);
+    }
+
+    /**
+     * Returns the OVSDB device of the node.
+     *
+     * @return the device id
+     */
+    DeviceId deviceId() {
+        return deviceId;
+    }
+
+    /**
+     * Returns the mirroring behaviour of the node.
+     *
+     * @return the mirroring config
+     */
+    MirroringConfig mirroringConfig() {
+        return mirroringConfig;
+    }
+
+    /**
+     * Returns the bridge behaviour of the node.
+     *
+     * @return the bridge config
+     */
+    BridgeConfig bridgeConfig() {
+        return bridgeConfig;
+    }
+
+    /**
+     * Returns the OpenFlow device of the integration bridge,
+     * derived from its datapath id when the driver does not report it.
+     *
+     * @return the device id, empty if the bridge is not found
+     */
+    Optional<DeviceId> integrationBridgeId() {
+        return Optional.ofNullable(bridgeIds().get(BR_INT));
+    }
+
+    /**
+     * Returns the OpenFlow devices of the bridges of the node, read
+     * with a single query.
+     *
+     * @return the device ids, keyed by bridge name
+     */
+    Map<String, DeviceId> bridgeIds() {
+        Map<String, DeviceId> bridgeIds = Maps.newHashMap();
+        for (BridgeDescription bridge : bridgeConfig.getBridges()) {
+            Optional<DeviceId> bridgeId = bridge.deviceId().isPresent() ? bridge.deviceId() :
+                    bridge.datapathId().map(dpid -> DeviceId.deviceId(OPENFLOW_SCHEME + dpid));
+            bridgeId.ifPresent(id -> bridgeIds.put(bridge.name(), id));
+        }
+        return bridgeIds;
+    }
+
+}
@@ -16,23 +16,54 @@
 
 package org.onosproject.dstreamon;
 
+import com.codahale.metrics.Timer;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.packet.Ip4Address;
+import org.onlab.metrics.MetricsService;
+import org.onlab.packet.MacAddress;
 import org.onlab.util.KryoNamespace;
+import org.onlab.util.Tools;
+import org.onosproject.cfg.ComponentConfigService;
 import org.onosproject.ovsdb.rfc.notation.Uuid;
 import org.onosproject.store.serializers.KryoNamespaces;
 import org.onosproject.store.service.ConsistentMap;
+import org.onosproject.store.service.MapEvent;
+import org.onosproject.store.service.MapEventListener;
 import org.onosproject.store.service.Serializer;
 import org.onosproject.store.service.StorageService;
+import org.onosproject.store.service.Versioned;
+import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
+import java.util.Dictionary;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import static org.onlab.metrics.MetricsUtil.startTimer;
+import static org.onlab.metrics.MetricsUtil.stopTimer;
 
 /**
  * DStreaMon Store implementation backed by different distributed primitives.
@@ -46,12 +77,87 @@ public class DStreaMonDistributedStore implements DStreaMonStore {
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     private StorageService storageService;
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected ComponentConfigService cfgService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
+
+    private static final boolean DEFAULT_NEAR_CACHE_READS = false;
+    @Property(name = "nearCacheReads", boolValue = DEFAULT_NEAR_CACHE_READS,
+            label = "Serve the reads from a node-local view of the maps " +
+                    "instead of the strongly consistent maps; default is false")
+    private volatile boolean nearCacheReads = DEFAULT_NEAR_CACHE_READS;
+
     private Map<String, DStreaMonStack> dStreaMonStackMap;
     private ConsistentMap<String, DStreaMonStack> dStreaMonStackConsistentMap;
 
     private Map<String, String> dstreamonMgmtIfaceMap;
     private ConsistentMap<String, String> dstreamonMgmtIfaceConsistentMap;
 
+    private Map<String, DStreaMonStackState> dStreaMonStackStateMap;
+    private ConsistentMap<String, DStreaMonStackState> dStreaMonStackStateConsistentMap;
+
+    private Map<String, DStreaMonOperation> dStreaMonOperationMap;
+    private ConsistentMap<String, DStreaMonOperation> dStreaMonOperationConsistentMap;
+
+    /**
+     * Versioned stack states used in place of the consistent map by the tests.
+     */
+    private Map<String, Versioned<DStreaMonStackState>> testStackStateMap;
+    private final AtomicLong testStackStateVersion = new AtomicLong();
+
+    /**
+     * Node-local views of the maps, written through on the local updates
+     * and maintained by the events of the consistent maps.
+     */
+    private final Map<String, DStreaMonStack> dStreaMonStackView = new ConcurrentHashMap<>();
+    private final Map<String, String> dstreamonMgmtIfaceView = new ConcurrentHashMap<>();
+
+    /**
+     * Probes owning the mgmt iface names, to reject a name already in use.
+     */
+    private final Map<String, String> mgmtIfaceOwners = new ConcurrentHashMap<>();
+
+    /**
+     * Secondary indexes of the stacks, maintained on every node
+     * by the local updates and by the events of the stack map.
+     */
+    private final DStreaMonStackIndex probeIndex = new DStreaMonStackIndex(
+            stack -> ImmutableSet.of(stack.probeUuid().value()));
+    private final DStreaMonStackIndex userIndex = new DStreaMonStackIndex(
+            stack -> ImmutableSet.of(stack.userUuid().value()));
+    private final DStreaMonStackIndex userIpIndex = new DStreaMonStackIndex(
+            stack -> ImmutableSet.of(stack.userIp().toString()));
+    private final DStreaMonStackIndex userMacIndex = new DStreaMonStackIndex(
+            stack -> ImmutableSet.of(stack.userMac().toString()));
+    private final DStreaMonStackIndex portIndex = new DStreaMonStackIndex(
+            stack -> ImmutableSet.of(NeutronPortNames.portKey(stack.userPortUuid()),
+                                     NeutronPortNames.portKey(stack.probePortUuid())));
+    private final List<DStreaMonStackIndex> indexes = ImmutableList.of(
+            probeIndex, userIndex, userIpIndex, userMacIndex, portIndex);
+
+    /**
+     * Ordered uuids of the stacks, serving the cursor based listing.
+     */
+    private final NavigableSet<String> stackKeys = new ConcurrentSkipListSet<>();
+
+    private final MapEventListener<String, DStreaMonStack> stackListener = new InternalStackListener();
+    private final MapEventListener<String, String> mgmtIfaceListener = new InternalMgmtIfaceListener();
+    private final MapEventListener<String, DStreaMonStackState> stackStateListener =
+            new InternalStackStateListener();
+    private final Set<StackStateListener> stackStateListeners = new CopyOnWriteArraySet<>();
+    private final Set<MgmtIfaceListener> mgmtIfaceListeners = new CopyOnWriteArraySet<>();
+
+    /**
+     * Timers of the writes to the consistent maps, left unset
+     * by the tests, which are not timed.
+     */
+    private Timer putStackTimer;
+    private Timer removeStackTimer;
+    private Timer putMgmtIfaceTimer;
+    private Timer putStackStateTimer;
+
     private static String errorPutStack = "It is not possible to add %s stack " +
             "because it exists";
 
@@ -61,24 +167,48 @@ public class DStreaMonDistributedStore implements DStreaMonStore {
     private static String errorGetMgmtIface = "It is not possible to retrieve %s iface " +
             "because it does not exist";
 
+    private static String errorOwnedMgmtIface = "It is not possible to add %s iface " +
+            "because it is used by probe %s";
+
     /**
      * Helper class called to initialise tests.
      */
     public void initForTest() {
         this.dStreaMonStackMap = new ConcurrentHashMap<String, DStreaMonStack>();
         this.dstreamonMgmtIfaceMap = new ConcurrentHashMap<String, String>();
+        this.testStackStateMap = new ConcurrentHashMap<String, Versioned<DStreaMonStackState>>();
+        this.dStreaMonStackStateMap = Maps.transformValues(testStackStateMap, Versioned::value);
+        this.dStreaMonOperationMap = new ConcurrentHashMap<String, DStreaMonOperation>();
+        indexes.forEach(DStreaMonStackIndex::clear);
+        stackKeys.clear();
+        dStreaMonStackView.clear();
+        dstreamonMgmtIfaceView.clear();
+        mgmtIfaceOwners.clear();
     }
 
     /**
      * Activates the implementation of the DStreaMon store.
+     *
+     * @param context the component context
      */
     @Activate
-    public void activate() {
+    public void activate(ComponentContext context) {
+
+        cfgService.registerProperties(getClass());
+        modified(context);
+
+        DStreaMonMetrics metrics = new DStreaMonMetrics(metricsService);
+        putStackTimer = metrics.timer(DStreaMonMetrics.STORE, "putStack");
+        removeStackTimer = metrics.timer(DStreaMonMetrics.STORE, "removeStack");
+        putMgmtIfaceTimer = metrics.timer(DStreaMonMetrics.STORE, "putMgmtIface");
+        putStackStateTimer = metrics.timer(DStreaMonMetrics.STORE, "putStackState");
 
         KryoNamespace custom = KryoNamespace.newBuilder()
                 .register(KryoNamespaces.API)
                 .nextId(KryoNamespaces.BEGIN_USER_CUSTOM_ID)
                 .register(new DStreaMonStackSerializer(), new Class[]{DStreaMonStack.class})
+                .register(DStreaMonStackState.class, DStreaMonStackState.Status.class)
+                .register(DStreaMonOperation.class, DStreaMonOperation.Status.class)
                 .build();
 
         dStreaMonStackConsistentMap = this.storageService
@@ -87,6 +217,11 @@ public class DStreaMonDistributedStore implements DStreaMonStore {
                 .withName("dStreaMonStackConsistentMap")
                 .build();
         dStreaMonStackMap = dStreaMonStackConsistentMap.asJavaMap();
+        dStreaMonStackConsistentMap.addListener(stackListener);
+        dStreaMonStackMap.forEach((stackUuid, stack) -> {
+            dStreaMonStackView.put(stackUuid, stack);
+            index(stack);
+        });
 
         dstreamonMgmtIfaceConsistentMap = this.storageService
                 .<String, String>consistentMapBuilder()
@@ -94,15 +229,62 @@ public class DStreaMonDistributedStore implements DStreaMonStore {
                 .withName("dstreamonMgmtIfaceConsistentMap")
                 .build();
         dstreamonMgmtIfaceMap = dstreamonMgmtIfaceConsistentMap.asJavaMap();
+        dstreamonMgmtIfaceConsistentMap.addListener(mgmtIfaceListener);
+        dstreamonMgmtIfaceMap.forEach((probeUuid, ifaceName) -> {
+            dstreamonMgmtIfaceView.put(probeUuid, ifaceName);
+            mgmtIfaceOwners.put(ifaceName, probeUuid);
+        });
+
+        dStreaMonStackStateConsistentMap = this.storageService
+                .<String, DStreaMonStackState>consistentMapBuilder()
+                .withSerializer(Serializer.using(custom))
+                .withName("dStreaMonStackStateConsistentMap")
+                .build();
+        dStreaMonStackStateMap = dStreaMonStackStateConsistentMap.asJavaMap();
+        dStreaMonStackStateConsistentMap.addListener(stackStateListener);
+
+        dStreaMonOperationConsistentMap = this.storageService
+                .<String, DStreaMonOperation>consistentMapBuilder()
+                .withSerializer(Serializer.using(custom))
+                .withName("dStreaMonOperationConsistentMap")
+                .build();
+        dStreaMonOperationMap = dStreaMonOperationConsistentMap.asJavaMap();
 
         log.info("Started");
     }
 
+    /**
+     * Reads the configuration of the DStreaMon store.
+     *
+     * @param context the component context
+     */
+    @Modified
+    public void modified(ComponentContext context) {
+
+        Dictionary<?, ?> properties = context.getProperties();
+        String value = Tools.get(properties, "nearCacheReads");
+        nearCacheReads = Strings.isNullOrEmpty(value) ?
+                DEFAULT_NEAR_CACHE_READS : Boolean.parseBoolean(value.trim());
+        log.info("Configured. Near-cache reads are {}", nearCacheReads ? "enabled" : "disabled");
+
+    }
+
     /**
      * Deactivates the implementation of the DStreaMon store.
      */
     @Deactivate
     public void deactivate() {
+        cfgService.unregisterProperties(getClass(), false);
+        dStreaMonStackConsistentMap.removeListener(stackListener);
+        dstreamonMgmtIfaceConsistentMap.removeListener(mgmtIfaceListener);
+        dStreaMonStackStateConsistentMap.removeListener(stackStateListener);
+        stackStateListeners.clear();
+        mgmtIfaceListeners.clear();
+        indexes.forEach(DStreaMonStackIndex::clear);
+        stackKeys.clear();
+        dStreaMonStackView.clear();
+        dstreamonMgmtIfaceView.clear();
+        mgmtIfaceOwners.clear();
         log.info("Stopped");
     }
 
@@ -115,11 +297,183 @@ public class DStreaMonDistributedStore implements DStreaMonStore {
     @Override
     public void putStack(DStreaMonStack stack) throws DStreaMonException {
 
-        DStreaMonStack previous = dStreaMonStackMap.putIfAbsent(stack.stackUuid().value(), stack);
-        if (previous != null && previous.equals(stack)) {
+        Timer.Context context = startTimer(putStackTimer);
+        DStreaMonStack previous;
+        try {
+            previous = dStreaMonStackMap.putIfAbsent(stack.stackUuid().value(), stack);
+        } finally {
+            stopTimer(context);
+        }
+        if (previous != null) {
             throw new DStreaMonException(String.format(errorPutStack, stack.stackUuid().value()));
         }
+        dStreaMonStackView.put(stack.stackUuid().value(), stack);
+        index(stack);
+
+    }
 
+    /**
+     * Removes the stack with the given uuid, if it exists.
+     *
+     * @param stackUuid the stack uuid
+     * @return the removed stack, null if it did not exist
+     */
+    @Override
+    public DStreaMonStack removeStack(Uuid stackUuid) {
+
+        Timer.Context context = startTimer(removeStackTimer);
+        DStreaMonStack removed;
+        try {
+            removed = dStreaMonStackMap.remove(stackUuid.value());
+        } finally {
+            stopTimer(context);
+        }
+        dStreaMonStackView.remove(stackUuid.value());
+        if (removed != null) {
+            unindex(removed);
+        }
+        return removed;
+
+    }
+
+    /**
+     * Retrieves the stack with the given uuid.
+     *
+     * @param stackUuid the stack uuid
+     * @return the stack, null if it does not exist
+     */
+    @Override
+    public DStreaMonStack getStack(Uuid stackUuid) {
+        return stacksForRead().get(stackUuid.value());
+    }
+
+    /**
+     * Retrieves all the stored stacks with a single read.
+     *
+     * @return the stored stacks
+     */
+    @Override
+    public Collection<DStreaMonStack> getStacks() {
+        return ImmutableList.copyOf(stacksForRead().values());
+    }
+
+    /**
+     * Retrieves the stacks ordered by uuid, starting after the given one.
+     * The stacks are read one at a time while iterating.
+     *
+     * @param after the uuid preceding the first stack, null to start from the first one
+     * @return the ordered stacks
+     */
+    @Override
+    public Iterable<DStreaMonStack> getStacks(Uuid after) {
+        NavigableSet<String> keys = after == null ? stackKeys : stackKeys.tailSet(after.value(), false);
+        Map<String, DStreaMonStack> stackMap = stacksForRead();
+        return () -> Iterators.filter(Iterators.transform(keys.iterator(), stackMap::get), Objects::nonNull);
+    }
+
+    /**
+     * Retrieves the stacks monitored by the given probe.
+     *
+     * @param probeUuid the probe uuid
+     * @return the stacks of the probe
+     */
+    @Override
+    public Set<DStreaMonStack> getStacksByProbe(Uuid probeUuid) {
+        return lookup(probeIndex, probeUuid.value(), stack -> stack.probeUuid().equals(probeUuid));
+    }
+
+    /**
+     * Retrieves the stacks of the given user vm.
+     *
+     * @param userUuid the user uuid
+     * @return the stacks of the user
+     */
+    @Override
+    public Set<DStreaMonStack> getStacksByUser(Uuid userUuid) {
+        return lookup(userIndex, userUuid.value(), stack -> stack.userUuid().equals(userUuid));
+    }
+
+    /**
+     * Retrieves the stacks of the user vms having the given ip.
+     *
+     * @param userIp the user vm ip
+     * @return the stacks of the user ip
+     */
+    @Override
+    public Set<DStreaMonStack> getStacksByUserIp(Ip4Address userIp) {
+        return lookup(userIpIndex, userIp.toString(), stack -> stack.userIp().equals(userIp));
+    }
+
+    /**
+     * Retrieves the stacks of the user vms having the given mac.
+     *
+     * @param userMac the user vm mac
+     * @return the stacks of the user mac
+     */
+    @Override
+    public Set<DStreaMonStack> getStacksByUserMac(MacAddress userMac) {
+        return lookup(userMacIndex, userMac.toString(), stack -> stack.userMac().equals(userMac));
+    }
+
+    /**
+     * Retrieves the stacks using the given port, as user or probe port.
+     *
+     * @param portUuid the port uuid
+     * @return the stacks of the port
+     */
+    @Override
+    public Set<DStreaMonStack> getStacksByPort(Uuid portUuid) {
+        return lookup(portIndex, NeutronPortNames.portKey(portUuid),
+                      stack -> stack.userPortUuid().equals(portUuid) || stack.probePortUuid().equals(portUuid));
+    }
+
+    /**
+     * Retrieves the stacks using the port with the given key, as user or
+     * probe port.
+     *
+     * @param portKey the port key
+     * @return the stacks of the port
+     */
+    @Override
+    public Set<DStreaMonStack> getStacksByPortKey(String portKey) {
+        return lookup(portIndex, portKey,
+                      stack -> NeutronPortNames.portKey(stack.userPortUuid()).equals(portKey) ||
+                              NeutronPortNames.portKey(stack.probePortUuid()).equals(portKey));
+    }
+
+    /**
+     * Resolves the stacks indexed under a key. The stacks are checked against
+     * the primary map, so that a late event can not return stale stacks.
+     */
+    private Set<DStreaMonStack> lookup(DStreaMonStackIndex index, String key,
+                                       Predicate<DStreaMonStack> matches) {
+        Map<String, DStreaMonStack> stackMap = stacksForRead();
+        ImmutableSet.Builder<DStreaMonStack> stacks = ImmutableSet.builder();
+        for (String stackUuid : index.get(key)) {
+            DStreaMonStack stack = stackMap.get(stackUuid);
+            if (stack != null && matches.test(stack)) {
+                stacks.add(stack);
+            }
+        }
+        return stacks.build();
+    }
+
+    private Map<String, DStreaMonStack> stacksForRead() {
+        return nearCacheReads ? dStreaMonStackView : dStreaMonStackMap;
+    }
+
+    private Map<String, String> mgmtIfacesForRead() {
+        return nearCacheReads ? dstreamonMgmtIfaceView : dstreamonMgmtIfaceMap;
+    }
+
+    private void index(DStreaMonStack stack) {
+        stackKeys.add(stack.stackUuid().value());
+        indexes.forEach(index -> index.add(stack));
+    }
+
+    private void unindex(DStreaMonStack stack) {
+        stackKeys.remove(stack.stackUuid().value());
+        indexes.forEach(index -> index.remove(stack));
     }
 
     /**
@@ -127,15 +481,30 @@ public class DStreaMonDistributedStore implements DStreaMonStore {
      *
      * @param probeUuid the probe associated to the iface
      * @param ifaceName the iface name
-     * @throws DStreaMonException if probe uuid already exists
+     * @throws DStreaMonException if probe uuid already exists or the iface
+     * name is used by another probe
      */
     @Override
     public void putMgmtIface(Uuid probeUuid, String ifaceName) throws DStreaMonException {
 
-        String previous = dstreamonMgmtIfaceMap.putIfAbsent(probeUuid.value(), ifaceName);
+        String owner = mgmtIfaceOwners.get(ifaceName);
+        if (owner != null && !owner.equals(probeUuid.value())) {
+            throw new DStreaMonException(String.format(errorOwnedMgmtIface, ifaceName, owner));
+        }
+        Timer.Context context = startTimer(putMgmtIfaceTimer);
+        String previous;
+        try {
+            previous = dstreamonMgmtIfaceMap.putIfAbsent(probeUuid.value(), ifaceName);
+        } finally {
+            stopTimer(context);
+        }
         if (previous != null && previous.equals(ifaceName)) {
             throw new DStreaMonException(String.format(errorPutMgmtIface, ifaceName));
         }
+        if (previous == null) {
+            dstreamonMgmtIfaceView.put(probeUuid.value(), ifaceName);
+            mgmtIfaceOwners.put(ifaceName, probeUuid.value());
+        }
 
     }
 
@@ -149,11 +518,319 @@ public class DStreaMonDistributedStore implements DStreaMonStore {
     @Override
     public String getMgmtIface(Uuid probeUuid) throws DStreaMonException {
 
-        String ifaceName = dstreamonMgmtIfaceMap.getOrDefault(probeUuid.value(), null);
+        String ifaceName = mgmtIfacesForRead().getOrDefault(probeUuid.value(), null);
         if (ifaceName == null) {
-            throw new DStreaMonException(String.format(errorGetMgmtIface, ifaceName));
+            throw new DStreaMonException(String.format(errorGetMgmtIface, probeUuid.value()));
         }
         return ifaceName;
 
     }
+
+    /**
+     * Retrieves all the mgmt interfaces with a single read.
+     *
+     * @return the iface names, keyed by probe uuid
+     */
+    @Override
+    public Map<Uuid, String> getMgmtIfaces() {
+        ImmutableMap.Builder<Uuid, String> ifaces = ImmutableMap.builder();
+        mgmtIfacesForRead().forEach((probeUuid, ifaceName) -> ifaces.put(Uuid.uuid(probeUuid), ifaceName));
+        return ifaces.build();
+    }
+
+    /**
+     * Removes the mgmt interface's information, if it exists.
+     *
+     * @param probeUuid the probe associated to the iface
+     * @return the removed ifacename, null if it did not exist
+     */
+    @Override
+    public String removeMgmtIface(Uuid probeUuid) {
+
+        String removed = dstreamonMgmtIfaceMap.remove(probeUuid.value());
+        dstreamonMgmtIfaceView.remove(probeUuid.value());
+        if (removed != null) {
+            mgmtIfaceOwners.remove(removed, probeUuid.value());
+        }
+        return removed;
+
+    }
+
+    /**
+     * Stores the desired state of a stack.
+     *
+     * @param stackUuid the stack uuid
+     * @param state the stack state
+     */
+    @Override
+    public void putStackState(Uuid stackUuid, DStreaMonStackState state) {
+        Timer.Context context = startTimer(putStackStateTimer);
+        try {
+            if (dStreaMonStackStateConsistentMap == null) {
+                testStackStateMap.put(stackUuid.value(), testVersioned(state));
+            } else {
+                dStreaMonStackStateMap.put(stackUuid.value(), state);
+            }
+        } finally {
+            stopTimer(context);
+        }
+    }
+
+    /**
+     * Retrieves the desired state of a stack.
+     *
+     * @param stackUuid the stack uuid
+     * @return the stack state, null if it does not exist
+     */
+    @Override
+    public DStreaMonStackState getStackState(Uuid stackUuid) {
+        return dStreaMonStackStateMap.get(stackUuid.value());
+    }
+
+    /**
+     * Retrieves the desired state of a stack along with its version,
+     * to be updated through a compare-and-set.
+     *
+     * @param stackUuid the stack uuid
+     * @return the versioned stack state, null if it does not exist
+     */
+    @Override
+    public Versioned<DStreaMonStackState> getVersionedStackState(Uuid stackUuid) {
+        if (dStreaMonStackStateConsistentMap == null) {
+            return testStackStateMap.get(stackUuid.value());
+        }
+        return dStreaMonStackStateConsistentMap.get(stackUuid.value());
+    }
+
+    /**
+     * Stores the desired state of a stack, if it does not exist.
+     *
+     * @param stackUuid the stack uuid
+     * @param state the stack state
+     * @return true if the state was stored
+     */
+    @Override
+    public boolean putStackStateIfAbsent(Uuid stackUuid, DStreaMonStackState state) {
+        Timer.Context context = startTimer(putStackStateTimer);
+        try {
+            if (dStreaMonStackStateConsistentMap == null) {
+                return testStackStateMap.putIfAbsent(stackUuid.value(), testVersioned(state)) == null;
+            }
+            return dStreaMonStackStateConsistentMap.putIfAbsent(stackUuid.value(), state) == null;
+        } finally {
+            stopTimer(context);
+        }
+    }
+
+    /**
+     * Replaces the desired state of a stack, if its version did not change.
+     *
+     * @param stackUuid the stack uuid
+     * @param version the version of the state read
+     * @param state the new stack state
+     * @return true if the state was replaced
+     */
+    @Override
+    public boolean replaceStackState(Uuid stackUuid, long version, DStreaMonStackState state) {
+        Timer.Context context = startTimer(putStackStateTimer);
+        try {
+            if (dStreaMonStackStateConsistentMap == null) {
+                Versioned<DStreaMonStackState> current = testStackStateMap.get(stackUuid.value());
+                return current != null && current.version() == version &&
+                        testStackStateMap.replace(stackUuid.value(), current, testVersioned(state));
+            }
+            return dStreaMonStackStateConsistentMap.replace(stackUuid.value(), version, state);
+        } finally {
+            stopTimer(context);
+        }
+    }
+
+    /**
+     * Retrieves the desired state of all the stacks with a single read.
+     *
+     * @return the stack states, keyed by stack uuid
+     */
+    @Override
+    public Map<Uuid, DStreaMonStackState> getStackStates() {
+        ImmutableMap.Builder<Uuid, DStreaMonStackState> states = ImmutableMap.builder();
+        dStreaMonStackStateMap.forEach((stackUuid, state) -> states.put(Uuid.uuid(stackUuid), state));
+        return states.build();
+    }
+
+    /**
+     * Removes the desired state of a stack, if it exists.
+     *
+     * @param stackUuid the stack uuid
+     */
+    @Override
+    public void removeStackState(Uuid stackUuid) {
+        dStreaMonStackStateMap.remove(stackUuid.value());
+    }
+
+    /**
+     * Removes the desired state of a stack, if its version did not change.
+     *
+     * @param stackUuid the stack uuid
+     * @param version the version of the state read
+     * @return true if the state was removed
+     */
+    @Override
+    public boolean removeStackState(Uuid stackUuid, long version) {
+        if (dStreaMonStackStateConsistentMap == null) {
+            Versioned<DStreaMonStackState> current = testStackStateMap.get(stackUuid.value());
+            return current != null && current.version() == version &&
+                    testStackStateMap.remove(stackUuid.value(), current);
+        }
+        return dStreaMonStackStateConsistentMap.remove(stackUuid.value(), version);
+    }
+
+    private Versioned<DStreaMonStackState> testVersioned(DStreaMonStackState state) {
+        return new Versioned<>(state, testStackStateVersion.incrementAndGet());
+    }
+
+    /**
+     * Adds a listener notified of the stack states changed by any node
+     * of the cluster.
+     *
+     * @param listener the listener to add
+     */
+    @Override
+    public void addStackStateListener(StackStateListener listener) {
+        stackStateListeners.add(listener);
+    }
+
+    /**
+     * Removes a stack state listener.
+     *
+     * @param listener the listener to remove
+     */
+    @Override
+    public void removeStackStateListener(StackStateListener listener) {
+        stackStateListeners.remove(listener);
+    }
+
+    /**
+     * Adds a listener notified of the mgmt interfaces changed by any node
+     * of the cluster.
+     *
+     * @param listener the listener to add
+     */
+    @Override
+    public void addMgmtIfaceListener(MgmtIfaceListener listener) {
+        mgmtIfaceListeners.add(listener);
+    }
+
+    /**
+     * Removes a mgmt interface listener.
+     *
+     * @param listener the listener to remove
+     */
+    @Override
+    public void removeMgmtIfaceListener(MgmtIfaceListener listener) {
+        mgmtIfaceListeners.remove(listener);
+    }
+
+    /**
+     * Stores an asynchronous operation, replacing its previous status.
+     *
+     * @param operation the operation
+     */
+    @Override
+    public void putOperation(DStreaMonOperation operation) {
+        dStreaMonOperationMap.put(operation.operationId().value(), operation);
+    }
+
+    /**
+     * Retrieves an asynchronous operation.
+     *
+     * @param operationId the operation id
+     * @return the operation, null if it does not exist
+     */
+    @Override
+    public DStreaMonOperation getOperation(Uuid operationId) {
+        return dStreaMonOperationMap.get(operationId.value());
+    }
+
+    /**
+     * Retrieves all the asynchronous operations with a single read.
+     *
+     * @return the stored operations
+     */
+    @Override
+    public Collection<DStreaMonOperation> getOperations() {
+        return ImmutableList.copyOf(dStreaMonOperationMap.values());
+    }
+
+    /**
+     * Removes an asynchronous operation, if it exists.
+     *
+     * @param operationId the operation id
+     */
+    @Override
+    public void removeOperation(Uuid operationId) {
+        dStreaMonOperationMap.remove(operationId.value());
+    }
+
+    /**
+     * Keeps the local view and the secondary indexes aligned with
+     * the updates done on the stack map by any node of the cluster.
+     */
+    private class InternalStackListener implements MapEventListener<String, DStreaMonStack> {
+
+        @Override
+        public void event(MapEvent<String, DStreaMonStack> event) {
+            if (event.oldValue() != null) {
+                unindex(event.oldValue().value());
+            }
+            if (event.newValue() != null) {
+                dStreaMonStackView.put(event.key(), event.newValue().value());
+                index(event.newValue().value());
+            } else {
+                dStreaMonStackView.remove(event.key());
+            }
+        }
+
+    }
+
+    /**
+     * Keeps the local view and the iface owners aligned with the
+     * updates done on the mgmt iface map by any node of the cluster,
+     * and relays them to the mgmt iface listeners.
+     */
+    private class InternalMgmtIfaceListener implements MapEventListener<String, String> {
+
+        @Override
+        public void event(MapEvent<String, String> event) {
+            if (event.oldValue() != null) {
+                mgmtIfaceOwners.remove(event.oldValue().value(), event.key());
+            }
+            if (event.newValue() != null) {
+                dstreamonMgmtIfaceView.put(event.key(), event.newValue().value());
+                mgmtIfaceOwners.put(event.newValue().value(), event.key());
+            } else {
+                dstreamonMgmtIfaceView.remove(event.key());
+            }
+            Uuid probeUuid = Uuid.uuid(event.key());
+            String oldIface = event.oldValue() != null ? event.oldValue().value() : null;
+            String newIface = event.newValue() != null ? event.newValue().value() : null;
+            mgmtIfaceListeners.forEach(listener -> listener.ifaceChanged(probeUuid, oldIface, newIface));
+        }
+
+    }
+
+    /**
+     * Relays the updates done on the stack state map by any node
+     * of the cluster to the stack state listeners.
+     */
+    private class InternalStackStateListener implements MapEventListener<String, DStreaMonStackState> {
+
+        @Override
+        public void event(MapEvent<String, DStreaMonStackState> event) {
+            Uuid stackUuid = Uuid.uuid(event.key());
+            DStreaMonStackState oldState = event.oldValue() != null ? event.oldValue().value() : null;
+            DStreaMonStackState newState = event.newValue() != null ? event.newValue().value() : null;
+            stackStateListeners.forEach(listener -> listener.stateChanged(stackUuid, oldState, newState));
+        }
+
+    }
 }
@@ -16,36 +16,99 @@
 
 package org.onosproject.dstreamon;
 
-import org.apache.commons.lang.NotImplementedException;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Strings;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.Striped;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
-import org.onlab.packet.VlanId;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.MacAddress;
+import org.onlab.metrics.MetricsService;
+import org.onlab.util.KryoNamespace;
+import org.onlab.util.Tools;
+import org.onosproject.cfg.ComponentConfigService;
+import org.onosproject.cluster.ClusterService;
+import org.onosproject.cluster.ControllerNode;
+import org.onosproject.cluster.NodeId;
 import org.onosproject.core.ApplicationId;
 import org.onosproject.core.CoreService;
-import org.onosproject.net.DefaultAnnotations;
+import org.onosproject.net.AnnotationKeys;
+import org.onosproject.net.Device;
 import org.onosproject.net.DeviceId;
+import org.onosproject.net.Port;
 import org.onosproject.net.PortNumber;
-import org.onosproject.net.behaviour.BridgeConfig;
 import org.onosproject.net.behaviour.BridgeName;
-import org.onosproject.net.behaviour.DefaultMirroringDescription;
-import org.onosproject.net.behaviour.MirroringConfig;
-import org.onosproject.net.behaviour.MirroringDescription;
 import org.onosproject.net.behaviour.MirroringName;
-import org.onosproject.net.driver.DriverHandler;
+import org.onosproject.net.behaviour.MirroringStatistics;
+import org.onosproject.net.device.DeviceEvent;
+import org.onosproject.net.device.DeviceListener;
+import org.onosproject.net.device.DeviceService;
+import org.onosproject.net.device.PortDescription;
+import org.onosproject.net.device.PortStatistics;
 import org.onosproject.net.driver.DriverService;
+import org.onosproject.net.flow.FlowRuleService;
+import org.onosproject.net.intent.WorkPartitionEvent;
+import org.onosproject.net.intent.WorkPartitionEventListener;
+import org.onosproject.net.intent.WorkPartitionService;
 import org.onosproject.ovsdb.rfc.notation.Uuid;
+import org.onosproject.store.cluster.messaging.ClusterCommunicationService;
+import org.onosproject.store.cluster.messaging.MessageSubject;
+import org.onosproject.store.serializers.KryoNamespaces;
+import org.onosproject.store.service.Serializer;
+import org.onosproject.store.service.StorageException;
+import org.onosproject.store.service.Versioned;
+import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Dictionary;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.Random;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+
+import static org.onlab.metrics.MetricsUtil.startTimer;
+import static org.onlab.metrics.MetricsUtil.stopTimer;
+import static org.onlab.util.Tools.groupedThreads;
 
 /**
  * Implements DStreaMonService.
@@ -66,32 +129,258 @@ public class DStreaMonManager implements DStreaMonService {
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected DriverService driverService;
 
-    protected ApplicationId appId;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected DeviceService deviceService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected WorkPartitionService workPartitionService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected FlowRuleService flowRuleService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected ComponentConfigService cfgService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected ClusterService clusterService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected ClusterCommunicationService clusterCommunicator;
+
+    private static final String DEFAULT_MIRRORING_BACKEND = "ovsdb";
+    @Property(name = "mirroringBackend", value = DEFAULT_MIRRORING_BACKEND,
+            label = "Backend configuring the mirroring of the stacks not choosing one, " +
+                    "ovsdb or flow_rules; default is ovsdb")
+    private volatile DStreaMonMirrorSpec.Backend mirroringBackend = DStreaMonMirrorSpec.Backend.OVSDB;
 
-    protected MirroringConfig mirroringConfig;
-    protected BridgeConfig bridgeConfig;
+    private static final boolean DEFAULT_PORT_REMOVAL_TEARDOWN = true;
+    @Property(name = "portRemovalTeardown", boolValue = DEFAULT_PORT_REMOVAL_TEARDOWN,
+            label = "Unregister the stacks whose user or probe port is removed from its compute node; " +
+                    "default is true")
+    private volatile boolean portRemovalTeardown = DEFAULT_PORT_REMOVAL_TEARDOWN;
+
+    private static final int DEFAULT_STATS_POLL_INTERVAL = 10;
+    @Property(name = "statsPollInterval", intValue = DEFAULT_STATS_POLL_INTERVAL,
+            label = "Interval in seconds between two samples of the traffic statistics of the stacks, " +
+                    "0 to disable the collection; default is 10")
+    private volatile int statsPollInterval = DEFAULT_STATS_POLL_INTERVAL;
+
+    protected ApplicationId appId;
 
     private static final String ERROR_MIRRORING = "Impossible to Add Mirroring for stack %s";
+    private static final String ERROR_PORTS = "Impossible to find the local ports for stack %s";
+    private static final String ERROR_BACKEND = "Option %s of stack %s is not supported by the %s backend";
+    private static final String ERROR_NODES = "User and probe of stack %s are not on the same compute node";
+    private static final String ERROR_NODE = "Impossible to configure compute node %s: %s";
+    private static final String ERROR_TEARDOWN = "Impossible to tear down stack %s: %s";
+    private static final String ERROR_STATE = "Impossible to record the state of stack %s: %s";
+    private static final String ERROR_MGMT = "Impossible to add the mgmt interface of stack %s: %s";
+    private static final String ERROR_RECONCILE = "Impossible to reconcile stack {} on {}";
+    private static final String ERROR_OWNER = "No node programs stack %s";
+    private static final String ERROR_REMOTE_STATS = "Impossible to read the statistics of stack %s from node %s";
+    private static final String ERROR_REMOTE_TELEMETRY = "Impossible to read the telemetry of probe %s from node %s";
 
-    private static final String CANARY_OVSDB_ID = "ovsdb:172.16.131.1";
-    private static final String BR_INT = "br-int";
+    private static final String OVSDB_SCHEME = "ovsdb";
     private static final String BR_MGMT = "br-mgmt";
 
-    private Random random;
+    private static final String ERROR_OPERATION = "Operation %s does not exist";
+    private static final String ERROR_OPERATION_NODE = "Node %s running the operation was stopped";
+
+    private static final int CONVERGENCE_WORKERS = 8;
+    private static final int CONVERGENCE_BATCH = 64;
+    private static final int MAX_ATTEMPTS = 8;
+    private static final long BACKOFF_BASE_MILLIS = 500;
+    private static final long BACKOFF_MAX_MILLIS = 60000;
+    private static final int DEVICE_WORKERS = 16;
+    private static final int MAX_OPERATIONS = 10000;
+    private static final long OPERATION_TTL_MINUTES = 10;
+    private static final long OPERATION_PURGE_MINUTES = 1;
+    private static final long LOCAL_PORT_CACHE_SIZE = 4096;
+    private static final int STACK_LOCK_STRIPES = 1024;
+    private static final long TAKEOVER_DELAY_MILLIS = 1000;
+    private static final long TEARDOWN_DELAY_MILLIS = 2000;
+    private static final int STATS_SAMPLES = 30;
+    private static final long REMOTE_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * The statistics of a stack are sampled by the node programming it,
+     * the other nodes ask them to it. The measurements of a probe are
+     * kept by the nodes receiving them, the node queried merges the
+     * windows of all the nodes.
+     */
+    private static final MessageSubject STACK_STATS_SUBJECT = new MessageSubject("dstreamon-stack-stats");
+    private static final MessageSubject PROBE_TELEMETRY_SUBJECT = new MessageSubject("dstreamon-probe-telemetry");
+    private static final Serializer MESSAGES = Serializer.using(KryoNamespace.newBuilder()
+            .register(KryoNamespaces.BASIC)
+            .nextId(KryoNamespaces.BEGIN_USER_CUSTOM_ID)
+            .register(new DStreaMonStackStatsSerializer(), DStreaMonStackStats.class)
+            .register(new DStreaMonTelemetrySummarySerializer(), DStreaMonTelemetrySummary.class)
+            .build());
+
+    private static final Pattern STACK_MIRROR_NAME = Pattern.compile(
+            "[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+
+    /**
+     * The stacks, and the orphan mirrors and mgmt ports of each compute
+     * node, are divided among the cluster nodes through the work partitions:
+     * each node programs only the stacks falling in the partitions it leads.
+     * The stacks are partitioned by probe, so that the mirrors and the mgmt
+     * port shared by the stacks of a probe are written by a single node.
+     */
+    private static final Function<Uuid, Long> PROBE_PARTITION = probeUuid -> partitionHash(probeUuid.value());
+    private static final Function<DeviceId, Long> NODE_PARTITION = deviceId -> partitionHash(deviceId.toString());
+
+    private ExecutorService convergenceExecutor;
+    private ScheduledExecutorService retryExecutor;
+    private ExecutorService deviceExecutor;
+    private ExecutorService reconcileExecutor;
+    private ScheduledExecutorService statsExecutor;
+    private ExecutorService messagingExecutor;
+    private ScheduledFuture<?> statsTask;
+    private MirroringBackend ovsdbBackend;
+    private FlowRuleMirroringBackend flowRuleBackend;
+
+    /**
+     * Timers of the phases of the registrations and of the convergence,
+     * telling which step is slow, and counters of their outcomes.
+     */
+    private DStreaMonMetrics metrics;
+    private Timer registerTimer;
+    private Timer unregisterTimer;
+    private Timer installTimer;
+    private Timer withdrawTimer;
+    private Timer localPortsTimer;
+    private Timer ovsdbMirrorTimer;
+    private Timer flowRulesMirrorTimer;
+    private Timer addPortTimer;
+    private Timer deletePortTimer;
+    private Timer reconcileTimer;
+    private Timer statsTimer;
+    private Counter registeredCounter;
+    private Counter rejectedCounter;
+    private Counter installedCounter;
+    private Counter removedCounter;
+    private Counter retriedCounter;
+    private Counter failedCounter;
+    private Counter tornDownCounter;
+    private final AtomicInteger registrationsInFlight = new AtomicInteger();
+    private final AtomicInteger stacksInFlight = new AtomicInteger();
+
+    private final Map<DeviceId, ComputeNode> computeNodes = Maps.newConcurrentMap();
+    private final LocalPortCache localPortCache = new LocalPortCache(LOCAL_PORT_CACHE_SIZE);
+    private final DeviceListener deviceListener = new InternalDeviceListener();
+    private final DStreaMonStore.StackStateListener stackStateListener = new InternalStackStateListener();
+    private final DStreaMonStore.MgmtIfaceListener mgmtIfaceListener = new InternalMgmtIfaceListener();
+    private final WorkPartitionEventListener partitionListener = new InternalPartitionListener();
 
+    /**
+     * Stacks to converge to their desired state, and the futures
+     * of the callers waiting for the convergence.
+     */
+    private final BlockingQueue<Uuid> convergenceQueue = new LinkedBlockingQueue<>();
+    private final Map<Uuid, CompletableFuture<Void>> convergences = Maps.newConcurrentMap();
+
+    /**
+     * Serializes the operations on the same stack on this node, while the
+     * operations on different stacks run in parallel. Across the cluster
+     * the state transitions are compare-and-set on the state versions.
+     */
+    private final Striped<Lock> stackLocks = Striped.lock(STACK_LOCK_STRIPES);
+
+    /**
+     * Serializes the rewrites of the same group mirror, under any of its
+     * names, taken after the stack locks and never while waiting for
+     * other locks.
+     */
+    private final Striped<Lock> mirrorLocks = Striped.lock(STACK_LOCK_STRIPES);
+    private final DStreaMonReconciliation reconciliation = new DStreaMonReconciliation();
+    private final Object reconcileLock = new Object();
+    private CompletableFuture<Void> queuedReconciliation;
+    private final AtomicBoolean queuedTakeover = new AtomicBoolean();
+
+    /**
+     * Keys of the Neutron ports removed from the compute nodes, whose
+     * stacks are unregistered together after a short delay.
+     */
+    private final Set<String> removedPorts = Sets.newConcurrentHashSet();
+    private final AtomicBoolean queuedTeardown = new AtomicBoolean();
+
+    /**
+     * Mirrors named after a uuid matching no stored stack, already
+     * logged as not belonging to D-StreaMon, keyed by device and name.
+     */
+    private final Set<String> foreignMirrors = Sets.newConcurrentHashSet();
+
+    /**
+     * Activation time of the manager: a pending operation of this node
+     * started before it was interrupted by a restart.
+     */
+    private volatile long activationTime;
+
+    /**
+     * Samples of the traffic statistics of the stacks owned by this node.
+     */
+    private final Map<Uuid, StackStatsHistory> stackStats = Maps.newConcurrentMap();
+
+    /**
+     * Measurements received from the probes by this node.
+     */
+    private final Map<Uuid, DStreaMonTelemetry> telemetries = Maps.newConcurrentMap();
 
 
 
     @Activate
-    protected void activate() {
+    protected void activate(ComponentContext context) {
 
         appId = coreService.registerApplication(DSTREAMON_APP);
-        random = new Random();
+        ovsdbBackend = new OvsdbMirroringBackend();
+        flowRuleBackend = new FlowRuleMirroringBackend(flowRuleService, appId, this::flowRuleGroupMirrors);
+        cfgService.registerProperties(getClass());
+        readConfiguration(context);
+        registerMetrics();
+
+        convergenceExecutor = Executors.newFixedThreadPool(CONVERGENCE_WORKERS,
+                                                           groupedThreads("onos/dstreamon", "convergence-%d"));
+        retryExecutor = Executors.newSingleThreadScheduledExecutor(groupedThreads("onos/dstreamon", "retry-%d"));
+        deviceExecutor = Executors.newFixedThreadPool(DEVICE_WORKERS,
+                                                      groupedThreads("onos/dstreamon", "device-%d"));
+        reconcileExecutor = Executors.newSingleThreadExecutor(groupedThreads("onos/dstreamon", "reconcile-%d"));
+        statsExecutor = Executors.newSingleThreadScheduledExecutor(groupedThreads("onos/dstreamon", "stats-%d"));
+        messagingExecutor = Executors.newSingleThreadExecutor(groupedThreads("onos/dstreamon", "messaging-%d"));
+        activationTime = System.currentTimeMillis();
+        retryExecutor.scheduleWithFixedDelay(this::purgeOperations, OPERATION_PURGE_MINUTES,
+                                             OPERATION_PURGE_MINUTES, TimeUnit.MINUTES);
 
-        DeviceId deviceId = DeviceId.deviceId(CANARY_OVSDB_ID);
-        DriverHandler h = driverService.createHandler(deviceId);
-        mirroringConfig = h.behaviour(MirroringConfig.class);
-        bridgeConfig = h.behaviour(BridgeConfig.class);
+        deviceService.addListener(deviceListener);
+        dStreaMonStore.addStackStateListener(stackStateListener);
+        dStreaMonStore.addMgmtIfaceListener(mgmtIfaceListener);
+        workPartitionService.addListener(partitionListener);
+        clusterCommunicator.addSubscriber(STACK_STATS_SUBJECT, MESSAGES::decode,
+                                          (String stackUuid) -> localStackStats(Uuid.uuid(stackUuid)),
+                                          MESSAGES::encode, messagingExecutor);
+        clusterCommunicator.addSubscriber(PROBE_TELEMETRY_SUBJECT, MESSAGES::decode,
+                                          (String probeUuid) -> localTelemetry(Uuid.uuid(probeUuid)),
+                                          MESSAGES::encode, messagingExecutor);
+
+        /**
+         * The stacks left pending or withdrawing by a restart are
+         * converged again.
+         */
+        for (int i = 0; i < CONVERGENCE_WORKERS; i++) {
+            convergenceExecutor.execute(this::converge);
+        }
+        queueOwnedStacks();
+        scheduleStatistics();
+
+        /**
+         * After a restart or a failover the compute nodes may have drifted
+         * from the store: they are reconciled in background, again when
+         * each of them connects.
+         */
+        reconcile();
 
         log.info("Started");
 
@@ -100,127 +389,2008 @@ public class DStreaMonManager implements DStreaMonService {
     @Deactivate
     protected void deactivate() {
 
+        cfgService.unregisterProperties(getClass(), false);
+        deviceService.removeListener(deviceListener);
+        dStreaMonStore.removeStackStateListener(stackStateListener);
+        dStreaMonStore.removeMgmtIfaceListener(mgmtIfaceListener);
+        workPartitionService.removeListener(partitionListener);
+        clusterCommunicator.removeSubscriber(STACK_STATS_SUBJECT);
+        clusterCommunicator.removeSubscriber(PROBE_TELEMETRY_SUBJECT);
+        localPortCache.clear();
+        computeNodes.clear();
+        convergenceExecutor.shutdownNow();
+        retryExecutor.shutdownNow();
+        convergenceQueue.clear();
+        convergences.clear();
+        removedPorts.clear();
+        deviceExecutor.shutdown();
+        reconcileExecutor.shutdownNow();
+        statsExecutor.shutdownNow();
+        messagingExecutor.shutdownNow();
+        stackStats.clear();
+        telemetries.clear();
+        unregisterMetrics();
         log.info("Stopped");
 
     }
 
+    /**
+     * Reads the configuration of the DStreaMon manager. A change of the
+     * default backend moves the mirrors of the installed stacks through
+     * a reconciliation.
+     *
+     * @param context the component context
+     */
+    @Modified
+    public void modified(ComponentContext context) {
+
+        DStreaMonMirrorSpec.Backend previous = mirroringBackend;
+        int previousInterval = statsPollInterval;
+        readConfiguration(context);
+        if (mirroringBackend != previous) {
+            reconcile();
+        }
+        if (statsPollInterval != previousInterval) {
+            scheduleStatistics();
+        }
+
+    }
+
+    private void readConfiguration(ComponentContext context) {
+
+        Dictionary<?, ?> properties = context.getProperties();
+        String value = Tools.get(properties, "mirroringBackend");
+        DStreaMonMirrorSpec.Backend backend = DStreaMonMirrorSpec.Backend.OVSDB;
+        try {
+            backend = DStreaMonMirrorSpec.Backend.valueOf(
+                    (Strings.isNullOrEmpty(value) ? DEFAULT_MIRRORING_BACKEND : value.trim()).toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log.warn("Unknown mirroring backend {}, using {}", value, DEFAULT_MIRRORING_BACKEND);
+        }
+        mirroringBackend = backend == DStreaMonMirrorSpec.Backend.DEFAULT ?
+                DStreaMonMirrorSpec.Backend.OVSDB : backend;
+        portRemovalTeardown = Tools.isPropertyEnabled(properties, "portRemovalTeardown",
+                                                      DEFAULT_PORT_REMOVAL_TEARDOWN);
+        Integer interval = Tools.getIntegerProperty(properties, "statsPollInterval");
+        statsPollInterval = interval != null && interval >= 0 ? interval : DEFAULT_STATS_POLL_INTERVAL;
+        log.info("Configured. Mirroring backend is {}, teardown on port removal is {}, stats poll interval is {}s",
+                 mirroringBackend, portRemovalTeardown ? "enabled" : "disabled", statsPollInterval);
+
+    }
+
+    private void registerMetrics() {
+
+        metrics = new DStreaMonMetrics(metricsService);
+        registerTimer = metrics.timer(DStreaMonMetrics.REGISTRATION, "registerStacks");
+        unregisterTimer = metrics.timer(DStreaMonMetrics.REGISTRATION, "unregisterStacks");
+        tornDownCounter = metrics.counter(DStreaMonMetrics.REGISTRATION, "tornDown");
+        registeredCounter = metrics.counter(DStreaMonMetrics.REGISTRATION, "registered");
+        rejectedCounter = metrics.counter(DStreaMonMetrics.REGISTRATION, "rejected");
+        installTimer = metrics.timer(DStreaMonMetrics.CONVERGENCE, "installStacks");
+        withdrawTimer = metrics.timer(DStreaMonMetrics.CONVERGENCE, "withdrawStacks");
+        installedCounter = metrics.counter(DStreaMonMetrics.CONVERGENCE, "installed");
+        removedCounter = metrics.counter(DStreaMonMetrics.CONVERGENCE, "removed");
+        retriedCounter = metrics.counter(DStreaMonMetrics.CONVERGENCE, "retried");
+        failedCounter = metrics.counter(DStreaMonMetrics.CONVERGENCE, "failed");
+        localPortsTimer = metrics.timer(DStreaMonMetrics.OVSDB, "getLocalPorts");
+        ovsdbMirrorTimer = metrics.timer(DStreaMonMetrics.OVSDB, "writeMirror");
+        addPortTimer = metrics.timer(DStreaMonMetrics.OVSDB, "addPort");
+        deletePortTimer = metrics.timer(DStreaMonMetrics.OVSDB, "deletePort");
+        flowRulesMirrorTimer = metrics.timer(DStreaMonMetrics.FLOW_RULES, "writeMirror");
+        reconcileTimer = metrics.timer(DStreaMonMetrics.RECONCILIATION, "reconcileStacks");
+        statsTimer = metrics.timer(DStreaMonMetrics.STATISTICS, "collect");
+
+        metrics.gauge(DStreaMonMetrics.REGISTRATION, "inFlight", (Gauge<Integer>) registrationsInFlight::get);
+        metrics.gauge(DStreaMonMetrics.CONVERGENCE, "inFlight", (Gauge<Integer>) stacksInFlight::get);
+        metrics.gauge(DStreaMonMetrics.CONVERGENCE, "queued", (Gauge<Integer>) convergenceQueue::size);
+        metrics.gauge(DStreaMonMetrics.CONVERGENCE, "awaited", (Gauge<Integer>) convergences::size);
+
+    }
+
+    private void unregisterMetrics() {
+        metrics.removeGauge(DStreaMonMetrics.REGISTRATION, "inFlight");
+        metrics.removeGauge(DStreaMonMetrics.CONVERGENCE, "inFlight");
+        metrics.removeGauge(DStreaMonMetrics.CONVERGENCE, "queued");
+        metrics.removeGauge(DStreaMonMetrics.CONVERGENCE, "awaited");
+    }
+
     /**
      * Registers the data of a new stack created through OpenStack Heat.
-     * Realized the port mirroring and creates the mgmt interface.
+     * The stack is recorded as pending, the port mirroring and the mgmt
+     * interface are created in background.
      *
      * @param stack the stack data to register
      */
     @Override
     public void registerStack(DStreaMonStack stack) throws DStreaMonException {
 
-        dStreaMonStore.putStack(stack);
+        String error = registerStacks(Collections.singletonList(stack)).get(stack.stackUuid());
+        if (error != null) {
+            throw new DStreaMonException(error);
+        }
+
+    }
+
+    /**
+     * Registers a batch of stacks created through OpenStack Heat.
+     * The stacks are recorded as pending and converged in background
+     * by the cluster node owning them, notified through the store.
+     *
+     * @param stacks the stacks data to register
+     * @return the error messages of the stacks not recorded, keyed by stack uuid
+     */
+    @Override
+    public Map<Uuid, String> registerStacks(List<DStreaMonStack> stacks) {
+
+        Map<Uuid, String> failures = Maps.newHashMap();
+        registrationsInFlight.addAndGet(stacks.size());
+        Timer.Context context = startTimer(registerTimer);
+        List<Lock> locks = lockStacks(Lists.transform(stacks, DStreaMonStack::stackUuid));
+        try {
+            for (DStreaMonStack stack : stacks) {
+                MirrorGroup group = group(stack);
+                Optional<String> unsupported = group.backend() == DStreaMonMirrorSpec.Backend.FLOW_RULES ?
+                        FlowRuleMirroringBackend.unsupportedOption(group.mirrorSpec()) :
+                        OvsdbMirroringBackend.unsupportedOption(group.mirrorSpec());
+                if (unsupported.isPresent()) {
+                    failures.put(stack.stackUuid(), String.format(ERROR_BACKEND, unsupported.get(), stack.stackUuid(),
+                                                                  group.backend().name().toLowerCase()));
+                    continue;
+                }
+                try {
+                    dStreaMonStore.putStack(stack);
+                } catch (DStreaMonException e) {
+                    failures.put(stack.stackUuid(), e.getMessage());
+                    continue;
+                }
+                try {
+                    transitStackState(stack.stackUuid(), state -> DStreaMonStackState.pending());
+                } catch (StorageException e) {
+                    failures.put(stack.stackUuid(), String.format(ERROR_STATE, stack.stackUuid(), e.getMessage()));
+                }
+            }
+        } finally {
+            unlockStacks(locks);
+            stopTimer(context);
+            registrationsInFlight.addAndGet(-stacks.size());
+        }
+        registeredCounter.inc(stacks.size() - failures.size());
+        rejectedCounter.inc(failures.size());
+        return failures;
+
+    }
+
+    /**
+     * Installs a batch of stacks: the local ports of the whole batch
+     * are resolved at once, then each compute node is configured.
+     */
+    private Map<Uuid, String> installStacks(List<DStreaMonStack> stacks) {
+
+        Map<Uuid, String> failures = Maps.newConcurrentMap();
+        if (stacks.isEmpty()) {
+            return failures;
+        }
+        Timer.Context context = startTimer(installTimer);
+        try {
+            installStacks(stacks, failures);
+        } finally {
+            stopTimer(context);
+        }
+        return failures;
+
+    }
+
+    private void installStacks(List<DStreaMonStack> stacks, Map<Uuid, String> failures) {
 
         /**
          * OpenStack Heat provides only the interfaces ids, for mirroring
-         * we need the port uuid, thus we need this intermediate step of retrieving
-         * port names.
-         */
-        List<String> ifaceids = Arrays.asList(stack.userPortUuid().value());
-        List<PortNumber> ports = bridgeConfig.getLocalPorts(ifaceids);
-        String userPortName = ports.get(0).name();
-        ifaceids = Arrays.asList(stack.probePortUuid().value());
-        ports = bridgeConfig.getLocalPorts(ifaceids);
-        String probePortName = ports.get(0).name();
-
-        MirroringName mirroringName = MirroringName.mirroringName(stack.stackUuid().value());
-        List<String> selectSrcPorts = Arrays.asList(userPortName);
-        List<String> selectDstPorts = Arrays.asList();
-        List<VlanId> selectVlanIds = Arrays.asList();
-        Optional<String> outputPort = Optional.of(probePortName);
-        Optional<VlanId> outputVlan = Optional.empty();
-
-        DefaultAnnotations.Builder optionBuilder = DefaultAnnotations.builder();
-        MirroringDescription mirroringDescription = new DefaultMirroringDescription(
-                mirroringName,
-                selectSrcPorts,
-                selectDstPorts,
-                selectVlanIds,
-                outputPort,
-                outputVlan,
-                optionBuilder.build()
-        );
-
-        if (mirroringConfig.addMirroring(BridgeName.bridgeName(BR_INT), mirroringDescription)) {
-
-            String ifaceName = nextIfaceName();
-            bridgeConfig.addPort(BridgeName.bridgeName(BR_MGMT), ifaceName);
-
-            dStreaMonStore.putMgmtIface(stack.probeUuid(), ifaceName);
+         * we need the port names, thus we need this intermediate step of retrieving
+         * port names. A single lookup per compute node serves the whole batch
+         * and tells also where the stack has to be configured.
+         */
+        Map<String, LocalPort> localPorts = getLocalPorts(stacks);
 
-            return;
+        Map<DeviceId, List<DStreaMonStack>> stacksByNode = Maps.newHashMap();
+        for (DStreaMonStack stack : stacks) {
+            LocalPort userPort = localPorts.get(NeutronPortNames.portKey(stack.userPortUuid()));
+            LocalPort probePort = localPorts.get(NeutronPortNames.portKey(stack.probePortUuid()));
+            if (userPort == null || probePort == null) {
+                failures.put(stack.stackUuid(), String.format(ERROR_PORTS, stack.stackUuid()));
+            } else if (!userPort.deviceId().equals(probePort.deviceId())) {
+                failures.put(stack.stackUuid(), String.format(ERROR_NODES, stack.stackUuid()));
+            } else {
+                stacksByNode.computeIfAbsent(userPort.deviceId(), k -> Lists.newArrayList()).add(stack);
+            }
+        }
+
+        List<CompletableFuture<Void>> installations = Lists.newArrayList();
+        stacksByNode.forEach((deviceId, nodeStacks) -> installations.add(
+                CompletableFuture.runAsync(() -> installStacks(computeNode(deviceId), nodeStacks,
+                                                               localPorts, failures), deviceExecutor)
+                        .exceptionally(e -> {
+                            nodeStacks.forEach(stack -> failures.putIfAbsent(
+                                    stack.stackUuid(), String.format(ERROR_NODE, deviceId, e.getMessage())));
+                            return null;
+                        })));
+        CompletableFuture.allOf(installations.toArray(new CompletableFuture<?>[installations.size()])).join();
+
+    }
+
+    private void installStacks(ComputeNode node, List<DStreaMonStack> stacks,
+                               Map<String, LocalPort> localPorts, Map<Uuid, String> failures) {
+
+        /**
+         * The stacks sharing a probe port and a mirror spec are served by
+         * the same mirror, rewritten once for all the stacks of the batch.
+         */
+        Set<String> mirrors = mirrorNames(node);
+        List<DStreaMonStack> mirrored = Lists.newArrayList();
+        groupStacks(stacks).forEach((group, groupStacks) -> {
+            if (syncMirror(node, group, localPorts, mirrors)) {
+                mirrored.addAll(groupStacks);
+            } else {
+                groupStacks.forEach(stack -> failures.put(stack.stackUuid(),
+                                                          String.format(ERROR_MIRRORING, stack.stackUuid())));
+            }
+        });
+
+        /**
+         * The name is reserved in the store before creating the port,
+         * so that a name clash is reported before touching the bridge.
+         * The mirror is left in place on failure, the stack being retried.
+         */
+        for (DStreaMonStack stack : mirrored) {
+            if (hasMgmtIface(stack.probeUuid())) {
+                continue;
+            }
+            String ifaceName = MgmtIfaceNames.ifaceName(stack.probeUuid());
+            try {
+                dStreaMonStore.putMgmtIface(stack.probeUuid(), ifaceName);
+            } catch (DStreaMonException e) {
+                failures.put(stack.stackUuid(), e.getMessage());
+                continue;
+            }
+            try {
+                addPort(node, ifaceName);
+            } catch (RuntimeException e) {
+                failures.put(stack.stackUuid(), String.format(ERROR_MGMT, stack.stackUuid(), e.getMessage()));
+                dStreaMonStore.removeMgmtIface(stack.probeUuid());
+            }
+        }
+
+    }
+
+    private Map<MirrorGroup, List<DStreaMonStack>> groupStacks(Collection<DStreaMonStack> stacks) {
+        Map<MirrorGroup, List<DStreaMonStack>> groups = Maps.newHashMap();
+        stacks.forEach(stack -> groups.computeIfAbsent(group(stack), k -> Lists.newArrayList()).add(stack));
+        return groups;
+    }
+
+    /**
+     * Returns the group of a stack, mirrored by the backend of its spec
+     * or, by default, by the one configured for the application.
+     */
+    private MirrorGroup group(DStreaMonStack stack) {
+        return MirrorGroup.of(stack, mirroringBackend);
+    }
+
+    private MirroringBackend backend(MirrorGroup group) {
+        return group.backend() == DStreaMonMirrorSpec.Backend.FLOW_RULES ? flowRuleBackend : ovsdbBackend;
+    }
+
+    /**
+     * Brings the mirror of a group in line with the stacks of the group
+     * recorded in the store, as mirrored on the given compute node: the
+     * backend of the group rewrites the mirroring of their user ports,
+     * or deletes it when no stack is left. The store is read under the lock of the group, so
+     * the last rewrite always includes the last registered stack. When the
+     * mirror can not be written the installed stacks of the group are
+     * marked pending, the mirror left on the node may not match them.
+     *
+     * @return true if the mirror has been written or deleted
+     */
+    private boolean syncMirror(ComputeNode node, MirrorGroup group,
+                               Map<String, LocalPort> localPorts, Set<String> mirrors) {
 
+        List<DStreaMonStack> members = Lists.newArrayList();
+        boolean written = writeMirror(node, group, localPorts, mirrors, members);
+        if (!written) {
+            for (DStreaMonStack stack : members) {
+                transitStackState(stack.stackUuid(),
+                                  state -> isInstalled(state) ? DStreaMonStackState.pending() : state);
+            }
         }
+        return written;
+
+    }
+
+    private boolean writeMirror(ComputeNode node, MirrorGroup group, Map<String, LocalPort> localPorts,
+                                Set<String> mirrors, List<DStreaMonStack> members) {
 
-        throw new DStreaMonException(String.format(ERROR_MIRRORING, stack.stackUuid()));
+        List<Lock> locks = Lists.newArrayList(mirrorLocks.bulkGet(group.mirrorNames()));
+        locks.forEach(Lock::lock);
+        try {
+            members.addAll(mirroredStacks(group));
+            Map<String, LocalPort> ports = resolveLocalPorts(node, members, localPorts);
+            LocalPort probePort = ports.get(NeutronPortNames.portKey(group.probePortUuid()));
+            if (probePort != null && !probePort.deviceId().equals(node.deviceId())) {
+                probePort = null;
+            }
+            Map<DStreaMonStack, LocalPort> userPorts = Maps.newLinkedHashMap();
+            for (DStreaMonStack stack : members) {
+                LocalPort userPort = ports.get(NeutronPortNames.portKey(stack.userPortUuid()));
+                if (userPort != null && userPort.deviceId().equals(node.deviceId())) {
+                    userPorts.put(stack, userPort);
+                }
+            }
+            Timer.Context context = startTimer(group.backend() == DStreaMonMirrorSpec.Backend.FLOW_RULES ?
+                                                       flowRulesMirrorTimer : ovsdbMirrorTimer);
+            try {
+                return backend(group).writeMirror(node, group, userPorts, probePort, mirrors);
+            } finally {
+                stopTimer(context);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Impossible to write mirror {} on {}", group.mirrorName(), node.deviceId(), e);
+            return false;
+        } finally {
+            Lists.reverse(locks).forEach(Lock::unlock);
+        }
 
     }
 
-    private String nextIfaceName() {
-        char[] chars = "abcdefghijklmnopqrstuvwxyz0123456789".toCharArray();
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < 6; i++) {
-            char c = chars[random.nextInt(chars.length)];
-            sb.append(c);
+    /**
+     * Returns the stacks of a group that have to be mirrored,
+     * that is the ones neither withdrawing nor failed.
+     */
+    private List<DStreaMonStack> mirroredStacks(MirrorGroup group) {
+        List<DStreaMonStack> members = Lists.newArrayList();
+        for (DStreaMonStack stack : dStreaMonStore.getStacksByPort(group.probePortUuid())) {
+            if (group.equals(group(stack)) && isMirrored(dStreaMonStore.getStackState(stack.stackUuid()))) {
+                members.add(stack);
+            }
         }
-        String output = sb.toString();
-        return output;
+        return members;
     }
 
     /**
-     * Uregisters a stack created previously through OpenStack Heat.
-     * Delete also the port mirroring and the mgmt interface.
+     * Tells whether a probe still has stacks to be mirrored,
+     * thus whether its mgmt interface is still in use.
+     */
+    private boolean isProbeInUse(Uuid probeUuid) {
+        for (DStreaMonStack stack : dStreaMonStore.getStacksByProbe(probeUuid)) {
+            if (isMirrored(dStreaMonStore.getStackState(stack.stackUuid()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isMirrored(DStreaMonStackState state) {
+        return state == null || state.status() == DStreaMonStackState.Status.PENDING
+                || state.status() == DStreaMonStackState.Status.INSTALLED;
+    }
+
+    /**
+     * Completes the local ports of the stacks, looking for the missing
+     * ones on the given compute node. The lookup runs on the calling
+     * thread, which is already a device worker.
+     */
+    private Map<String, LocalPort> resolveLocalPorts(ComputeNode node, List<DStreaMonStack> stacks,
+                                                     Map<String, LocalPort> localPorts) {
+        Map<String, LocalPort> ports = Maps.newHashMap(localPorts);
+        Set<String> ifaceIds = Sets.newHashSet();
+        for (DStreaMonStack stack : stacks) {
+            for (Uuid portUuid : Arrays.asList(stack.userPortUuid(), stack.probePortUuid())) {
+                String key = NeutronPortNames.portKey(portUuid);
+                if (ports.containsKey(key)) {
+                    continue;
+                }
+                LocalPort port = localPortCache.get(portUuid);
+                if (port != null) {
+                    ports.put(key, port);
+                } else {
+                    ifaceIds.add(portUuid.value());
+                }
+            }
+        }
+        if (ifaceIds.isEmpty()) {
+            return ports;
+        }
+        List<PortNumber> found = lookupLocalPorts(node, ifaceIds);
+        if (found != null) {
+            found.forEach(port -> {
+                LocalPort localPort = new LocalPort(node.deviceId(), port);
+                localPortCache.put(localPort);
+                NeutronPortNames.portKey(port.name()).ifPresent(key -> ports.put(key, localPort));
+            });
+        }
+        return ports;
+    }
+
+    private List<PortNumber> lookupLocalPorts(ComputeNode node, Set<String> ifaceIds) {
+        Timer.Context context = startTimer(localPortsTimer);
+        try {
+            return node.bridgeConfig().getLocalPorts(ifaceIds);
+        } finally {
+            stopTimer(context);
+        }
+    }
+
+    private void addPort(ComputeNode node, String ifaceName) {
+        Timer.Context context = startTimer(addPortTimer);
+        try {
+            node.bridgeConfig().addPort(BridgeName.bridgeName(BR_MGMT), ifaceName);
+        } finally {
+            stopTimer(context);
+        }
+    }
+
+    private void deletePort(ComputeNode node, String ifaceName) {
+        Timer.Context context = startTimer(deletePortTimer);
+        try {
+            node.bridgeConfig().deletePort(BridgeName.bridgeName(BR_MGMT), ifaceName);
+        } finally {
+            stopTimer(context);
+        }
+    }
+
+    /**
+     * Locks the given stacks. The locks are taken in the order of the
+     * stripes, so that concurrent batches can not deadlock.
+     */
+    private List<Lock> lockStacks(List<Uuid> stackUuids) {
+        List<Lock> locks = Lists.newArrayList(stackLocks.bulkGet(Lists.transform(stackUuids, Uuid::value)));
+        locks.forEach(Lock::lock);
+        return locks;
+    }
+
+    private static void unlockStacks(List<Lock> locks) {
+        Lists.reverse(locks).forEach(Lock::unlock);
+    }
+
+    /**
+     * Registers a new stack without waiting its installation.
      *
-     * @param stackuuid the stack uuid to unregister
+     * @param stack the stack data to register
+     * @return the future completed when the stack is installed or failed
      */
     @Override
-    public void unregisterStack(Uuid stackuuid) {
-        throw new NotImplementedException("unregisterStack not implemented");
+    public CompletableFuture<Void> registerStackAsync(DStreaMonStack stack) {
+        try {
+            registerStack(stack);
+        } catch (DStreaMonException e) {
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        return awaitConvergence(stack.stackUuid());
+    }
+
+    private Map<String, LocalPort> getLocalPorts(Collection<DStreaMonStack> stacks) {
+        Set<Uuid> portUuids = Sets.newHashSet();
+        stacks.forEach(stack -> {
+            portUuids.add(stack.userPortUuid());
+            portUuids.add(stack.probePortUuid());
+        });
+        Map<String, LocalPort> localPorts = Maps.newConcurrentMap();
+        Set<String> ifaceIds = Sets.newHashSet();
+        for (Uuid portUuid : portUuids) {
+            LocalPort port = localPortCache.get(portUuid);
+            if (port != null) {
+                localPorts.put(NeutronPortNames.portKey(portUuid), port);
+            } else {
+                ifaceIds.add(portUuid.value());
+            }
+        }
+        if (ifaceIds.isEmpty()) {
+            return localPorts;
+        }
+
+        /**
+         * The ports not yet cached are searched on every compute node in parallel.
+         */
+        List<CompletableFuture<Void>> lookups = Lists.newArrayList();
+        for (ComputeNode node : computeNodes()) {
+            lookups.add(CompletableFuture.runAsync(() -> {
+                List<PortNumber> ports = lookupLocalPorts(node, ifaceIds);
+                if (ports == null) {
+                    return;
+                }
+                ports.forEach(port -> {
+                    LocalPort localPort = new LocalPort(node.deviceId(), port);
+                    localPortCache.put(localPort);
+                    NeutronPortNames.portKey(port.name())
+                            .ifPresent(key -> localPorts.put(key, localPort));
+                });
+            }, deviceExecutor).exceptionally(e -> {
+                log.warn("Impossible to retrieve the local ports of {}", node.deviceId(), e);
+                return null;
+            }));
+        }
+        CompletableFuture.allOf(lookups.toArray(new CompletableFuture<?>[lookups.size()])).join();
+        return localPorts;
     }
 
     /**
-     * Returns the uuids of the registered stacks.
+     * Returns the compute nodes currently known, that is the available
+     * OVSDB devices (e.g. configured through netcfg).
      *
-     * @return the uuids set of the registered stacks.
+     * @return the compute nodes
      */
-    @Override
-    public Set<Uuid> getStacks() {
-        throw new NotImplementedException("getStacks not implemented");
+    private List<ComputeNode> computeNodes() {
+        List<ComputeNode> nodes = Lists.newArrayList();
+        for (Device device : deviceService.getAvailableDevices()) {
+            if (isOvsdbDevice(device.id())) {
+                nodes.add(computeNode(device.id()));
+            }
+        }
+        return nodes;
     }
 
     /**
-     * Retrieves the data of a single stack.
+     * Returns the handler of a compute node, building it on first use.
      *
-     * @param stackuuid the uuid of the stack to retrieve
-     * @return the stack data
+     * @param deviceId the OVSDB device of the node
+     * @return the compute node
+     */
+    private ComputeNode computeNode(DeviceId deviceId) {
+        return computeNodes.computeIfAbsent(
+                deviceId, id -> new ComputeNode(id, driverService.createHandler(id)));
+    }
+
+    private static boolean isOvsdbDevice(DeviceId deviceId) {
+        return OVSDB_SCHEME.equals(deviceId.uri().getScheme());
+    }
+
+    /**
+     * Returns the OVSDB device managing the same switch of an OpenFlow device,
+     * relying on the address of its control channel.
+     *
+     * @param device the OpenFlow device
+     * @return the OVSDB device id, if the channel address is known
+     */
+    private static Optional<DeviceId> ovsdbDeviceId(Device device) {
+        String channelId = device.annotations().value(AnnotationKeys.CHANNEL_ID);
+        if (channelId == null || channelId.lastIndexOf(':') < 0) {
+            return Optional.empty();
+        }
+        String address = channelId.substring(0, channelId.lastIndexOf(':'));
+        return Optional.of(DeviceId.deviceId(OVSDB_SCHEME + ":" + address));
+    }
+
+    private boolean hasMgmtIface(Uuid probeUuid) {
+        try {
+            dStreaMonStore.getMgmtIface(probeUuid);
+            return true;
+        } catch (DStreaMonException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Uregisters a stack created previously through OpenStack Heat.
+     * The stack is marked as withdrawing, the port mirroring and the
+     * mgmt interface are deleted in background.
+     *
+     * @param stackuuid the stack uuid to unregister
      */
     @Override
-    public DStreaMonStack getStack(Uuid stackuuid) {
-        throw new NotImplementedException("getStack not implemented");
+    public void unregisterStack(Uuid stackuuid) throws DStreaMonException {
+
+        String error = unregisterStacks(Collections.singletonList(stackuuid)).get(stackuuid);
+        if (error != null) {
+            throw new DStreaMonException(error);
+        }
+
     }
 
     /**
-     * Returns the uuids of the probes.
+     * Unregisters a batch of stacks, marking them as withdrawing.
+     * Unknown stacks are ignored, so that an unregistration can be retried.
+     * A stack whose state can not be written is reported as failed, the
+     * other stacks of the batch are still withdrawn.
      *
-     * @return the uuids set of the probes.
+     * @param stackuuids the stack uuids to unregister
+     * @return the error messages of the failed stacks, keyed by stack uuid
      */
     @Override
-    public Set<Uuid> getMgmtPorts() {
-        throw new NotImplementedException("getMgmtPorts not implemented");
+    public Map<Uuid, String> unregisterStacks(List<Uuid> stackuuids) {
+
+        Map<Uuid, String> failures = Maps.newHashMap();
+        Timer.Context context = startTimer(unregisterTimer);
+        List<Lock> locks = lockStacks(stackuuids);
+        try {
+            for (Uuid stackUuid : stackuuids) {
+                try {
+                    if (dStreaMonStore.getStack(stackUuid) != null) {
+                        transitStackState(stackUuid, state -> DStreaMonStackState.withdrawing());
+                    }
+                } catch (StorageException e) {
+                    failures.put(stackUuid, String.format(ERROR_STATE, stackUuid, e.getMessage()));
+                }
+            }
+        } finally {
+            unlockStacks(locks);
+            stopTimer(context);
+        }
+        return failures;
+
     }
 
     /**
-     * Retrieves the name of the mgmt port.
+     * Tears down a batch of stacks with a grouped pass on each compute
+     * node, then removes them from the store. The stacks are withdrawing,
+     * thus left out of the rewritten mirrors.
+     */
+    private Map<Uuid, String> withdrawStacks(List<Uuid> stackuuids) {
+
+        Map<Uuid, String> failures = Maps.newConcurrentMap();
+        List<DStreaMonStack> stacks = Lists.newArrayList();
+        for (Uuid stackUuid : stackuuids) {
+            DStreaMonStack stack = dStreaMonStore.getStack(stackUuid);
+            if (stack != null) {
+                stacks.add(stack);
+            }
+        }
+        if (stacks.isEmpty()) {
+            return failures;
+        }
+        Timer.Context context = startTimer(withdrawTimer);
+        try {
+            withdrawStacks(stacks, failures);
+        } finally {
+            stopTimer(context);
+        }
+        return failures;
+
+    }
+
+    private void withdrawStacks(List<DStreaMonStack> stacks, Map<Uuid, String> failures) {
+
+        /**
+         * The stacks whose ports are gone can not be located: their group
+         * mirrors are rewritten on every compute node while their mgmt ports
+         * are left to the reconciliation.
+         */
+        Map<String, LocalPort> localPorts = getLocalPorts(stacks);
+        Map<DeviceId, List<DStreaMonStack>> stacksByNode = Maps.newHashMap();
+        List<DStreaMonStack> unlocated = Lists.newArrayList();
+        for (DStreaMonStack stack : stacks) {
+            LocalPort port = localPorts.getOrDefault(NeutronPortNames.portKey(stack.probePortUuid()),
+                                                     localPorts.get(NeutronPortNames.portKey(stack.userPortUuid())));
+            if (port == null) {
+                unlocated.add(stack);
+            } else {
+                stacksByNode.computeIfAbsent(port.deviceId(), k -> Lists.newArrayList()).add(stack);
+            }
+        }
+
+        List<CompletableFuture<Void>> teardowns = Lists.newArrayList();
+        stacksByNode.forEach((deviceId, nodeStacks) -> teardowns.add(
+                teardown(computeNode(deviceId), nodeStacks, localPorts, true, failures)));
+        if (!unlocated.isEmpty()) {
+            log.warn("Unable to locate the ports of stacks {}, mgmt ports are left to reconciliation", unlocated);
+            computeNodes().forEach(node -> teardowns.add(teardown(node, unlocated, localPorts, false, failures)));
+        }
+        CompletableFuture.allOf(teardowns.toArray(new CompletableFuture<?>[teardowns.size()])).join();
+
+        for (DStreaMonStack stack : stacks) {
+            if (!failures.containsKey(stack.stackUuid())) {
+                if (!isProbeInUse(stack.probeUuid())) {
+                    dStreaMonStore.removeMgmtIface(stack.probeUuid());
+                }
+                dStreaMonStore.removeStack(stack.stackUuid());
+            }
+        }
+
+    }
+
+    private CompletableFuture<Void> teardown(ComputeNode node, List<DStreaMonStack> stacks,
+                                             Map<String, LocalPort> localPorts,
+                                             boolean withMgmtPorts, Map<Uuid, String> failures) {
+        return CompletableFuture.runAsync(() -> uninstallStacks(node, stacks, localPorts, withMgmtPorts, failures),
+                                          deviceExecutor);
+    }
+
+    private void uninstallStacks(ComputeNode node, List<DStreaMonStack> stacks, Map<String, LocalPort> localPorts,
+                                 boolean withMgmtPorts, Map<Uuid, String> failures) {
+
+        /**
+         * The mirrors named after the stack uuid were created before the
+         * stacks were grouped by probe port.
+         */
+        Set<String> mirrors = mirrorNames(node);
+        groupStacks(stacks).forEach((group, groupStacks) -> {
+            if (!withMgmtPorts && group.backend() == DStreaMonMirrorSpec.Backend.OVSDB
+                    && !group.hasMirror(mirrors)) {
+                return;
+            }
+            if (!syncMirror(node, group, localPorts, mirrors)) {
+                groupStacks.forEach(stack -> failures.put(
+                        stack.stackUuid(), String.format(ERROR_TEARDOWN, stack.stackUuid(), group.mirrorName())));
+            }
+        });
+        for (DStreaMonStack stack : stacks) {
+            if (!mirrors.contains(stack.stackUuid().value())) {
+                continue;
+            }
+            try {
+                node.mirroringConfig().deleteMirroring(MirroringName.mirroringName(stack.stackUuid().value()));
+            } catch (RuntimeException e) {
+                failures.put(stack.stackUuid(), String.format(ERROR_TEARDOWN, stack.stackUuid(), e.getMessage()));
+            }
+        }
+
+        /**
+         * A mgmt port is shared by the stacks of the probe,
+         * it is deleted with the last of them.
+         */
+        if (!withMgmtPorts) {
+            return;
+        }
+        Set<Uuid> probes = Sets.newHashSet();
+        for (DStreaMonStack stack : stacks) {
+            if (!probes.add(stack.probeUuid()) || isProbeInUse(stack.probeUuid())) {
+                continue;
+            }
+            try {
+                deletePort(node, dStreaMonStore.getMgmtIface(stack.probeUuid()));
+            } catch (DStreaMonException e) {
+                log.debug("No mgmt port to remove for stack {}", stack.stackUuid());
+            } catch (RuntimeException e) {
+                failures.put(stack.stackUuid(), String.format(ERROR_TEARDOWN, stack.stackUuid(), e.getMessage()));
+            }
+        }
+
+    }
+
+    /**
+     * Unregisters a stack without waiting its removal.
      *
-     * @param probeUuid the uuid of the associated probe
-     * @return the name of the mgmt port
+     * @param stackuuid the stack uuid to unregister
+     * @return the future completed when the stack is removed or failed
      */
     @Override
-    public String getMgmtPort(Uuid probeUuid) throws DStreaMonException {
-        return dStreaMonStore.getMgmtIface(probeUuid);
+    public CompletableFuture<Void> unregisterStackAsync(Uuid stackuuid) {
+        try {
+            unregisterStack(stackuuid);
+        } catch (DStreaMonException e) {
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        return awaitConvergence(stackuuid);
+    }
+
+    /**
+     * Returns the desired state of a stack.
+     *
+     * @param stackuuid the stack uuid
+     * @return the stack state, null if the stack does not exist
+     */
+    @Override
+    public DStreaMonStackState getStackState(Uuid stackuuid) {
+        return dStreaMonStore.getStackState(stackuuid);
+    }
+
+    /**
+     * Body of the convergence workers: takes the stacks to converge
+     * in batches, waiting while there is nothing to do.
+     */
+    private void converge() {
+        List<Uuid> batch = Lists.newArrayList();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(convergenceQueue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            convergenceQueue.drainTo(batch, CONVERGENCE_BATCH - 1);
+            List<Uuid> stackUuids = Lists.newArrayList(Sets.newLinkedHashSet(batch));
+            batch.clear();
+
+            /**
+             * A stack queued before a failover, e.g. for a retry, may be
+             * owned now by another node, which converges it.
+             */
+            stackUuids.removeIf(stackUuid -> !isMine(stackUuid));
+            if (stackUuids.isEmpty()) {
+                continue;
+            }
+            stacksInFlight.addAndGet(stackUuids.size());
+            try {
+                convergeStacks(stackUuids);
+            } catch (RuntimeException e) {
+                log.warn("Impossible to converge stacks {}", stackUuids, e);
+                stackUuids.forEach(stackUuid -> retryExecutor.schedule(
+                        () -> convergenceQueue.offer(stackUuid), BACKOFF_BASE_MILLIS, TimeUnit.MILLISECONDS));
+            } finally {
+                stacksInFlight.addAndGet(-stackUuids.size());
+            }
+        }
+    }
+
+    private void convergeStacks(List<Uuid> stackUuids) {
+
+        List<Lock> locks = lockStacks(stackUuids);
+        try {
+            Map<Uuid, Versioned<DStreaMonStackState>> states = Maps.newHashMap();
+            List<DStreaMonStack> installing = Lists.newArrayList();
+            List<Uuid> withdrawing = Lists.newArrayList();
+            for (Uuid stackUuid : stackUuids) {
+                Versioned<DStreaMonStackState> state = dStreaMonStore.getVersionedStackState(stackUuid);
+                if (state == null || !state.value().isConverging()) {
+                    continue;
+                }
+                if (state.value().status() == DStreaMonStackState.Status.WITHDRAWING) {
+                    withdrawing.add(stackUuid);
+                } else {
+                    DStreaMonStack stack = dStreaMonStore.getStack(stackUuid);
+                    if (stack == null) {
+                        commitStackState(stackUuid, state, null);
+                        continue;
+                    }
+                    installing.add(stack);
+                }
+                states.put(stackUuid, state);
+            }
+
+            Map<Uuid, String> failures = Maps.newHashMap(installStacks(installing));
+            failures.putAll(withdrawStacks(withdrawing));
+
+            states.forEach((stackUuid, state) -> {
+                String error = failures.get(stackUuid);
+                if (error != null) {
+                    retry(stackUuid, state, error);
+                } else if (state.value().status() == DStreaMonStackState.Status.PENDING) {
+                    DStreaMonStackState installed = DStreaMonStackState.installed();
+                    if (commitStackState(stackUuid, state, installed)) {
+                        installedCounter.inc();
+                        completeConvergence(stackUuid, installed);
+                    }
+                } else if (commitStackState(stackUuid, state, null)) {
+                    removedCounter.inc();
+                    completeConvergence(stackUuid, null);
+                }
+            });
+        } finally {
+            unlockStacks(locks);
+        }
+
+    }
+
+    /**
+     * Applies a transition to the desired state of a stack, re-reading
+     * the state whenever another operation changed it in between.
+     * The transition returns null to remove the state.
+     */
+    private void transitStackState(Uuid stackUuid, UnaryOperator<DStreaMonStackState> transition) {
+        while (true) {
+            Versioned<DStreaMonStackState> state = dStreaMonStore.getVersionedStackState(stackUuid);
+            DStreaMonStackState next = transition.apply(state != null ? state.value() : null);
+            if (Objects.equals(next, state != null ? state.value() : null)
+                    || compareAndSetStackState(stackUuid, state, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Changes the desired state of a stack only if it is still the state
+     * read, the version being bumped by any change of any cluster node.
+     */
+    private boolean compareAndSetStackState(Uuid stackUuid, Versioned<DStreaMonStackState> state,
+                                            DStreaMonStackState next) {
+        if (state == null) {
+            return next == null || dStreaMonStore.putStackStateIfAbsent(stackUuid, next);
+        }
+        return next == null ? dStreaMonStore.removeStackState(stackUuid, state.version()) :
+                dStreaMonStore.replaceStackState(stackUuid, state.version(), next);
+    }
+
+    /**
+     * Records the outcome of a convergence. A stack whose state changed
+     * meanwhile is queued again, to converge to the current state, and
+     * the stale outcome is dropped.
+     */
+    private boolean commitStackState(Uuid stackUuid, Versioned<DStreaMonStackState> state,
+                                     DStreaMonStackState next) {
+        if (compareAndSetStackState(stackUuid, state, next)) {
+            return true;
+        }
+        log.debug("State of stack {} changed while converging to {}", stackUuid, next);
+        convergenceQueue.offer(stackUuid);
+        return false;
+    }
+
+    /**
+     * Retries a stack with an exponential backoff, until the retry
+     * budget is exhausted and the stack is failed.
+     */
+    private void retry(Uuid stackUuid, Versioned<DStreaMonStackState> state, String error) {
+        DStreaMonStackState next = state.value().retried(error, MAX_ATTEMPTS);
+        if (!commitStackState(stackUuid, state, next)) {
+            return;
+        }
+        if (next.status() == DStreaMonStackState.Status.FAILED) {
+            failedCounter.inc();
+            log.warn("Stack {} failed after {} attempts: {}", stackUuid, next.attempts(), error);
+            completeConvergence(stackUuid, next);
+            return;
+        }
+        retriedCounter.inc();
+        long delay = Math.min(BACKOFF_BASE_MILLIS << (next.attempts() - 1), BACKOFF_MAX_MILLIS);
+        log.debug("Retrying stack {} in {} ms: {}", stackUuid, delay, error);
+        try {
+            retryExecutor.schedule(() -> convergenceQueue.offer(stackUuid), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.debug("Retry of stack {} not scheduled, shutting down", stackUuid);
+        }
+    }
+
+    /**
+     * Queues the converging stacks owned by this node.
+     */
+    private void queueOwnedStacks() {
+        dStreaMonStore.getStackStates().forEach((stackUuid, state) -> {
+            if (state.isConverging() && isMine(stackUuid)) {
+                convergenceQueue.offer(stackUuid);
+            }
+        });
+    }
+
+    /**
+     * Tells whether this node converges a stack. A stack already removed
+     * from the store is attributed by its own uuid, it only needs its
+     * state to be cleaned up.
+     */
+    private boolean isMine(Uuid stackUuid) {
+        DStreaMonStack stack = dStreaMonStore.getStack(stackUuid);
+        return workPartitionService.isMine(stack != null ? stack.probeUuid() : stackUuid, PROBE_PARTITION);
+    }
+
+    private boolean isMine(DStreaMonStack stack) {
+        return workPartitionService.isMine(stack.probeUuid(), PROBE_PARTITION);
+    }
+
+    private boolean isMine(DeviceId deviceId) {
+        return workPartitionService.isMine(deviceId, NODE_PARTITION);
+    }
+
+    /**
+     * Hashes a key to a work partition. The hash is kept positive,
+     * the partition being its remainder.
+     */
+    private static long partitionHash(String key) {
+        return Hashing.murmur3_32().hashUnencodedChars(key).asInt() & Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns a future completed when the stack stops converging,
+     * whichever node of the cluster converges it.
+     */
+    private CompletableFuture<Void> awaitConvergence(Uuid stackUuid) {
+        CompletableFuture<Void> future = convergences.computeIfAbsent(stackUuid, k -> new CompletableFuture<>());
+        DStreaMonStackState state = dStreaMonStore.getStackState(stackUuid);
+        if (state == null || !state.isConverging()) {
+            completeConvergence(stackUuid, state);
+        }
+        return future;
+    }
+
+    private void completeConvergence(Uuid stackUuid, DStreaMonStackState state) {
+        CompletableFuture<Void> future = convergences.remove(stackUuid);
+        if (future == null) {
+            return;
+        }
+        if (state != null && state.status() == DStreaMonStackState.Status.FAILED) {
+            future.completeExceptionally(new DStreaMonException(state.error()));
+        } else {
+            future.complete(null);
+        }
+    }
+
+    /**
+     * Tracks an asynchronous operation, so that it can be polled later.
+     *
+     * @param future the future of the operation
+     * @return the tracked operation
+     */
+    @Override
+    public DStreaMonOperation trackOperation(CompletableFuture<Void> future) {
+        DStreaMonOperation operation = DStreaMonOperation.pending(Uuid.uuid(UUID.randomUUID().toString()),
+                                                                  clusterService.getLocalNode().id().toString());
+        dStreaMonStore.putOperation(operation);
+        future.whenComplete((result, error) -> completeOperation(operation, error));
+        return operation;
+    }
+
+    /**
+     * Records the outcome of an operation, to be read by any node.
+     */
+    private void completeOperation(DStreaMonOperation operation, Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        try {
+            dStreaMonStore.putOperation(error == null ? operation.completed() : operation.failed(error.getMessage()));
+        } catch (StorageException e) {
+            log.warn("Impossible to record the outcome of operation {}", operation.operationId(), e);
+        }
+    }
+
+    /**
+     * Retrieves a tracked asynchronous operation.
+     *
+     * @param operationId the operation id
+     * @return the tracked operation
+     * @throws DStreaMonException if the operation does not exist
+     */
+    @Override
+    public DStreaMonOperation getOperation(Uuid operationId) throws DStreaMonException {
+        DStreaMonOperation operation = dStreaMonStore.getOperation(operationId);
+        if (operation == null) {
+            throw new DStreaMonException(String.format(ERROR_OPERATION, operationId.value()));
+        }
+
+        /**
+         * An operation left pending by a node gone can not complete anymore:
+         * the convergence of its stacks goes on, their state tells the outcome.
+         */
+        if (operation.status() == DStreaMonOperation.Status.PENDING && !isActive(operation.nodeId())) {
+            return operation.failed(String.format(ERROR_OPERATION_NODE, operation.nodeId()));
+        }
+        return operation;
+    }
+
+    /**
+     * Removes the operations completed since longer than their time to live,
+     * and the oldest ones above the maximum. Each node purges the operations
+     * it runs and those of the nodes no longer active.
+     */
+    private void purgeOperations() {
+        try {
+            long expiry = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(OPERATION_TTL_MINUTES);
+            String localNode = clusterService.getLocalNode().id().toString();
+            List<DStreaMonOperation> completed = Lists.newArrayList();
+            for (DStreaMonOperation operation : dStreaMonStore.getOperations()) {
+                if (operation.nodeId().equals(localNode)) {
+                    if (operation.status() != DStreaMonOperation.Status.PENDING) {
+                        completed.add(operation);
+                    } else if (operation.updateTime() < activationTime) {
+                        dStreaMonStore.putOperation(operation.failed(
+                                String.format(ERROR_OPERATION_NODE, localNode)));
+                    }
+                } else if (operation.updateTime() < expiry && !isActive(operation.nodeId())) {
+                    dStreaMonStore.removeOperation(operation.operationId());
+                }
+            }
+            completed.sort(Comparator.comparingLong(DStreaMonOperation::updateTime).reversed());
+            for (int i = 0; i < completed.size(); i++) {
+                if (i >= MAX_OPERATIONS || completed.get(i).updateTime() < expiry) {
+                    dStreaMonStore.removeOperation(completed.get(i).operationId());
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Impossible to purge the operations", e);
+        }
+    }
+
+    private boolean isActive(String nodeId) {
+        ControllerNode.State state = clusterService.getState(NodeId.nodeId(nodeId));
+        return state != null && state.isActive();
+    }
+
+    /**
+     * Returns the uuids of the registered stacks.
+     *
+     * @return the uuids set of the registered stacks.
+     */
+    @Override
+    public Set<Uuid> getStacks() {
+        Set<Uuid> stackUuids = Sets.newHashSet();
+        dStreaMonStore.getStacks().forEach(stack -> stackUuids.add(stack.stackUuid()));
+        return stackUuids;
+    }
+
+    /**
+     * Returns the registered stacks ordered by uuid, starting after the
+     * given one. The stacks are read from the store while iterating.
+     *
+     * @param after the uuid preceding the first stack, null to start from the first one
+     * @return the ordered stacks
+     */
+    @Override
+    public Iterable<DStreaMonStack> getStacks(Uuid after) {
+        return dStreaMonStore.getStacks(after);
+    }
+
+    /**
+     * Retrieves the data of a single stack.
+     *
+     * @param stackuuid the uuid of the stack to retrieve
+     * @return the stack data, null if the stack does not exist
+     */
+    @Override
+    public DStreaMonStack getStack(Uuid stackuuid) {
+        return dStreaMonStore.getStack(stackuuid);
+    }
+
+    /**
+     * Retrieves the stacks monitored by the given probe.
+     *
+     * @param probeUuid the probe uuid
+     * @return the stacks of the probe
+     */
+    @Override
+    public Set<DStreaMonStack> getStacksByProbe(Uuid probeUuid) {
+        return dStreaMonStore.getStacksByProbe(probeUuid);
+    }
+
+    /**
+     * Retrieves the stacks of the given user vm.
+     *
+     * @param userUuid the user uuid
+     * @return the stacks of the user
+     */
+    @Override
+    public Set<DStreaMonStack> getStacksByUser(Uuid userUuid) {
+        return dStreaMonStore.getStacksByUser(userUuid);
+    }
+
+    /**
+     * Retrieves the stacks of the user vms having the given ip.
+     *
+     * @param userIp the user vm ip
+     * @return the stacks of the user ip
+     */
+    @Override
+    public Set<DStreaMonStack> getStacksByUserIp(Ip4Address userIp) {
+        return dStreaMonStore.getStacksByUserIp(userIp);
+    }
+
+    /**
+     * Retrieves the stacks of the user vms having the given mac.
+     *
+     * @param userMac the user vm mac
+     * @return the stacks of the user mac
+     */
+    @Override
+    public Set<DStreaMonStack> getStacksByUserMac(MacAddress userMac) {
+        return dStreaMonStore.getStacksByUserMac(userMac);
+    }
+
+    /**
+     * Retrieves the stacks using the given port, as user or probe port.
+     *
+     * @param portUuid the port uuid
+     * @return the stacks of the port
+     */
+    @Override
+    public Set<DStreaMonStack> getStacksByPort(Uuid portUuid) {
+        return dStreaMonStore.getStacksByPort(portUuid);
+    }
+
+    /**
+     * Returns the uuids of the probes.
+     *
+     * @return the uuids set of the probes.
+     */
+    @Override
+    public Set<Uuid> getMgmtPorts() {
+        return dStreaMonStore.getMgmtIfaces().keySet();
+    }
+
+    /**
+     * Retrieves the name of the mgmt port.
+     *
+     * @param probeUuid the uuid of the associated probe
+     * @return the name of the mgmt port
+     */
+    @Override
+    public String getMgmtPort(Uuid probeUuid) throws DStreaMonException {
+        return dStreaMonStore.getMgmtIface(probeUuid);
+    }
+
+    /**
+     * Reconciles in background the stored stacks with the mirrors and
+     * the mgmt ports configured on the compute nodes. The requests
+     * received while a run is queued are served by the same run.
+     *
+     * @return the future completed when the reconciliation ends
+     */
+    @Override
+    public CompletableFuture<Void> reconcile() {
+        synchronized (reconcileLock) {
+            if (queuedReconciliation != null) {
+                return queuedReconciliation;
+            }
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            queuedReconciliation = future;
+            try {
+                reconcileExecutor.execute(() -> {
+                    synchronized (reconcileLock) {
+                        queuedReconciliation = null;
+                    }
+                    Timer.Context context = startTimer(reconcileTimer);
+                    try {
+                        reconcileStacks();
+                        future.complete(null);
+                    } catch (RuntimeException e) {
+                        log.warn("Reconciliation failed", e);
+                        future.completeExceptionally(e);
+                    } finally {
+                        stopTimer(context);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                queuedReconciliation = null;
+                future.completeExceptionally(e);
+            }
+            return future;
+        }
+    }
+
+    /**
+     * Returns the progress of the reconciliation.
+     *
+     * @return the reconciliation counters
+     */
+    @Override
+    public DStreaMonReconciliation getReconciliation() {
+        return reconciliation;
+    }
+
+    private void reconcileStacks() {
+
+        Collection<DStreaMonStack> stacks = dStreaMonStore.getStacks();
+        Map<Uuid, String> mgmtIfaces = dStreaMonStore.getMgmtIfaces();
+        Map<Uuid, DStreaMonStackState> states = dStreaMonStore.getStackStates();
+        reconciliation.start(stacks.size());
+
+        /**
+         * Only the installed stacks owned by this node are reconciled,
+         * the others are being converged by the workers, failed or
+         * reconciled by another node.
+         */
+        Set<String> groupMirrors = Sets.newHashSet();
+        List<DStreaMonStack> installed = Lists.newArrayList();
+        for (DStreaMonStack stack : stacks) {
+            if (isMirrored(states.get(stack.stackUuid()))) {
+                groupMirrors.addAll(group(stack).mirrorNames());
+            }
+            if (isInstalled(states.get(stack.stackUuid())) && isMine(stack)) {
+                installed.add(stack);
+            } else {
+                reconciliation.stackChecked();
+            }
+        }
+
+        Map<String, LocalPort> localPorts = getLocalPorts(installed);
+        Map<DeviceId, List<DStreaMonStack>> stacksByNode = Maps.newHashMap();
+        for (DStreaMonStack stack : installed) {
+            LocalPort userPort = localPorts.get(NeutronPortNames.portKey(stack.userPortUuid()));
+            LocalPort probePort = localPorts.get(NeutronPortNames.portKey(stack.probePortUuid()));
+            if (userPort == null || probePort == null || !userPort.deviceId().equals(probePort.deviceId())) {
+                log.debug("Skipping reconciliation of stack {}, ports not found", stack.stackUuid());
+                reconciliation.stackChecked();
+            } else {
+                stacksByNode.computeIfAbsent(userPort.deviceId(), k -> Lists.newArrayList()).add(stack);
+            }
+        }
+
+        List<CompletableFuture<Void>> nodes = Lists.newArrayList();
+        for (ComputeNode node : computeNodes()) {
+            List<DStreaMonStack> nodeStacks = stacksByNode.getOrDefault(node.deviceId(), Collections.emptyList());
+            nodes.add(CompletableFuture.runAsync(
+                    () -> reconcileNode(node, nodeStacks, groupMirrors, mgmtIfaces, localPorts), deviceExecutor)
+                    .exceptionally(e -> {
+                        log.warn("Impossible to reconcile {}", node.deviceId(), e);
+                        reconciliation.failed();
+                        return null;
+                    }));
+        }
+        CompletableFuture.allOf(nodes.toArray(new CompletableFuture<?>[nodes.size()])).join();
+
+        reconciliation.complete();
+        log.info("Reconciliation completed: {}", reconciliation);
+
+    }
+
+    /**
+     * Reconciles a compute node, reading its mirrors and its ports once.
+     */
+    private void reconcileNode(ComputeNode node, List<DStreaMonStack> stacks, Set<String> groupMirrors,
+                               Map<Uuid, String> mgmtIfaces, Map<String, LocalPort> localPorts) {
+
+        Set<String> mirrors = mirrorNames(node);
+        Set<String> ports = Sets.newHashSet();
+        node.bridgeConfig().getPorts().forEach(port -> ports.add(portName(port)));
+        Set<String> mgmtIfaceNames = Sets.newHashSet(mgmtIfaces.values());
+
+        /**
+         * A missing group mirror is written again from the store, while the
+         * flow rules are always rewritten, only their differences being
+         * applied. The stacks under registration or unregistration are
+         * skipped for the mgmt ports, the ongoing operation brings them to
+         * the desired state.
+         */
+        groupStacks(stacks).forEach((group, groupStacks) -> {
+            if (group.backend() == DStreaMonMirrorSpec.Backend.FLOW_RULES) {
+                if (!syncMirror(node, group, localPorts, mirrors)) {
+                    log.warn("Impossible to reconcile the rules of mirror {} on {}", group.mirrorName(),
+                             node.deviceId());
+                    reconciliation.failed();
+                }
+            } else if (!group.hasMirror(mirrors)) {
+                if (!syncMirror(node, group, localPorts, mirrors)) {
+                    log.warn("Impossible to reconcile mirror {} on {}", group.mirrorName(), node.deviceId());
+                    reconciliation.failed();
+                } else if (group.hasMirror(mirrors)) {
+                    reconciliation.mirrorCreated();
+                }
+            }
+            for (DStreaMonStack stack : groupStacks) {
+                String ifaceName = mgmtIfaces.get(stack.probeUuid());
+                if (ifaceName == null || !ports.contains(ifaceName)) {
+                    Lock lock = stackLocks.get(stack.stackUuid().value());
+                    if (lock.tryLock()) {
+                        try {
+                            if (dStreaMonStore.getStack(stack.stackUuid()) != null
+                                    && isInstalled(dStreaMonStore.getStackState(stack.stackUuid()))) {
+                                reconcileMgmtIface(node, stack, ports, ifaceName, mgmtIfaceNames);
+                            }
+                        } finally {
+                            lock.unlock();
+                        }
+                    }
+                }
+                reconciliation.stackChecked();
+            }
+        });
+
+        /**
+         * Only the group mirrors, the mirrors named after a stored stack,
+         * the rules of the application and the ports named as mgmt interfaces
+         * belong to D-StreaMon. They are deleted by the owner of the compute node.
+         */
+        if (!isMine(node.deviceId())) {
+            return;
+        }
+        Set<String> currentMirrors = null;
+        for (String mirror : Lists.newArrayList(mirrors)) {
+            try {
+                if (MirrorGroup.isMirrorName(mirror) && !groupMirrors.contains(mirror)) {
+
+                    /**
+                     * The store is checked again under the lock of the group,
+                     * a stack could have been registered after the snapshot.
+                     */
+                    Lock lock = mirrorLocks.get(mirror);
+                    lock.lock();
+                    try {
+                        if (currentMirrors == null) {
+                            currentMirrors = groupMirrors();
+                        }
+                        if (!currentMirrors.contains(mirror)) {
+                            node.mirroringConfig().deleteMirroring(MirroringName.mirroringName(mirror));
+                            reconciliation.mirrorRemoved();
+                        }
+                    } finally {
+                        lock.unlock();
+                    }
+                } else if (STACK_MIRROR_NAME.matcher(mirror).matches()) {
+
+                    /**
+                     * The mirrors of the single stacks, created before the
+                     * stacks were grouped, are replaced by the group mirrors.
+                     * They carry no marker: a mirror matching no stored stack
+                     * may belong to another tool or to an operator, and is left
+                     * alone. The stacks withdrawn meanwhile deleted their own.
+                     */
+                    DStreaMonStack stack = dStreaMonStore.getStack(Uuid.uuid(mirror));
+                    if (stack == null) {
+                        if (foreignMirrors.add(node.deviceId() + "/" + mirror)) {
+                            log.info("Mirror {} on {} matches no stack, left in place", mirror, node.deviceId());
+                        }
+                    } else if (group(stack).hasMirror(mirrors)) {
+                        node.mirroringConfig().deleteMirroring(MirroringName.mirroringName(mirror));
+                        reconciliation.mirrorRemoved();
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.warn("Impossible to delete orphan mirror {} on {}", mirror, node.deviceId(), e);
+                reconciliation.failed();
+            }
+        }
+        try {
+            int removed = flowRuleBackend.removeOrphans(node, groupMirrors, this::groupMirrors);
+            for (int i = 0; i < removed; i++) {
+                reconciliation.mirrorRemoved();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Impossible to delete the orphan mirror rules on {}", node.deviceId(), e);
+            reconciliation.failed();
+        }
+        for (String port : ports) {
+            if (!MgmtIfaceNames.isIfaceName(port) || mgmtIfaceNames.contains(port)
+                    || dStreaMonStore.getMgmtIfaces().containsValue(port)) {
+                continue;
+            }
+            try {
+                deletePort(node, port);
+                reconciliation.mgmtPortRemoved();
+            } catch (RuntimeException e) {
+                log.warn("Impossible to delete orphan mgmt port {} on {}", port, node.deviceId(), e);
+                reconciliation.failed();
+            }
+        }
+
+    }
+
+    /**
+     * Returns the names of the mirrors of the groups having stacks to be mirrored.
+     */
+    private Set<String> groupMirrors() {
+        Map<Uuid, DStreaMonStackState> states = dStreaMonStore.getStackStates();
+        Set<String> mirrors = Sets.newHashSet();
+        for (DStreaMonStack stack : dStreaMonStore.getStacks()) {
+            if (isMirrored(states.get(stack.stackUuid()))) {
+                mirrors.addAll(group(stack).mirrorNames());
+            }
+        }
+        return mirrors;
+    }
+
+    /**
+     * Returns the names of the mirrors of the groups mirrored by flow
+     * rules, read by the backend to find the groups sharing a cookie.
+     */
+    private Set<String> flowRuleGroupMirrors() {
+        Map<Uuid, DStreaMonStackState> states = dStreaMonStore.getStackStates();
+        Set<String> mirrors = Sets.newHashSet();
+        for (DStreaMonStack stack : dStreaMonStore.getStacks()) {
+            MirrorGroup group = group(stack);
+            if (group.backend() == DStreaMonMirrorSpec.Backend.FLOW_RULES
+                    && isMirrored(states.get(stack.stackUuid()))) {
+                mirrors.add(group.mirrorName());
+            }
+        }
+        return mirrors;
+    }
+
+    /**
+     * The stacks stored before the desired states were introduced have
+     * no state and are considered installed.
+     */
+    private static boolean isInstalled(DStreaMonStackState state) {
+        return state == null || state.status() == DStreaMonStackState.Status.INSTALLED;
+    }
+
+    private void reconcileMgmtIface(ComputeNode node, DStreaMonStack stack, Set<String> ports,
+                                    String ifaceName, Set<String> mgmtIfaceNames) {
+
+        try {
+            if (ifaceName == null) {
+                ifaceName = MgmtIfaceNames.ifaceName(stack.probeUuid());
+                if (mgmtIfaceNames.add(ifaceName)) {
+                    dStreaMonStore.putMgmtIface(stack.probeUuid(), ifaceName);
+                }
+            }
+            if (!ports.contains(ifaceName)) {
+                addPort(node, ifaceName);
+                reconciliation.mgmtPortCreated();
+                ports.add(ifaceName);
+            }
+        } catch (DStreaMonException | RuntimeException e) {
+            log.warn(ERROR_RECONCILE, stack.stackUuid(), node.deviceId(), e);
+            reconciliation.failed();
+        }
+
+    }
+
+    private static Set<String> mirrorNames(ComputeNode node) {
+        Set<String> mirrors = Sets.newHashSet();
+        node.mirroringConfig().getMirroringStatistics()
+                .forEach(statistics -> mirrors.add(statistics.name().name()));
+        return mirrors;
+    }
+
+    private static String portName(PortDescription port) {
+        String portName = port.annotations().value(AnnotationKeys.PORT_NAME);
+        return portName != null ? portName : port.portNumber().name();
+    }
+
+    /**
+     * Returns the traffic statistics of a stack, asking them to the node
+     * programming it when it is not this one.
+     *
+     * @param stackuuid the stack uuid
+     * @return the stack statistics, null if the stack is not registered or not sampled
+     * @throws DStreaMonException if the node programming the stack cannot be reached
+     */
+    @Override
+    public DStreaMonStackStats getStackStats(Uuid stackuuid) throws DStreaMonException {
+        DStreaMonStack stack = dStreaMonStore.getStack(stackuuid);
+        if (stack == null) {
+            return null;
+        }
+        NodeId owner = workPartitionService.getLeader(stack.probeUuid(), PROBE_PARTITION);
+        if (owner == null) {
+            throw new DStreaMonException(String.format(ERROR_OWNER, stackuuid));
+        }
+        if (owner.equals(clusterService.getLocalNode().id())) {
+            return localStackStats(stackuuid);
+        }
+        CompletableFuture<DStreaMonStackStats> reply = clusterCommunicator.sendAndReceive(
+                stackuuid.value(), STACK_STATS_SUBJECT, MESSAGES::encode, MESSAGES::decode, owner);
+        return awaitReply(reply, System.currentTimeMillis() + REMOTE_TIMEOUT_MILLIS,
+                          String.format(ERROR_REMOTE_STATS, stackuuid, owner));
+    }
+
+    /**
+     * Waits the reply of another node until the given deadline.
+     */
+    private static <T> T awaitReply(CompletableFuture<T> reply, long deadline, String error)
+            throws DStreaMonException {
+        try {
+            return reply.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DStreaMonException(error + ": " + e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new DStreaMonException(error + ": " + e);
+        }
+    }
+
+    /**
+     * Returns the traffic statistics sampled for a stack by this node.
+     */
+    private DStreaMonStackStats localStackStats(Uuid stackuuid) {
+        StackStatsHistory history = stackStats.get(stackuuid);
+        return history != null ? history.snapshot(stackuuid) : null;
+    }
+
+    /**
+     * Returns the measurements of a registered probe received by this
+     * node, where its samples are recorded. The measurements of a probe
+     * are dropped by all the nodes when its mgmt interface is removed.
+     *
+     * @param probeUuid the probe uuid
+     * @return the probe telemetry, null if the probe is not registered
+     */
+    @Override
+    public DStreaMonTelemetry getLocalProbeTelemetry(Uuid probeUuid) {
+        DStreaMonTelemetry telemetry = telemetries.get(probeUuid);
+        if (telemetry != null || !hasMgmtIface(probeUuid)) {
+            return telemetry;
+        }
+        telemetry = telemetries.computeIfAbsent(probeUuid, DStreaMonTelemetry::new);
+
+        /**
+         * The mgmt interface removed while the telemetry was created
+         * may have been notified before it was added.
+         */
+        if (!hasMgmtIface(probeUuid)) {
+            telemetries.remove(probeUuid, telemetry);
+            return null;
+        }
+        return telemetry;
+    }
+
+    /**
+     * Returns the aggregates of the measurements of a registered probe,
+     * merging the windows kept by all the active nodes of the cluster.
+     *
+     * @param probeUuid the probe uuid
+     * @return the aggregates of the metrics having samples, ordered by name,
+     *         null if the probe is not registered
+     * @throws DStreaMonException if an active node cannot be reached
+     */
+    @Override
+    public SortedMap<String, DStreaMonTelemetryAggregate> getProbeTelemetry(Uuid probeUuid)
+            throws DStreaMonException {
+        if (!hasMgmtIface(probeUuid)) {
+            return null;
+        }
+
+        /**
+         * The nodes are queried in parallel, with a single deadline.
+         */
+        NodeId localNode = clusterService.getLocalNode().id();
+        Map<NodeId, CompletableFuture<Map<String, DStreaMonTelemetrySummary>>> replies = Maps.newHashMap();
+        for (ControllerNode node : clusterService.getNodes()) {
+            if (!node.id().equals(localNode) && clusterService.getState(node.id()).isActive()) {
+                replies.put(node.id(), clusterCommunicator.sendAndReceive(
+                        probeUuid.value(), PROBE_TELEMETRY_SUBJECT, MESSAGES::encode, MESSAGES::decode, node.id()));
+            }
+        }
+        Map<String, DStreaMonTelemetrySummary> summaries = Maps.newHashMap(localTelemetry(probeUuid));
+        long deadline = System.currentTimeMillis() + REMOTE_TIMEOUT_MILLIS;
+        for (Map.Entry<NodeId, CompletableFuture<Map<String, DStreaMonTelemetrySummary>>> reply
+                : replies.entrySet()) {
+            awaitReply(reply.getValue(), deadline, String.format(ERROR_REMOTE_TELEMETRY, probeUuid, reply.getKey()))
+                    .forEach((metric, summary) -> summaries.merge(metric, summary, DStreaMonTelemetrySummary::merge));
+        }
+        SortedMap<String, DStreaMonTelemetryAggregate> aggregates = Maps.newTreeMap();
+        summaries.forEach((metric, summary) -> aggregates.put(metric, summary.aggregate()));
+        return aggregates;
+    }
+
+    /**
+     * Returns the windows of the measurements of a probe received by this node.
+     */
+    private Map<String, DStreaMonTelemetrySummary> localTelemetry(Uuid probeUuid) {
+        DStreaMonTelemetry telemetry = telemetries.get(probeUuid);
+        return telemetry != null ? telemetry.summaries(System.currentTimeMillis()) : Maps.newHashMap();
+    }
+
+    /**
+     * (Re)schedules the collection of the traffic statistics with the
+     * configured interval. The collections never overlap, a slow one
+     * delays the next.
+     */
+    private synchronized void scheduleStatistics() {
+        if (statsTask != null) {
+            statsTask.cancel(false);
+            statsTask = null;
+        }
+        if (statsPollInterval > 0 && statsExecutor != null) {
+            statsTask = statsExecutor.scheduleWithFixedDelay(this::collectStatistics, statsPollInterval,
+                                                             statsPollInterval, TimeUnit.SECONDS);
+        } else {
+            stackStats.clear();
+        }
+    }
+
+    /**
+     * Samples the counters of the installed stacks owned by this node,
+     * the ones programming their mirrors, with a single pass on each
+     * compute node.
+     */
+    private void collectStatistics() {
+
+        Timer.Context context = startTimer(statsTimer);
+        try {
+            Map<Uuid, DStreaMonStackState> states = dStreaMonStore.getStackStates();
+            List<DStreaMonStack> stacks = Lists.newArrayList();
+            for (DStreaMonStack stack : dStreaMonStore.getStacks()) {
+                if (isInstalled(states.get(stack.stackUuid())) && isMine(stack)) {
+                    stacks.add(stack);
+                }
+            }
+            Set<Uuid> stackUuids = Sets.newHashSet(Lists.transform(stacks, DStreaMonStack::stackUuid));
+            stackStats.keySet().retainAll(stackUuids);
+            if (stacks.isEmpty()) {
+                return;
+            }
+
+            Map<String, LocalPort> localPorts = getLocalPorts(stacks);
+            Map<DeviceId, List<DStreaMonStack>> stacksByNode = Maps.newHashMap();
+            for (DStreaMonStack stack : stacks) {
+                LocalPort probePort = localPorts.get(NeutronPortNames.portKey(stack.probePortUuid()));
+                if (probePort != null) {
+                    stacksByNode.computeIfAbsent(probePort.deviceId(), k -> Lists.newArrayList()).add(stack);
+                }
+            }
+            Map<Uuid, String> mgmtIfaces = dStreaMonStore.getMgmtIfaces();
+            long now = System.currentTimeMillis();
+            List<CompletableFuture<Void>> collections = Lists.newArrayList();
+            stacksByNode.forEach((deviceId, nodeStacks) -> collections.add(CompletableFuture.runAsync(
+                    () -> collectStatistics(computeNode(deviceId), nodeStacks, localPorts, mgmtIfaces, now),
+                    deviceExecutor).exceptionally(e -> {
+                        log.warn("Impossible to collect the statistics of {}", deviceId, e);
+                        return null;
+                    })));
+            CompletableFuture.allOf(collections.toArray(new CompletableFuture<?>[collections.size()])).join();
+        } catch (RuntimeException e) {
+
+            /**
+             * An exception would cancel the next collections.
+             */
+            log.warn("Impossible to collect the statistics of the stacks", e);
+        } finally {
+            stopTimer(context);
+        }
+
+    }
+
+    /**
+     * Samples the stacks of a compute node: the mirrors, or the mirror
+     * flow rules, and the ports of the integration and mgmt bridges are
+     * read once for all the stacks.
+     */
+    private void collectStatistics(ComputeNode node, List<DStreaMonStack> stacks, Map<String, LocalPort> localPorts,
+                                   Map<Uuid, String> mgmtIfaces, long now) {
+
+        Map<DStreaMonStack, MirrorGroup> groups = Maps.newHashMap();
+        Set<String> flowRuleMirrors = Sets.newHashSet();
+        boolean ovsdbMirrors = false;
+        for (DStreaMonStack stack : stacks) {
+            MirrorGroup group = group(stack);
+            groups.put(stack, group);
+            if (group.backend() == DStreaMonMirrorSpec.Backend.FLOW_RULES) {
+                flowRuleMirrors.add(group.mirrorName());
+            } else {
+                ovsdbMirrors = true;
+            }
+        }
+
+        Map<String, DeviceId> bridgeIds = node.bridgeIds();
+        Map<String, long[]> mirrorCounters = Maps.newHashMap();
+        if (ovsdbMirrors) {
+            for (MirroringStatistics statistics : node.mirroringConfig().getMirroringStatistics()) {
+                mirrorCounters.put(statistics.name().name(), new long[] {statistics.packtes(), statistics.bytes()});
+            }
+        }
+        DeviceId integrationBridgeId = bridgeIds.get(ComputeNode.BR_INT);
+        if (!flowRuleMirrors.isEmpty() && integrationBridgeId != null) {
+            mirrorCounters.putAll(flowRuleBackend.mirrorCounters(integrationBridgeId, flowRuleMirrors));
+        }
+        Map<Long, PortStatistics> probePorts = portStatistics(integrationBridgeId);
+        DeviceId mgmtBridgeId = bridgeIds.get(BR_MGMT);
+        Map<Long, PortStatistics> mgmtPorts = portStatistics(mgmtBridgeId);
+        Map<String, Long> mgmtPortNumbers = Maps.newHashMap();
+        if (mgmtBridgeId != null) {
+            for (Port port : deviceService.getPorts(mgmtBridgeId)) {
+                String portName = port.annotations().value(AnnotationKeys.PORT_NAME);
+                if (portName != null) {
+                    mgmtPortNumbers.put(portName, port.number().toLong());
+                }
+            }
+        }
+
+        /**
+         * The sample is copied by the history, a single array serves all the stacks.
+         */
+        long[] sample = new long[DStreaMonStackStats.Counter.values().length];
+        for (DStreaMonStack stack : stacks) {
+            Arrays.fill(sample, DStreaMonStackStats.NOT_AVAILABLE);
+            MirrorGroup group = groups.get(stack);
+            String mirrorName = group.mirrorName(mirrorCounters.keySet());
+            long[] mirror = mirrorCounters.get(mirrorName);
+            if (mirror != null) {
+                sample[DStreaMonStackStats.Counter.GROUP_MIRROR_PACKETS.ordinal()] = mirror[0];
+                sample[DStreaMonStackStats.Counter.GROUP_MIRROR_BYTES.ordinal()] = mirror[1];
+            }
+            LocalPort probePort = localPorts.get(NeutronPortNames.portKey(stack.probePortUuid()));
+            PortStatistics probe = probePort != null ? probePorts.get(probePort.port().toLong()) : null;
+            if (probe != null) {
+                sample[DStreaMonStackStats.Counter.PROBE_PACKETS.ordinal()] = probe.packetsSent();
+                sample[DStreaMonStackStats.Counter.PROBE_BYTES.ordinal()] = probe.bytesSent();
+                sample[DStreaMonStackStats.Counter.PROBE_DROPPED.ordinal()] = probe.packetsTxDropped();
+            }
+            Long mgmtPortNumber = mgmtPortNumbers.get(mgmtIfaces.get(stack.probeUuid()));
+            PortStatistics mgmt = mgmtPortNumber != null ? mgmtPorts.get(mgmtPortNumber) : null;
+            if (mgmt != null) {
+                sample[DStreaMonStackStats.Counter.MGMT_RX_PACKETS.ordinal()] = mgmt.packetsReceived();
+                sample[DStreaMonStackStats.Counter.MGMT_RX_BYTES.ordinal()] = mgmt.bytesReceived();
+                sample[DStreaMonStackStats.Counter.MGMT_TX_PACKETS.ordinal()] = mgmt.packetsSent();
+                sample[DStreaMonStackStats.Counter.MGMT_TX_BYTES.ordinal()] = mgmt.bytesSent();
+            }
+            stackStats.computeIfAbsent(stack.stackUuid(), k -> new StackStatsHistory(STATS_SAMPLES))
+                    .add(now, mirrorName, sample);
+        }
+
+    }
+
+    private Map<Long, PortStatistics> portStatistics(DeviceId bridgeId) {
+        Map<Long, PortStatistics> ports = Maps.newHashMap();
+        if (bridgeId != null) {
+            deviceService.getPortStatistics(bridgeId).forEach(port -> ports.put((long) port.port(), port));
+        }
+        return ports;
+    }
+
+    /**
+     * Returns the hit and miss counters of the local port cache.
+     *
+     * @return the cache statistics
+     */
+    @Override
+    public CacheStats getLocalPortCacheStats() {
+        return localPortCache.stats();
+    }
+
+    /**
+     * Returns the metrics of the registrations and of the convergence.
+     *
+     * @return the D-StreaMon metrics
+     */
+    @Override
+    public DStreaMonMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Queues the teardown of the stacks of a removed port. The ports
+     * removed together, e.g. by a batch of deleted vms, are served by
+     * a single unregistration, run by a device worker: neither the
+     * device listener nor the retry thread wait for the store.
+     */
+    private void portRemoved(String portName) {
+        if (!portRemovalTeardown) {
+            return;
+        }
+        Optional<String> portKey = NeutronPortNames.portKey(portName);
+        if (!portKey.isPresent()) {
+            return;
+        }
+        removedPorts.add(portKey.get());
+        if (!queuedTeardown.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            retryExecutor.schedule(this::queueTearDown, TEARDOWN_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            queuedTeardown.set(false);
+        }
+    }
+
+    private void queueTearDown() {
+        try {
+            deviceExecutor.execute(this::tearDownRemovedPorts);
+        } catch (RejectedExecutionException e) {
+            queuedTeardown.set(false);
+        }
+    }
+
+    /**
+     * Unregisters the stacks owned by this node whose user or probe port
+     * has been removed. A port plugged again meanwhile, e.g. by a vm
+     * rebooted or migrated to another compute node, keeps its stacks.
+     * The stacks registered before the states were stored, without
+     * state, are installed ones.
+     */
+    private void tearDownRemovedPorts() {
+
+        queuedTeardown.set(false);
+        Set<Uuid> stackUuids = Sets.newLinkedHashSet();
+        for (Iterator<String> it = removedPorts.iterator(); it.hasNext();) {
+            String portKey = it.next();
+            it.remove();
+            if (localPortCache.contains(portKey)) {
+                continue;
+            }
+            for (DStreaMonStack stack : dStreaMonStore.getStacksByPortKey(portKey)) {
+                DStreaMonStackState state = dStreaMonStore.getStackState(stack.stackUuid());
+                if ((state == null || state.status() != DStreaMonStackState.Status.WITHDRAWING) && isMine(stack)) {
+                    stackUuids.add(stack.stackUuid());
+                }
+            }
+        }
+        if (stackUuids.isEmpty()) {
+            return;
+        }
+
+        log.info("Unregistering {} stacks of removed ports", stackUuids.size());
+        tornDownCounter.inc(stackUuids.size());
+        try {
+            unregisterStacks(Lists.newArrayList(stackUuids)).forEach(
+                    (stackUuid, error) -> log.warn("Impossible to unregister stack {}: {}", stackUuid, error));
+        } catch (RuntimeException e) {
+            log.warn("Impossible to unregister the stacks of removed ports", e);
+        }
+
+    }
+
+    /**
+     * Keeps the compute nodes and the local port cache up to date
+     * with the devices and the ports notified, and tears down the
+     * stacks of the removed ports.
+     */
+    private class InternalDeviceListener implements DeviceListener {
+
+        @Override
+        public void event(DeviceEvent event) {
+            Device device = event.subject();
+            if (isOvsdbDevice(device.id())) {
+                switch (event.type()) {
+                    case DEVICE_REMOVED:
+                        computeNodes.remove(device.id());
+                        break;
+                    case DEVICE_ADDED:
+                    case DEVICE_AVAILABILITY_CHANGED:
+                        if (deviceService.isAvailable(device.id())) {
+                            reconcile();
+                        }
+                        break;
+                    default:
+                        break;
+                }
+                return;
+            }
+            Port port = event.port();
+            if (port == null) {
+                return;
+            }
+            String portName = port.annotations().value(AnnotationKeys.PORT_NAME);
+            Optional<DeviceId> ovsdbDeviceId = ovsdbDeviceId(device);
+            if (portName == null || !ovsdbDeviceId.isPresent()) {
+                return;
+            }
+            switch (event.type()) {
+                case PORT_ADDED:
+                case PORT_UPDATED:
+                    localPortCache.put(new LocalPort(ovsdbDeviceId.get(),
+                                                     PortNumber.portNumber(port.number().toLong(), portName)));
+                    break;
+                case PORT_REMOVED:
+                    localPortCache.invalidate(ovsdbDeviceId.get(), portName);
+                    portRemoved(portName);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+    }
+
+    /**
+     * Queues the stacks owned by this node when their desired state
+     * changes, and completes the convergences awaited on this node
+     * when a stack, converged by any node, reaches its state.
+     */
+    private class InternalStackStateListener implements DStreaMonStore.StackStateListener {
+
+        @Override
+        public void stateChanged(Uuid stackUuid, DStreaMonStackState oldState, DStreaMonStackState newState) {
+            if (newState == null || !newState.isConverging()) {
+                completeConvergence(stackUuid, newState);
+                return;
+            }
+
+            /**
+             * A retried stack keeps its status and is queued again by the
+             * retry, after the backoff.
+             */
+            if ((oldState == null || oldState.status() != newState.status()) && isMine(stackUuid)) {
+                convergenceQueue.offer(stackUuid);
+            }
+        }
+
+    }
+
+    /**
+     * Drops the measurements received by this node from a probe whose
+     * mgmt interface is removed, by any node of the cluster.
+     */
+    private class InternalMgmtIfaceListener implements DStreaMonStore.MgmtIfaceListener {
+
+        @Override
+        public void ifaceChanged(Uuid probeUuid, String oldIface, String newIface) {
+            if (newIface == null) {
+                telemetries.remove(probeUuid);
+            }
+        }
+
+    }
+
+    /**
+     * Takes over the converging stacks of the partitions acquired by this
+     * node, e.g. after the failure of their previous owner, and reconciles
+     * the installed ones. A change of the cluster moves several partitions
+     * at once, their events are served by a single takeover.
+     */
+    private class InternalPartitionListener implements WorkPartitionEventListener {
+
+        @Override
+        public void event(WorkPartitionEvent event) {
+            if (event.type() != WorkPartitionEvent.Type.LEADER_CHANGED || !queuedTakeover.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                retryExecutor.schedule(() -> {
+                    queuedTakeover.set(false);
+                    queueOwnedStacks();
+                    reconcile();
+                }, TAKEOVER_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                queuedTakeover.set(false);
+            }
+        }
+
     }
 }
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.dstreamon;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableSortedMap;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Helper to register the D-StreaMon metrics with the ONOS metrics
+ * service: the timers of each phase of the registration and of the
+ * convergence, the in-flight gauges and the outcome counters. The
+ * metrics are named after the component, the feature and the phase,
+ * e.g. D-StreaMon.ovsdb.writeMirror.
+ */
+public final class DStreaMonMetrics {
+
+    /**
+     * Name of the metrics component of D-StreaMon.
+     */
+    public static final String COMPONENT = "D-StreaMon";
+
+    /**
+     * Feature of the REST requests, e.g. the JSON decoding.
+     */
+    public static final String REST = "rest";
+
+    /**
+     * Feature of the registrations and unregistrations.
+     */
+    public static final String REGISTRATION = "registration";
+
+    /**
+     * Feature of the store writes.
+     */
+    public static final String STORE = "store";
+
+    /**
+     * Feature of the convergence of the stacks.
+     */
+    public static final String CONVERGENCE = "convergence";
+
+    /**
+     * Feature of the OVSDB calls to the compute nodes.
+     */
+    public static final String OVSDB = "ovsdb";
+
+    /**
+     * Feature of the flow rules written on the compute nodes.
+     */
+    public static final String FLOW_RULES = "flowRules";
+
+    /**
+     * Feature of the reconciliation.
+     */
+    public static final String RECONCILIATION = "reconciliation";
+
+    /**
+     * Feature of the collection of the traffic statistics of the stacks.
+     */
+    public static final String STATISTICS = "statistics";
+
+    private static final String PREFIX = COMPONENT + ".";
+
+    private final MetricsService metricsService;
+    private final MetricsComponent component;
+
+    /**
+     * Creates a new org.onosproject.dstreamon.DStreaMonMetrics.
+     *
+     * @param metricsService the ONOS metrics service
+     */
+    public DStreaMonMetrics(MetricsService metricsService) {
+        this.metricsService = metricsService;
+        this.component = metricsService.registerComponent(COMPONENT);
+    }
+
+    /**
+     * Returns the timer of a phase, creating it on first use.
+     *
+     * @param feature the feature of the phase
+     * @param name the phase name
+     * @return the timer
+     */
+    public Timer timer(String feature, String name) {
+        return metricsService.createTimer(component, feature(feature), name);
+    }
+
+    /**
+     * Returns a counter, creating it on first use.
+     *
+     * @param feature the feature of the counter
+     * @param name the counter name
+     * @return the counter
+     */
+    public Counter counter(String feature, String name) {
+        return metricsService.createCounter(component, feature(feature), name);
+    }
+
+    /**
+     * Registers a gauge, replacing the one registered with the same name.
+     *
+     * @param feature the feature of the gauge
+     * @param name the gauge name
+     * @param gauge the gauge
+     * @param <T> the type of the measured value
+     */
+    public <T> void gauge(String feature, String name, Gauge<T> gauge) {
+        metricsService.removeMetric(component, feature(feature), name);
+        metricsService.registerMetric(component, feature(feature), name, gauge);
+    }
+
+    /**
+     * Removes a gauge, which would otherwise keep its owner alive.
+     *
+     * @param feature the feature of the gauge
+     * @param name the gauge name
+     */
+    public void removeGauge(String feature, String name) {
+        metricsService.removeMetric(component, feature(feature), name);
+    }
+
+    /**
+     * Returns the D-StreaMon metrics registered by every component of
+     * the application, sorted by name.
+     *
+     * @return the metrics, keyed by name without the component
+     */
+    public Map<String, Metric> metrics() {
+        ImmutableSortedMap.Builder<String, Metric> metrics = ImmutableSortedMap.naturalOrder();
+        metricsService.getMetrics().forEach((name, metric) -> {
+            if (name.startsWith(PREFIX)) {
+                metrics.put(name.substring(PREFIX.length()), metric);
+            }
+        });
+        return metrics.build();
+    }
+
+    /**
+     * Converts a duration measured by a timer to milliseconds.
+     *
+     * @param nanos the duration in nanoseconds
+     * @return the duration in milliseconds
+     */
+    public static double millis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private MetricsFeature feature(String feature) {
+        return component.registerFeature(feature);
+    }
+
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import org.onlab.packet.VlanId;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Helper to store the traffic mirrored for a stack: the direction
+ * of the user vm traffic, the selected VLANs, where the copies
+ * are sent, to the probe port or to an output VLAN, the backend
+ * configuring the mirroring and the L3/L4 fields restricting the
+ * mirrored traffic.
+ */
+public final class DStreaMonMirrorSpec {
+
+    /**
+     * Direction of the mirrored traffic, seen from the user vm.
+     */
+    public enum Direction {
+        /**
+         * Traffic received by the user vm.
+         */
+        INGRESS,
+        /**
+         * Traffic sent by the user vm.
+         */
+        EGRESS,
+        /**
+         * Traffic received and sent by the user vm.
+         */
+        BOTH
+    }
+
+    /**
+     * Backend configuring the mirroring on the compute nodes.
+     */
+    public enum Backend {
+        /**
+         * The backend configured for the application.
+         */
+        DEFAULT,
+        /**
+         * OVS mirrors, configured through OVSDB.
+         */
+        OVSDB,
+        /**
+         * OpenFlow rules copying the traffic to the probe port.
+         */
+        FLOW_RULES
+    }
+
+    /**
+     * The mirroring configured before the spec was introduced:
+     * the traffic sent by the user vm, to the probe port.
+     */
+    public static final DStreaMonMirrorSpec DEFAULT =
+            new DStreaMonMirrorSpec(Direction.EGRESS, ImmutableList.of(), null, false);
+
+    private final Direction direction;
+    private final List<VlanId> vlans;
+    private final VlanId outputVlan;
+    private final boolean selectAll;
+    private final Backend backend;
+    private final DStreaMonTrafficMatch match;
+
+    /**
+     * Creates a new org.onosproject.dstreamon.DStreaMonMirrorSpec using the default backend.
+     *
+     * @param direction the direction of the mirrored traffic
+     * @param vlans the VLANs to mirror, empty to mirror all of them
+     * @param outputVlan the VLAN receiving the copies, null to send them to the probe port
+     * @param selectAll true to mirror all the traffic of the bridge
+     */
+    public DStreaMonMirrorSpec(Direction direction, List<VlanId> vlans, VlanId outputVlan, boolean selectAll) {
+        this(direction, vlans, outputVlan, selectAll, Backend.DEFAULT);
+    }
+
+    /**
+     * Creates a new org.onosproject.dstreamon.DStreaMonMirrorSpec.
+     *
+     * @param direction the direction of the mirrored traffic
+     * @param vlans the VLANs to mirror, empty to mirror all of them
+     * @param outputVlan the VLAN receiving the copies, null to send them to the probe port
+     * @param selectAll true to mirror all the traffic of the bridge
+     * @param backend the backend configuring the mirroring
+     */
+    public DStreaMonMirrorSpec(Direction direction, List<VlanId> vlans, VlanId outputVlan, boolean selectAll,
+                               Backend backend) {
+        this(direction, vlans, outputVlan, selectAll, backend, DStreaMonTrafficMatch.ALL);
+    }
+
+    /**
+     * Creates a new org.onosproject.dstreamon.DStreaMonMirrorSpec restricted by L3/L4 fields.
+     *
+     * @param direction the direction of the mirrored traffic
+     * @param vlans the VLANs to mirror, empty to mirror all of them
+     * @param outputVlan the VLAN receiving the copies, null to send them to the probe port
+     * @param selectAll true to mirror all the traffic of the bridge
+     * @param backend the backend configuring the mirroring
+     * @param match the L3/L4 fields of the mirrored traffic
+     */
+    public DStreaMonMirrorSpec(Direction direction, List<VlanId> vlans, VlanId outputVlan, boolean selectAll,
+                               Backend backend, DStreaMonTrafficMatch match) {
+        this.direction = direction;
+        this.vlans = ImmutableList.copyOf(vlans);
+        this.outputVlan = outputVlan;
+        this.selectAll = selectAll;
+        this.backend = backend;
+        this.match = match;
+    }
+
+    /**
+     * Returns the direction of the mirrored traffic.
+     *
+     * @return the traffic direction
+     */
+    public Direction direction() {
+        return direction;
+    }
+
+    /**
+     * Returns the VLANs to mirror.
+     *
+     * @return the VLANs, empty if all of them are mirrored
+     */
+    public List<VlanId> vlans() {
+        return vlans;
+    }
+
+    /**
+     * Returns the VLAN receiving the copies.
+     *
+     * @return the output VLAN, null if the copies are sent to the probe port
+     */
+    public VlanId outputVlan() {
+        return outputVlan;
+    }
+
+    /**
+     * Tells whether all the traffic of the bridge is mirrored.
+     *
+     * @return true if all the traffic is mirrored
+     */
+    public boolean selectAll() {
+        return selectAll;
+    }
+
+    /**
+     * Returns the backend configuring the mirroring.
+     *
+     * @return the backend, DEFAULT for the one configured for the application
+     */
+    public Backend backend() {
+        return backend;
+    }
+
+    /**
+     * Returns the L3/L4 fields of the mirrored traffic.
+     *
+     * @return the traffic match, ALL if the traffic is not restricted
+     */
+    public DStreaMonTrafficMatch match() {
+        return match;
+    }
+
+    /**
+     * Returns the same spec configured by the given backend.
+     *
+     * @param backend the backend configuring the mirroring
+     * @return the spec with the given backend
+     */
+    public DStreaMonMirrorSpec withBackend(Backend backend) {
+        if (backend == this.backend) {
+            return this;
+        }
+        return new DStreaMonMirrorSpec(direction, vlans, outputVlan, selectAll, backend, match);
+    }
+
+    /**
+     * Tells whether the traffic sent by the user vm is mirrored.
+     *
+     * @return true for the egress traffic
+     */
+    public boolean mirrorsEgress() {
+        return direction != Direction.INGRESS;
+    }
+
+    /**
+     * Tells whether the traffic received by the user vm is mirrored.
+     *
+     * @return true for the ingress traffic
+     */
+    public boolean mirrorsIngress() {
+        return direction != Direction.EGRESS;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(direction, vlans, outputVlan, selectAll, backend, match);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof DStreaMonMirrorSpec) {
+            final DStreaMonMirrorSpec other = (DStreaMonMirrorSpec) obj;
+            return  Objects.equals(this.direction, other.direction) &&
+                    Objects.equals(this.vlans, other.vlans) &&
+                    Objects.equals(this.outputVlan, other.outputVlan) &&
+                    this.selectAll == other.selectAll &&
+                    Objects.equals(this.backend, other.backend) &&
+                    Objects.equals(this.match, other.match);
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("direction", direction)
+                .add("vlans", vlans)
+                .add("outputVlan", outputVlan)
+                .add("selectAll", selectAll)
+                .add("backend", backend)
+                .add("match", match)
+                .toString();
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon;
+
+import com.google.common.base.MoreObjects;
+import org.onosproject.ovsdb.rfc.notation.Uuid;
+
+import java.util.Objects;
+
+/**
+ * Helper to track an asynchronous operation requested
+ * to the DStreaMon service. The operation is stored in the cluster,
+ * so that it can be polled on any node, together with the node
+ * running it.
+ */
+public final class DStreaMonOperation {
+
+    /**
+     * Status of the operation.
+     */
+    public enum Status {
+        PENDING,
+        COMPLETED,
+        FAILED
+    }
+
+    private final String operationId;
+    private final String nodeId;
+    private final Status status;
+    private final String error;
+    private final long updateTime;
+
+    /**
+     * Creates a new org.onosproject.dstreamon.DStreaMonOperation.
+     *
+     * @param operationId the operation id
+     * @param nodeId the id of the cluster node running the operation
+     * @param status the operation status
+     * @param error the error message of a failed operation, null otherwise
+     * @param updateTime the time of the last change of the status, in milliseconds
+     */
+    public DStreaMonOperation(Uuid operationId, String nodeId, Status status, String error, long updateTime) {
+        this.operationId = operationId.value();
+        this.nodeId = nodeId;
+        this.status = status;
+        this.error = error;
+        this.updateTime = updateTime;
+    }
+
+    /**
+     * Returns a new operation, still running.
+     *
+     * @param operationId the operation id
+     * @param nodeId the id of the cluster node running the operation
+     * @return the pending operation
+     */
+    public static DStreaMonOperation pending(Uuid operationId, String nodeId) {
+        return new DStreaMonOperation(operationId, nodeId, Status.PENDING, null, System.currentTimeMillis());
+    }
+
+    /**
+     * Returns the same operation, completed.
+     *
+     * @return the completed operation
+     */
+    public DStreaMonOperation completed() {
+        return new DStreaMonOperation(operationId(), nodeId, Status.COMPLETED, null, System.currentTimeMillis());
+    }
+
+    /**
+     * Returns the same operation, failed.
+     *
+     * @param failure the error message
+     * @return the failed operation
+     */
+    public DStreaMonOperation failed(String failure) {
+        return new DStreaMonOperation(operationId(), nodeId, Status.FAILED, failure, System.currentTimeMillis());
+    }
+
+    /**
+     * Returns the id of the operation.
+     *
+     * @return the operation id
+     */
+    public Uuid operationId() {
+        return Uuid.uuid(operationId);
+    }
+
+    /**
+     * Returns the id of the cluster node running the operation.
+     *
+     * @return the node id
+     */
+    public String nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Returns the current status of the operation.
+     *
+     * @return the operation status
+     */
+    public Status status() {
+        return status;
+    }
+
+    /**
+     * Returns the error message of a failed operation.
+     *
+     * @return the error message, null if the operation did not fail
+     */
+    public String error() {
+        return error;
+    }
+
+    /**
+     * Returns the time of the last change of the status.
+     *
+     * @return the time in milliseconds
+     */
+    public long updateTime() {
+        return updateTime;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(operationId, nodeId, status, error, updateTime);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof DStreaMonOperation)) {
+            return false;
+        }
+        DStreaMonOperation that = (DStreaMonOperation) obj;
+        return Objects.equals(operationId, that.operationId) && Objects.equals(nodeId, that.nodeId) &&
+                status == that.status && Objects.equals(error, that.error) && updateTime == that.updateTime;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("operationId", operationId)
+                .add("nodeId", nodeId)
+                .add("status", status)
+                .add("error", error)
+                .toString();
+    }
+
+}
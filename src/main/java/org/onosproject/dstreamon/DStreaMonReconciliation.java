@@ -0,0 +1,193 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon;
+
+import com.google.common.base.MoreObjects;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of the reconciliation between the stored stacks and
+ * the mirrors and mgmt ports actually configured on the compute nodes.
+ */
+public final class DStreaMonReconciliation {
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong checkedStacks = new AtomicLong();
+    private final AtomicLong createdMirrors = new AtomicLong();
+    private final AtomicLong removedMirrors = new AtomicLong();
+    private final AtomicLong createdMgmtPorts = new AtomicLong();
+    private final AtomicLong removedMgmtPorts = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private volatile boolean running;
+    private volatile long totalStacks;
+    private volatile long lastStarted;
+    private volatile long lastCompleted;
+
+    void start(long stacks) {
+        runs.incrementAndGet();
+        checkedStacks.set(0);
+        totalStacks = stacks;
+        lastStarted = System.currentTimeMillis();
+        running = true;
+    }
+
+    void complete() {
+        lastCompleted = System.currentTimeMillis();
+        running = false;
+    }
+
+    void stackChecked() {
+        checkedStacks.incrementAndGet();
+    }
+
+    void mirrorCreated() {
+        createdMirrors.incrementAndGet();
+    }
+
+    void mirrorRemoved() {
+        removedMirrors.incrementAndGet();
+    }
+
+    void mgmtPortCreated() {
+        createdMgmtPorts.incrementAndGet();
+    }
+
+    void mgmtPortRemoved() {
+        removedMgmtPorts.incrementAndGet();
+    }
+
+    void failed() {
+        failures.incrementAndGet();
+    }
+
+    /**
+     * Returns whether a reconciliation is in progress.
+     *
+     * @return true if a reconciliation is running
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Returns the number of reconciliations started so far.
+     *
+     * @return the number of runs
+     */
+    public long runs() {
+        return runs.get();
+    }
+
+    /**
+     * Returns the number of stacks of the current, or last, run.
+     *
+     * @return the number of stacks to check
+     */
+    public long totalStacks() {
+        return totalStacks;
+    }
+
+    /**
+     * Returns the number of stacks already checked by the current, or last, run.
+     *
+     * @return the number of checked stacks
+     */
+    public long checkedStacks() {
+        return checkedStacks.get();
+    }
+
+    /**
+     * Returns the number of missing mirrors recreated.
+     *
+     * @return the number of created mirrors
+     */
+    public long createdMirrors() {
+        return createdMirrors.get();
+    }
+
+    /**
+     * Returns the number of orphan mirrors deleted.
+     *
+     * @return the number of removed mirrors
+     */
+    public long removedMirrors() {
+        return removedMirrors.get();
+    }
+
+    /**
+     * Returns the number of missing mgmt ports recreated.
+     *
+     * @return the number of created mgmt ports
+     */
+    public long createdMgmtPorts() {
+        return createdMgmtPorts.get();
+    }
+
+    /**
+     * Returns the number of orphan mgmt ports deleted.
+     *
+     * @return the number of removed mgmt ports
+     */
+    public long removedMgmtPorts() {
+        return removedMgmtPorts.get();
+    }
+
+    /**
+     * Returns the number of fixes that failed.
+     *
+     * @return the number of failures
+     */
+    public long failures() {
+        return failures.get();
+    }
+
+    /**
+     * Returns when the last run started.
+     *
+     * @return the start time in millis, 0 if never run
+     */
+    public long lastStarted() {
+        return lastStarted;
+    }
+
+    /**
+     * Returns when the last run completed.
+     *
+     * @return the completion time in millis, 0 if never completed
+     */
+    public long lastCompleted() {
+        return lastCompleted;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("running", running)
+                .add("runs", runs())
+                .add("checkedStacks", checkedStacks())
+                .add("totalStacks", totalStacks)
+                .add("createdMirrors", createdMirrors())
+                .add("removedMirrors", removedMirrors())
+                .add("createdMgmtPorts", createdMgmtPorts())
+                .add("removedMgmtPorts", removedMgmtPorts())
+                .add("failures", failures())
+                .toString();
+    }
+
+}
@@ -16,9 +16,16 @@
 
 package org.onosproject.dstreamon;
 
+import com.google.common.cache.CacheStats;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.MacAddress;
 import org.onosproject.ovsdb.rfc.notation.Uuid;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service that supports D-StreaMon use case providing the creation
@@ -29,20 +36,83 @@ public interface DStreaMonService {
 
     /**
      * Registers the data of a new stack created through OpenStack Heat.
-     * Realizes the port mirroring and creates the mgmt interface.
+     * The stack is recorded as pending, the port mirroring and the mgmt
+     * interface are created in background.
      *
      * @param stack the stack data to register
-     * @throws DStreaMonException if the registration fails
+     * @throws DStreaMonException if the stack can not be recorded
      */
     void registerStack(DStreaMonStack stack) throws DStreaMonException;
 
+    /**
+     * Registers a batch of stacks created through OpenStack Heat.
+     * The stacks are recorded as pending and installed in background.
+     *
+     * @param stacks the stacks data to register
+     * @return the error messages of the stacks not recorded, keyed by stack uuid
+     */
+    Map<Uuid, String> registerStacks(List<DStreaMonStack> stacks);
+
+    /**
+     * Registers a new stack, following its installation.
+     *
+     * @param stack the stack data to register
+     * @return the future completed when the stack is installed or failed
+     */
+    CompletableFuture<Void> registerStackAsync(DStreaMonStack stack);
+
     /**
      * Uregisters a stack created previously through OpenStack Heat.
-     * Deletes also the port mirroring and the mgmt interface.
+     * The stack is marked as withdrawing, the port mirroring and the
+     * mgmt interface are deleted in background.
      *
      * @param stackuuid the stack uuid to unregister
+     * @throws DStreaMonException if the unregistration fails
      */
-    void unregisterStack(Uuid stackuuid);
+    void unregisterStack(Uuid stackuuid) throws DStreaMonException;
+
+    /**
+     * Unregisters a batch of stacks, marking them as withdrawing.
+     * Unknown stacks are ignored, so that an unregistration can be retried.
+     *
+     * @param stackuuids the stack uuids to unregister
+     * @return the error messages of the failed stacks, keyed by stack uuid
+     */
+    Map<Uuid, String> unregisterStacks(List<Uuid> stackuuids);
+
+    /**
+     * Unregisters a stack, following its removal.
+     *
+     * @param stackuuid the stack uuid to unregister
+     * @return the future completed when the stack is removed or failed
+     */
+    CompletableFuture<Void> unregisterStackAsync(Uuid stackuuid);
+
+    /**
+     * Returns the desired state of a stack and the progress made to reach it.
+     *
+     * @param stackuuid the stack uuid
+     * @return the stack state, null if the stack does not exist
+     */
+    DStreaMonStackState getStackState(Uuid stackuuid);
+
+    /**
+     * Tracks an asynchronous operation, so that it can be polled later
+     * on any node of the cluster.
+     *
+     * @param future the future of the operation
+     * @return the tracked operation
+     */
+    DStreaMonOperation trackOperation(CompletableFuture<Void> future);
+
+    /**
+     * Retrieves an asynchronous operation tracked by any node of the cluster.
+     *
+     * @param operationId the operation id
+     * @return the tracked operation
+     * @throws DStreaMonException if the operation does not exist
+     */
+    DStreaMonOperation getOperation(Uuid operationId) throws DStreaMonException;
 
     /**
      * Returns the uuids of the registered stacks.
@@ -51,14 +121,64 @@ public interface DStreaMonService {
      */
     Set<Uuid> getStacks();
 
+    /**
+     * Returns the registered stacks ordered by uuid, starting after the
+     * given one. The stacks are read from the store while iterating,
+     * so that a listing can be paginated or streamed.
+     *
+     * @param after the uuid preceding the first stack, null to start from the first one
+     * @return the ordered stacks
+     */
+    Iterable<DStreaMonStack> getStacks(Uuid after);
+
     /**
      * Retrieves the data of a single stack.
      *
      * @param stackuuid the uuid of the stack to retrieve
-     * @return the stack data
+     * @return the stack data, null if the stack does not exist
      */
     DStreaMonStack getStack(Uuid stackuuid);
 
+    /**
+     * Retrieves the stacks monitored by the given probe.
+     *
+     * @param probeUuid the probe uuid
+     * @return the stacks of the probe
+     */
+    Set<DStreaMonStack> getStacksByProbe(Uuid probeUuid);
+
+    /**
+     * Retrieves the stacks of the given user vm.
+     *
+     * @param userUuid the user uuid
+     * @return the stacks of the user
+     */
+    Set<DStreaMonStack> getStacksByUser(Uuid userUuid);
+
+    /**
+     * Retrieves the stacks of the user vms having the given ip.
+     *
+     * @param userIp the user vm ip
+     * @return the stacks of the user ip
+     */
+    Set<DStreaMonStack> getStacksByUserIp(Ip4Address userIp);
+
+    /**
+     * Retrieves the stacks of the user vms having the given mac.
+     *
+     * @param userMac the user vm mac
+     * @return the stacks of the user mac
+     */
+    Set<DStreaMonStack> getStacksByUserMac(MacAddress userMac);
+
+    /**
+     * Retrieves the stacks using the given port, as user or probe port.
+     *
+     * @param portUuid the port uuid
+     * @return the stacks of the port
+     */
+    Set<DStreaMonStack> getStacksByPort(Uuid portUuid);
+
     /**
      * Returns the uuids of the probes.
      *
@@ -75,5 +195,68 @@ public interface DStreaMonService {
      */
     String getMgmtPort(Uuid probeUuid) throws DStreaMonException;
 
+    /**
+     * Reconciles in background the stored stacks with the mirrors and
+     * the mgmt ports configured on the compute nodes: the missing ones
+     * are recreated and the orphan mirrors are deleted.
+     *
+     * @return the future completed when the reconciliation ends
+     */
+    CompletableFuture<Void> reconcile();
+
+    /**
+     * Returns the progress of the reconciliation.
+     *
+     * @return the reconciliation counters
+     */
+    DStreaMonReconciliation getReconciliation();
+
+    /**
+     * Returns the hit and miss counters of the local port cache.
+     *
+     * @return the cache statistics
+     */
+    CacheStats getLocalPortCacheStats();
+
+    /**
+     * Returns the metrics of the registrations and of the convergence:
+     * the timers of each phase, the in-flight gauges and the outcome counters.
+     *
+     * @return the D-StreaMon metrics
+     */
+    DStreaMonMetrics getMetrics();
+
+    /**
+     * Returns the traffic statistics of a stack, sampled periodically by
+     * the node programming it: the counters of the mirror of its group,
+     * of the probe port and of the mgmt interface, and their rates. The
+     * statistics are asked to the node programming the stack.
+     *
+     * @param stackuuid the stack uuid
+     * @return the stack statistics, null if the stack is not registered or not sampled
+     * @throws DStreaMonException if the node programming the stack cannot be reached
+     */
+    DStreaMonStackStats getStackStats(Uuid stackuuid) throws DStreaMonException;
+
+    /**
+     * Returns the measurements of a registered probe received by this
+     * node, where its samples are recorded.
+     *
+     * @param probeUuid the probe uuid
+     * @return the probe telemetry, null if the probe is not registered
+     */
+    DStreaMonTelemetry getLocalProbeTelemetry(Uuid probeUuid);
+
+    /**
+     * Returns the aggregates of the measurements of a registered probe
+     * over the last minute, merging the measurements received by all
+     * the nodes of the cluster.
+     *
+     * @param probeUuid the probe uuid
+     * @return the aggregates of the metrics having samples, ordered by name,
+     *         null if the probe is not registered
+     * @throws DStreaMonException if a node of the cluster cannot be reached
+     */
+    SortedMap<String, DStreaMonTelemetryAggregate> getProbeTelemetry(Uuid probeUuid) throws DStreaMonException;
 
 }
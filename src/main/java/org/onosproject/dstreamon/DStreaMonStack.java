@@ -42,6 +42,8 @@ public final class DStreaMonStack {
     private Uuid userPortUuid;
     private Uuid probePortUuid;
 
+    private DStreaMonMirrorSpec mirrorSpec;
+
     /**
      * Creates a new org.onosproject.dstreamon.DStreaMonStack.
      *
@@ -60,6 +62,31 @@ public final class DStreaMonStack {
                           MacAddress userMac, MacAddress probeMac,
                           Uuid userPortUuid, Uuid probePortUuid) {
 
+        this(stackUuid, userUuid, probeUuid, userIp, probeIp, userMac, probeMac,
+             userPortUuid, probePortUuid, DStreaMonMirrorSpec.DEFAULT);
+
+    }
+
+    /**
+     * Creates a new org.onosproject.dstreamon.DStreaMonStack mirroring the traffic selected by the spec.
+     *
+     * @param stackUuid the stack uuid
+     * @param userUuid the user uuid
+     * @param probeUuid the probe uuid
+     * @param userIp the user vm ip
+     * @param probeIp the probe vm ip
+     * @param userMac the user vm mac
+     * @param probeMac the probe vm mac
+     * @param userPortUuid the user port uuid
+     * @param probePortUuid the probe port uuid
+     * @param mirrorSpec the mirrored traffic
+     */
+    public DStreaMonStack(Uuid stackUuid, Uuid userUuid, Uuid probeUuid,
+                          Ip4Address userIp, Ip4Address probeIp,
+                          MacAddress userMac, MacAddress probeMac,
+                          Uuid userPortUuid, Uuid probePortUuid,
+                          DStreaMonMirrorSpec mirrorSpec) {
+
         this.stackUuid = stackUuid;
         this.userUuid = userUuid;
         this.probeUuid = probeUuid;
@@ -73,6 +100,8 @@ public final class DStreaMonStack {
         this.userPortUuid = userPortUuid;
         this.probePortUuid = probePortUuid;
 
+        this.mirrorSpec = mirrorSpec;
+
     }
 
     /**
@@ -182,12 +211,21 @@ public final class DStreaMonStack {
         return probePortUuid;
     }
 
+    /**
+     * Returns the traffic mirrored for the stack.
+     *
+     * @return the mirror spec
+     */
+    public DStreaMonMirrorSpec mirrorSpec() {
+        return mirrorSpec;
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(stackUuid, userUuid, probeUuid,
                             userIp, probeIp,
                             userMac, probeMac,
-                            userPortUuid, probePortUuid);
+                            userPortUuid, probePortUuid, mirrorSpec);
     }
 
     @Override
@@ -205,7 +243,8 @@ public final class DStreaMonStack {
                     Objects.equals(this.userMac, other.userMac) &&
                     Objects.equals(this.probeMac, other.probeMac) &&
                     Objects.equals(this.userPortUuid, other.userPortUuid) &&
-                    Objects.equals(this.probePortUuid, other.probePortUuid);
+                    Objects.equals(this.probePortUuid, other.probePortUuid) &&
+                    Objects.equals(this.mirrorSpec, other.mirrorSpec);
         }
         return false;
     }
@@ -222,6 +261,7 @@ public final class DStreaMonStack {
                 .add("probeMac", probeMac)
                 .add("userPortUuid", userPortUuid)
                 .add("probePortUuid", probePortUuid)
+                .add("mirrorSpec", mirrorSpec)
                 .toString();
     }
 
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Local secondary index of the stacks, mapping an attribute
+ * of the stack to the uuids of the stacks having it.
+ */
+final class DStreaMonStackIndex {
+
+    private final Function<DStreaMonStack, Collection<String>> keys;
+    private final ConcurrentMap<String, Set<String>> index = Maps.newConcurrentMap();
+
+    /**
+     * Creates a new index.
+     *
+     * @param keys the function returning the index keys of a stack
+     */
+    DStreaMonStackIndex(Function<DStreaMonStack, Collection<String>> keys) {
+        this.keys = keys;
+    }
+
+    /**
+     * Indexes a stack.
+     *
+     * @param stack the stack to index
+     */
+    void add(DStreaMonStack stack) {
+        String stackUuid = stack.stackUuid().value();
+        for (String key : keys.apply(stack)) {
+            index.compute(key, (k, stacks) -> {
+                Set<String> updated = stacks == null ? Sets.newConcurrentHashSet() : stacks;
+                updated.add(stackUuid);
+                return updated;
+            });
+        }
+    }
+
+    /**
+     * Removes a stack from the index.
+     *
+     * @param stack the stack to remove
+     */
+    void remove(DStreaMonStack stack) {
+        String stackUuid = stack.stackUuid().value();
+        for (String key : keys.apply(stack)) {
+            index.computeIfPresent(key, (k, stacks) -> {
+                stacks.remove(stackUuid);
+                return stacks.isEmpty() ? null : stacks;
+            });
+        }
+    }
+
+    /**
+     * Returns the uuids of the stacks indexed under the given key.
+     *
+     * @param key the index key
+     * @return the stack uuids
+     */
+    Set<String> get(String key) {
+        Set<String> stacks = index.get(key);
+        return stacks == null ? ImmutableSet.of() : ImmutableSet.copyOf(stacks);
+    }
+
+    /**
+     * Empties the index.
+     */
+    void clear() {
+        index.clear();
+    }
+
+}
@@ -20,15 +20,39 @@ import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.Serializer;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
+import com.google.common.collect.Lists;
 import org.onlab.packet.Ip4Address;
+import org.onlab.packet.Ip4Prefix;
 import org.onlab.packet.MacAddress;
+import org.onlab.packet.VlanId;
 import org.onosproject.ovsdb.rfc.notation.Uuid;
 
+import java.util.List;
+import java.util.UUID;
+
 /**
- * Kryo serializer for SDX-L2 connection point.
+ * Kryo serializer for DStreaMon stack.
+ * The stack is written in a compact binary format: uuids as two longs,
+ * ipv4 addresses as an int and mac addresses as six bytes, without
+ * per-field class tags, followed by the mirror spec. The format starts
+ * with a marker and a version byte; stacks written with the previous
+ * formats, made of nine class-tagged fields, without mirror spec,
+ * without backend or without traffic match, can still be read.
  */
 public class DStreaMonStackSerializer extends Serializer<DStreaMonStack> {
 
+    /**
+     * The legacy format starts with the class tag of a non-null field,
+     * which is never zero.
+     */
+    private static final byte COMPACT_MARKER = 0;
+    private static final byte VERSION_NO_SPEC = 1;
+    private static final byte VERSION_NO_BACKEND = 2;
+    private static final byte VERSION_NO_MATCH = 3;
+    private static final byte VERSION = 4;
+
+    private static final int UUID_LENGTH = 36;
+
     /**
      * Serialize the object using kryo.
      *
@@ -37,15 +61,29 @@ public class DStreaMonStackSerializer extends Serializer<DStreaMonStack> {
      * @param object the object to serialize
      */
     public void write(Kryo kryo, Output output, DStreaMonStack object) {
-        kryo.writeClassAndObject(output, object.stackUuid().value());
-        kryo.writeClassAndObject(output, object.userUuid().value());
-        kryo.writeClassAndObject(output, object.probeUuid().value());
-        kryo.writeClassAndObject(output, object.userIp());
-        kryo.writeClassAndObject(output, object.probeIp());
-        kryo.writeClassAndObject(output, object.userMac());
-        kryo.writeClassAndObject(output, object.probeMac());
-        kryo.writeClassAndObject(output, object.userPortUuid().value());
-        kryo.writeClassAndObject(output, object.probePortUuid().value());
+        if (!isCompactable(object)) {
+            writeLegacy(kryo, output, object);
+            return;
+        }
+        output.writeByte(COMPACT_MARKER);
+        output.writeByte(VERSION);
+
+        /**
+         * The uuids not in canonical form, e.g. upper case, are written
+         * as strings, so that they are read back unchanged.
+         */
+        boolean canonical = hasCanonicalUuids(object);
+        output.writeBoolean(canonical);
+        writeUuid(output, object.stackUuid(), canonical);
+        writeUuid(output, object.userUuid(), canonical);
+        writeUuid(output, object.probeUuid(), canonical);
+        output.writeInt(object.userIp().toInt());
+        output.writeInt(object.probeIp().toInt());
+        writeMac(output, object.userMac());
+        writeMac(output, object.probeMac());
+        writeUuid(output, object.userPortUuid(), canonical);
+        writeUuid(output, object.probePortUuid(), canonical);
+        writeMirrorSpec(output, object.mirrorSpec());
     }
 
     /**
@@ -57,6 +95,173 @@ public class DStreaMonStackSerializer extends Serializer<DStreaMonStack> {
      * @return the object
      */
     public DStreaMonStack read(Kryo kryo, Input input, Class<DStreaMonStack> type) {
+        if (input.readByte() != COMPACT_MARKER) {
+            input.setPosition(input.position() - 1);
+            return readLegacy(kryo, input);
+        }
+        byte version = input.readByte();
+        if (version < VERSION_NO_SPEC || version > VERSION) {
+            throw new IllegalStateException("Unknown DStreaMonStack format version " + version);
+        }
+        boolean canonical = version == VERSION_NO_SPEC || input.readBoolean();
+
+        Uuid stackUuid = readUuid(input, canonical);
+        Uuid userUuid = readUuid(input, canonical);
+        Uuid probeUuid = readUuid(input, canonical);
+
+        Ip4Address userIp = Ip4Address.valueOf(input.readInt());
+        Ip4Address probeIp = Ip4Address.valueOf(input.readInt());
+
+        MacAddress userMac = readMac(input);
+        MacAddress probeMac = readMac(input);
+
+        Uuid userPortUuid = readUuid(input, canonical);
+        Uuid probePortUuid = readUuid(input, canonical);
+
+        DStreaMonMirrorSpec mirrorSpec = version == VERSION_NO_SPEC ?
+                DStreaMonMirrorSpec.DEFAULT : readMirrorSpec(input, version);
+
+        return new DStreaMonStack(stackUuid, userUuid, probeUuid,
+                                  userIp, probeIp,
+                                  userMac, probeMac,
+                                  userPortUuid, probePortUuid,
+                                  mirrorSpec
+        );
+    }
+
+    /**
+     * Checks that the stack can be written in the compact format,
+     * that is every field is set.
+     */
+    private static boolean isCompactable(DStreaMonStack object) {
+        return isSet(object.stackUuid()) && isSet(object.userUuid()) && isSet(object.probeUuid()) &&
+                object.userIp() != null && object.probeIp() != null &&
+                object.userMac() != null && object.probeMac() != null &&
+                isSet(object.userPortUuid()) && isSet(object.probePortUuid()) &&
+                object.mirrorSpec() != null;
+    }
+
+    private static boolean isSet(Uuid uuid) {
+        return uuid != null && uuid.value() != null;
+    }
+
+    private static boolean hasCanonicalUuids(DStreaMonStack object) {
+        return isCanonical(object.stackUuid()) && isCanonical(object.userUuid()) &&
+                isCanonical(object.probeUuid()) &&
+                isCanonical(object.userPortUuid()) && isCanonical(object.probePortUuid());
+    }
+
+    private static boolean isCanonical(Uuid uuid) {
+        if (uuid.value().length() != UUID_LENGTH) {
+            return false;
+        }
+        String value = uuid.value();
+        for (int i = 0; i < UUID_LENGTH; i++) {
+            char c = value.charAt(i);
+            boolean dash = i == 8 || i == 13 || i == 18 || i == 23;
+            if (dash ? c != '-' : !((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeUuid(Output output, Uuid uuid, boolean canonical) {
+        String value = uuid.value();
+        if (!canonical) {
+            output.writeString(value);
+            return;
+        }
+        output.writeLong(hex(value, 0, 8) << 32 | hex(value, 9, 13) << 16 | hex(value, 14, 18));
+        output.writeLong(hex(value, 19, 23) << 48 | hex(value, 24, 36));
+    }
+
+    private static long hex(String value, int begin, int end) {
+        long result = 0;
+        for (int i = begin; i < end; i++) {
+            result = result << 4 | Character.digit(value.charAt(i), 16);
+        }
+        return result;
+    }
+
+    private static Uuid readUuid(Input input, boolean canonical) {
+        if (!canonical) {
+            return Uuid.uuid(input.readString());
+        }
+        return Uuid.uuid(new UUID(input.readLong(), input.readLong()).toString());
+    }
+
+    private static void writeMac(Output output, MacAddress mac) {
+        long value = mac.toLong();
+        output.writeShort((int) (value >>> 32));
+        output.writeInt((int) value);
+    }
+
+    private static MacAddress readMac(Input input) {
+        long high = input.readShort() & 0xFFFFL;
+        long low = input.readInt() & 0xFFFFFFFFL;
+        return MacAddress.valueOf(high << 32 | low);
+    }
+
+    private static void writeMirrorSpec(Output output, DStreaMonMirrorSpec spec) {
+        output.writeByte(spec.direction().ordinal());
+        output.writeBoolean(spec.selectAll());
+        output.writeBoolean(spec.outputVlan() != null);
+        if (spec.outputVlan() != null) {
+            output.writeShort(spec.outputVlan().toShort());
+        }
+        output.writeVarInt(spec.vlans().size(), true);
+        spec.vlans().forEach(vlan -> output.writeShort(vlan.toShort()));
+        output.writeByte(spec.backend().ordinal());
+        DStreaMonTrafficMatch match = spec.match();
+        output.writeVarInt(match.ipProto(), true);
+        output.writeBoolean(match.remotePrefix() != null);
+        if (match.remotePrefix() != null) {
+            output.writeInt(match.remotePrefix().address().toInt());
+            output.writeByte(match.remotePrefix().prefixLength());
+        }
+        output.writeVarInt(match.localPort(), true);
+        output.writeVarInt(match.remotePort(), true);
+    }
+
+    private static DStreaMonMirrorSpec readMirrorSpec(Input input, byte version) {
+        DStreaMonMirrorSpec.Direction direction = DStreaMonMirrorSpec.Direction.values()[input.readByte()];
+        boolean selectAll = input.readBoolean();
+        VlanId outputVlan = input.readBoolean() ? VlanId.vlanId(input.readShort()) : null;
+        int size = input.readVarInt(true);
+        List<VlanId> vlans = Lists.newArrayListWithCapacity(size);
+        for (int i = 0; i < size; i++) {
+            vlans.add(VlanId.vlanId(input.readShort()));
+        }
+        if (version == VERSION_NO_BACKEND) {
+            return new DStreaMonMirrorSpec(direction, vlans, outputVlan, selectAll);
+        }
+        DStreaMonMirrorSpec.Backend backend = DStreaMonMirrorSpec.Backend.values()[input.readByte()];
+        if (version == VERSION_NO_MATCH) {
+            return new DStreaMonMirrorSpec(direction, vlans, outputVlan, selectAll, backend);
+        }
+        int ipProto = input.readVarInt(true);
+        Ip4Prefix remotePrefix = input.readBoolean() ?
+                Ip4Prefix.valueOf(input.readInt(), input.readByte()) : null;
+        int localPort = input.readVarInt(true);
+        int remotePort = input.readVarInt(true);
+        return new DStreaMonMirrorSpec(direction, vlans, outputVlan, selectAll, backend,
+                                       new DStreaMonTrafficMatch(ipProto, remotePrefix, localPort, remotePort));
+    }
+
+    private static void writeLegacy(Kryo kryo, Output output, DStreaMonStack object) {
+        kryo.writeClassAndObject(output, object.stackUuid().value());
+        kryo.writeClassAndObject(output, object.userUuid().value());
+        kryo.writeClassAndObject(output, object.probeUuid().value());
+        kryo.writeClassAndObject(output, object.userIp());
+        kryo.writeClassAndObject(output, object.probeIp());
+        kryo.writeClassAndObject(output, object.userMac());
+        kryo.writeClassAndObject(output, object.probeMac());
+        kryo.writeClassAndObject(output, object.userPortUuid().value());
+        kryo.writeClassAndObject(output, object.probePortUuid().value());
+    }
+
+    private static DStreaMonStack readLegacy(Kryo kryo, Input input) {
         Uuid stackUuid = Uuid.uuid((String) kryo.readClassAndObject(input));
         Uuid userUuid = Uuid.uuid((String) kryo.readClassAndObject(input));
         Uuid probeUuid = Uuid.uuid((String) kryo.readClassAndObject(input));
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon;
+
+import com.google.common.base.MoreObjects;
+
+import java.util.Objects;
+
+/**
+ * Desired state of a stack, together with the progress made to converge
+ * the compute nodes to it.
+ */
+public final class DStreaMonStackState {
+
+    /**
+     * Status of the stack.
+     */
+    public enum Status {
+        /**
+         * The stack has to be installed.
+         */
+        PENDING,
+        /**
+         * The mirroring and the mgmt interface of the stack are installed.
+         */
+        INSTALLED,
+        /**
+         * The stack could not be installed or withdrawn within the retry budget.
+         */
+        FAILED,
+        /**
+         * The stack has to be removed.
+         */
+        WITHDRAWING
+    }
+
+    private final Status status;
+    private final int attempts;
+    private final String error;
+
+    /**
+     * Creates a new org.onosproject.dstreamon.DStreaMonStackState.
+     *
+     * @param status the stack status
+     * @param attempts the failed attempts to reach the status
+     * @param error the error of the last failed attempt, null if none
+     */
+    public DStreaMonStackState(Status status, int attempts, String error) {
+        this.status = status;
+        this.attempts = attempts;
+        this.error = error;
+    }
+
+    /**
+     * Returns the state of a stack to install.
+     *
+     * @return the pending state
+     */
+    public static DStreaMonStackState pending() {
+        return new DStreaMonStackState(Status.PENDING, 0, null);
+    }
+
+    /**
+     * Returns the state of an installed stack.
+     *
+     * @return the installed state
+     */
+    public static DStreaMonStackState installed() {
+        return new DStreaMonStackState(Status.INSTALLED, 0, null);
+    }
+
+    /**
+     * Returns the state of a stack to remove.
+     *
+     * @return the withdrawing state
+     */
+    public static DStreaMonStackState withdrawing() {
+        return new DStreaMonStackState(Status.WITHDRAWING, 0, null);
+    }
+
+    /**
+     * Returns the state following a failed attempt: the status is kept
+     * until the retry budget is exhausted, then the stack is failed.
+     *
+     * @param failure the error of the attempt
+     * @param maxAttempts the retry budget
+     * @return the next state
+     */
+    public DStreaMonStackState retried(String failure, int maxAttempts) {
+        int failed = attempts + 1;
+        return new DStreaMonStackState(failed >= maxAttempts ? Status.FAILED : status, failed, failure);
+    }
+
+    /**
+     * Returns the status of the stack.
+     *
+     * @return the stack status
+     */
+    public Status status() {
+        return status;
+    }
+
+    /**
+     * Returns the number of failed attempts.
+     *
+     * @return the failed attempts
+     */
+    public int attempts() {
+        return attempts;
+    }
+
+    /**
+     * Returns the error of the last failed attempt.
+     *
+     * @return the error message, null if no attempt failed
+     */
+    public String error() {
+        return error;
+    }
+
+    /**
+     * Tells whether the stack still has to be converged.
+     *
+     * @return true if the stack is pending or withdrawing
+     */
+    public boolean isConverging() {
+        return status == Status.PENDING || status == Status.WITHDRAWING;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(status, attempts, error);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof DStreaMonStackState)) {
+            return false;
+        }
+        DStreaMonStackState that = (DStreaMonStackState) obj;
+        return status == that.status && attempts == that.attempts && Objects.equals(error, that.error);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("status", status)
+                .add("attempts", attempts)
+                .add("error", error)
+                .toString();
+    }
+
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.onosproject.dstreamon;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import org.onosproject.ovsdb.rfc.notation.Uuid;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Helper to hold the traffic statistics of a stack: the counters of the
+ * mirror of its group, of the probe port receiving the copies and of the mgmt interface
+ * of the probe, sampled periodically, and the rates computed over the samples.
+ */
+public final class DStreaMonStackStats {
+
+    /**
+     * Counters sampled for a stack.
+     */
+    public enum Counter {
+        /**
+         * Packets copied by the mirror of the group of the stack: the
+         * mirror is shared by the stacks of the group, the counter is not
+         * the traffic of the stack alone.
+         */
+        GROUP_MIRROR_PACKETS,
+        /**
+         * Bytes copied by the mirror of the group of the stack.
+         */
+        GROUP_MIRROR_BYTES,
+        /**
+         * Packets sent to the probe port.
+         */
+        PROBE_PACKETS,
+        /**
+         * Bytes sent to the probe port.
+         */
+        PROBE_BYTES,
+        /**
+         * Packets dropped sending them to the probe port.
+         */
+        PROBE_DROPPED,
+        /**
+         * Packets received from the mgmt interface of the probe.
+         */
+        MGMT_RX_PACKETS,
+        /**
+         * Bytes received from the mgmt interface of the probe.
+         */
+        MGMT_RX_BYTES,
+        /**
+         * Packets sent to the mgmt interface of the probe.
+         */
+        MGMT_TX_PACKETS,
+        /**
+         * Bytes sent to the mgmt interface of the probe.
+         */
+        MGMT_TX_BYTES
+    }
+
+    /**
+     * Value of a counter that could not be read.
+     */
+    public static final long NOT_AVAILABLE = -1;
+
+    private static final Counter[] COUNTERS = Counter.values();
+
+    private final Uuid stackUuid;
+    private final String mirrorName;
+    private final List<Sample> samples;
+    private final Map<Counter, Double> rates;
+
+    /**
+     * Creates a new org.onosproject.dstreamon.DStreaMonStackStats.
+     *
+     * @param stackUuid the stack uuid
+     * @param mirrorName the name of the mirror of the group of the stack
+     * @param samples the samples, oldest first
+     */
+    public DStreaMonStackStats(Uuid stackUuid, String mirrorName, List<Sample> samples) {
+        this.stackUuid = stackUuid;
+        this.mirrorName = mirrorName;
+        this.samples = ImmutableList.copyOf(samples);
+        this.rates = new EnumMap<>(Counter.class);
+        for (Counter counter : COUNTERS) {
+            double rate = rate(this.samples, counter);
+            if (!Double.isNaN(rate)) {
+                rates.put(counter, rate);
+            }
+        }
+    }
+
+    /**
+     * Computes the rate of a counter per second, summing the increments
+     * between consecutive samples. A counter going back, e.g. because the
+     * mirror was rewritten, contributes nothing for that interval.
+     */
+    private static double rate(List<Sample> samples, Counter counter) {
+        long increments = 0;
+        long millis = 0;
+        for (int i = 1; i < samples.size(); i++) {
+            Sample previous = samples.get(i - 1);
+            Sample current = samples.get(i);
+            long from = previous.value(counter);
+            long to = current.value(counter);
+            if (from == NOT_AVAILABLE || to == NOT_AVAILABLE || to < from) {
+                continue;
+            }
+            increments += to - from;
+            millis += current.time() - previous.time();
+        }
+        return millis > 0 ? increments * 1000.0 / millis : Double.NaN;
+    }
+
+    /**
+     * Returns the stack uuid.
+     *
+     * @return the stack uuid
+     */
+    public Uuid stackUuid() {
+        return stackUuid;
+    }
+
+    /**
+     * Returns the name of the mirror of the group of the stack.
+     *
+     * @return the mirror name
+     */
+    public String mirrorName() {
+        return mirrorName;
+    }
+
+    /**
+     * Returns the samples of the counters.
+     *
+     * @return the samples, oldest first
+     */
+    public List<Sample> samples() {
+        return samples;
+    }
+
+    /**
+     * Returns the rate of a counter over the samples.
+     *
+     * @param counter the counter
+     * @return the increments per second, NaN if less than two samples have the counter
+     */
+    public double rate(Counter counter) {
+        Double rate = rates.get(counter);
+        return rate != null ? rate : Double.NaN;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("stackUuid", stackUuid)
+                .add("mirrorName", mirrorName)
+                .add("samples", samples.size())
+                .add("rates", rates)
+                .toString();
+    }
+
+    /**
+     * The values of the counters at a given time.
+     */
+    public static final class Sample {
+
+        private final long time;
+        private final long[] values;
+
+        /**
+         * Creates a new sample.
+         *
+         * @param time the time of the sample, in milliseconds
+         * @param values the values of the counters, in the order of Counter
+         */
+        public Sample(long time, long[] values) {
+            this.time = time;
+            this.values = Arrays.copyOf(values, COUNTERS.length);
+        }
+
+        /**
+         * Returns the time of the sample.
+         *
+         * @return the time in milliseconds
+         */
+        public long time() {
+            return time;
+        }
+
+        /**
+         * Returns the value of a counter.
+         *
+         * @param counter the counter
+         * @return the value, NOT_AVAILABLE if it could not be read
+         */
+        public long value(Counter counter) {
+            return values[counter.ordinal()];
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this)
+                    .add("time", time)
+                    .add("values", Arrays.toString(values))
+                    .toString();
+        }
+
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.google.common.collect.Lists;
+import org.onosproject.dstreamon.DStreaMonStackStats.Counter;
+import org.onosproject.dstreamon.DStreaMonStackStats.Sample;
+import org.onosproject.ovsdb.rfc.notation.Uuid;
+
+import java.util.List;
+
+/**
+ * Kryo serializer for DStreaMon stack statistics, sent to the node asking
+ * for them by the node sampling the stack. Only the samples are written,
+ * the rates are computed again when reading them.
+ */
+public class DStreaMonStackStatsSerializer extends Serializer<DStreaMonStackStats> {
+
+    private static final Counter[] COUNTERS = Counter.values();
+
+    /**
+     * Serialize the object using kryo.
+     *
+     * @param kryo the serializer
+     * @param output the output
+     * @param object the object to serialize
+     */
+    public void write(Kryo kryo, Output output, DStreaMonStackStats object) {
+        output.writeString(object.stackUuid().value());
+        output.writeString(object.mirrorName());
+        output.writeVarInt(object.samples().size(), true);
+        output.writeVarInt(COUNTERS.length, true);
+        for (Sample sample : object.samples()) {
+            output.writeLong(sample.time());
+            for (Counter counter : COUNTERS) {
+                output.writeLong(sample.value(counter));
+            }
+        }
+    }
+
+    /**
+     * Deserialize the object using kryo.
+     *
+     * @param kryo the serializer
+     * @param input the input
+     * @param type the type of the object
+     * @return the stack statistics
+     */
+    public DStreaMonStackStats read(Kryo kryo, Input input, Class<DStreaMonStackStats> type) {
+        Uuid stackUuid = Uuid.uuid(input.readString());
+        String mirrorName = input.readString();
+        int size = input.readVarInt(true);
+
+        /**
+         * The counters unknown to this node, appended by a newer node,
+         * are skipped; the ones it does not send are not available.
+         */
+        int counters = input.readVarInt(true);
+        List<Sample> samples = Lists.newArrayListWithCapacity(size);
+        for (int i = 0; i < size; i++) {
+            long time = input.readLong();
+            long[] values = new long[COUNTERS.length];
+            for (int j = 0; j < counters; j++) {
+                long value = input.readLong();
+                if (j < values.length) {
+                    values[j] = value;
+                }
+            }
+            for (int j = counters; j < values.length; j++) {
+                values[j] = DStreaMonStackStats.NOT_AVAILABLE;
+            }
+            samples.add(new Sample(time, values));
+        }
+        return new DStreaMonStackStats(stackUuid, mirrorName, samples);
+    }
+
+}
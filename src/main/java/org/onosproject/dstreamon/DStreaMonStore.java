@@ -16,7 +16,14 @@
 
 package org.onosproject.dstreamon;
 
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.MacAddress;
 import org.onosproject.ovsdb.rfc.notation.Uuid;
+import org.onosproject.store.service.Versioned;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Storage service for DStreaMon application.
@@ -31,6 +38,169 @@ public interface DStreaMonStore {
      */
     void putStack(DStreaMonStack stack) throws DStreaMonException;
 
+    /**
+     * Removes the stack with the given uuid, if it exists.
+     *
+     * @param stackUuid the stack uuid
+     * @return the removed stack, null if it did not exist
+     */
+    DStreaMonStack removeStack(Uuid stackUuid);
+
+    /**
+     * Retrieves the stack with the given uuid.
+     *
+     * @param stackUuid the stack uuid
+     * @return the stack, null if it does not exist
+     */
+    DStreaMonStack getStack(Uuid stackUuid);
+
+    /**
+     * Retrieves all the stored stacks with a single read.
+     *
+     * @return the stored stacks
+     */
+    Collection<DStreaMonStack> getStacks();
+
+    /**
+     * Retrieves the stacks ordered by uuid, starting after the given one.
+     * The stacks are read one at a time while iterating.
+     *
+     * @param after the uuid preceding the first stack, null to start from the first one
+     * @return the ordered stacks
+     */
+    Iterable<DStreaMonStack> getStacks(Uuid after);
+
+    /**
+     * Retrieves the stacks monitored by the given probe.
+     *
+     * @param probeUuid the probe uuid
+     * @return the stacks of the probe
+     */
+    Set<DStreaMonStack> getStacksByProbe(Uuid probeUuid);
+
+    /**
+     * Retrieves the stacks of the given user vm.
+     *
+     * @param userUuid the user uuid
+     * @return the stacks of the user
+     */
+    Set<DStreaMonStack> getStacksByUser(Uuid userUuid);
+
+    /**
+     * Retrieves the stacks of the user vms having the given ip.
+     *
+     * @param userIp the user vm ip
+     * @return the stacks of the user ip
+     */
+    Set<DStreaMonStack> getStacksByUserIp(Ip4Address userIp);
+
+    /**
+     * Retrieves the stacks of the user vms having the given mac.
+     *
+     * @param userMac the user vm mac
+     * @return the stacks of the user mac
+     */
+    Set<DStreaMonStack> getStacksByUserMac(MacAddress userMac);
+
+    /**
+     * Retrieves the stacks using the given port, as user or probe port.
+     *
+     * @param portUuid the port uuid
+     * @return the stacks of the port
+     */
+    Set<DStreaMonStack> getStacksByPort(Uuid portUuid);
+
+    /**
+     * Retrieves the stacks using the port with the given key, as user or
+     * probe port, e.g. to relate an OVS port to the stacks.
+     *
+     * @param portKey the port key, see NeutronPortNames
+     * @return the stacks of the port
+     */
+    Set<DStreaMonStack> getStacksByPortKey(String portKey);
+
+    /**
+     * Stores the desired state of a stack.
+     *
+     * @param stackUuid the stack uuid
+     * @param state the stack state
+     */
+    void putStackState(Uuid stackUuid, DStreaMonStackState state);
+
+    /**
+     * Retrieves the desired state of a stack.
+     *
+     * @param stackUuid the stack uuid
+     * @return the stack state, null if it does not exist
+     */
+    DStreaMonStackState getStackState(Uuid stackUuid);
+
+    /**
+     * Retrieves the desired state of a stack along with its version,
+     * to be updated through a compare-and-set.
+     *
+     * @param stackUuid the stack uuid
+     * @return the versioned stack state, null if it does not exist
+     */
+    Versioned<DStreaMonStackState> getVersionedStackState(Uuid stackUuid);
+
+    /**
+     * Stores the desired state of a stack, if it does not exist.
+     *
+     * @param stackUuid the stack uuid
+     * @param state the stack state
+     * @return true if the state was stored
+     */
+    boolean putStackStateIfAbsent(Uuid stackUuid, DStreaMonStackState state);
+
+    /**
+     * Replaces the desired state of a stack, if its version did not change.
+     *
+     * @param stackUuid the stack uuid
+     * @param version the version of the state read
+     * @param state the new stack state
+     * @return true if the state was replaced
+     */
+    boolean replaceStackState(Uuid stackUuid, long version, DStreaMonStackState state);
+
+    /**
+     * Retrieves the desired state of all the stacks with a single read.
+     *
+     * @return the stack states, keyed by stack uuid
+     */
+    Map<Uuid, DStreaMonStackState> getStackStates();
+
+    /**
+     * Removes the desired state of a stack, if it exists.
+     *
+     * @param stackUuid the stack uuid
+     */
+    void removeStackState(Uuid stackUuid);
+
+    /**
+     * Removes the desired state of a stack, if its version did not change.
+     *
+     * @param stackUuid the stack uuid
+     * @param version the version of the state read
+     * @return true if the state was removed
+     */
+    boolean removeStackState(Uuid stackUuid, long version);
+
+    /**
+     * Adds a listener notified of the stack states changed by any node
+     * of the cluster.
+     *
+     * @param listener the listener to add
+     */
+    void addStackStateListener(StackStateListener listener);
+
+    /**
+     * Removes a stack state listener.
+     *
+     * @param listener the listener to remove
+     */
+    void removeStackStateListener(StackStateListener listener);
+
     /**
      * Stores the mgmt interface's information.
      *
@@ -49,4 +219,95 @@ public interface DStreaMonStore {
      */
     String getMgmtIface(Uuid probeUuid) throws DStreaMonException;
 
+    /**
+     * Retrieves all the mgmt interfaces with a single read.
+     *
+     * @return the iface names, keyed by probe uuid
+     */
+    Map<Uuid, String> getMgmtIfaces();
+
+    /**
+     * Removes the mgmt interface's information, if it exists.
+     *
+     * @param probeUuid the probe associated to the iface
+     * @return the removed ifacename, null if it did not exist
+     */
+    String removeMgmtIface(Uuid probeUuid);
+
+    /**
+     * Adds a listener notified of the mgmt interfaces changed by any node
+     * of the cluster.
+     *
+     * @param listener the listener to add
+     */
+    void addMgmtIfaceListener(MgmtIfaceListener listener);
+
+    /**
+     * Removes a mgmt interface listener.
+     *
+     * @param listener the listener to remove
+     */
+    void removeMgmtIfaceListener(MgmtIfaceListener listener);
+
+    /**
+     * Stores an asynchronous operation, replacing its previous status.
+     *
+     * @param operation the operation
+     */
+    void putOperation(DStreaMonOperation operation);
+
+    /**
+     * Retrieves an asynchronous operation, tracked by any node of the cluster.
+     *
+     * @param operationId the operation id
+     * @return the operation, null if it does not exist
+     */
+    DStreaMonOperation getOperation(Uuid operationId);
+
+    /**
+     * Retrieves all the asynchronous operations with a single read.
+     *
+     * @return the stored operations
+     */
+    Collection<DStreaMonOperation> getOperations();
+
+    /**
+     * Removes an asynchronous operation, if it exists.
+     *
+     * @param operationId the operation id
+     */
+    void removeOperation(Uuid operationId);
+
+    /**
+     * Listener of the changes of the stack states.
+     */
+    interface StackStateListener {
+
+        /**
+         * Notifies that the desired state of a stack changed.
+         *
+         * @param stackUuid the stack uuid
+         * @param oldState the previous state, null if the state was added
+         * @param newState the current state, null if the state was removed
+         */
+        void stateChanged(Uuid stackUuid, DStreaMonStackState oldState, DStreaMonStackState newState);
+
+    }
+
+    /**
+     * Listener of the changes of the mgmt interfaces.
+     */
+    interface MgmtIfaceListener {
+
+        /**
+         * Notifies that the mgmt interface of a probe changed.
+         *
+         * @param probeUuid the probe uuid
+         * @param oldIface the previous iface name, null if the iface was added
+         * @param newIface the current iface name, null if the iface was removed
+         */
+        void ifaceChanged(Uuid probeUuid, String oldIface, String newIface);
+
+    }
+
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.onosproject.dstreamon;
+
+import com.google.common.collect.Maps;
+import org.onosproject.ovsdb.rfc.notation.Uuid;
+
+import java.util.Map;
+
+/**
+ * The measurements sent by a probe through its mgmt interface and
+ * received by this node: a window of samples for each metric, created
+ * at its first sample.
+ */
+public final class DStreaMonTelemetry {
+
+    /**
+     * Maximum number of metrics of a probe, bounding the memory of the
+     * windows, about 25 KB each.
+     */
+    public static final int MAX_METRICS = 32;
+
+    /**
+     * Maximum length of a metric name.
+     */
+    public static final int MAX_METRIC_LENGTH = 64;
+
+    private final Uuid probeUuid;
+    private final Map<String, DStreaMonTelemetryWindow> windows = Maps.newConcurrentMap();
+
+    /**
+     * Creates a new org.onosproject.dstreamon.DStreaMonTelemetry.
+     *
+     * @param probeUuid the probe uuid
+     */
+    public DStreaMonTelemetry(Uuid probeUuid) {
+        this.probeUuid = probeUuid;
+    }
+
+    /**
+     * Returns the probe uuid.
+     *
+     * @return the probe uuid
+     */
+    public Uuid probeUuid() {
+        return probeUuid;
+    }
+
+    /**
+     * Returns the window of a metric, creating it at its first sample.
+     * The window is resolved once for all the samples of a batch.
+     *
+     * @param metric the metric name
+     * @return the window, null if the name is invalid or the probe has too many metrics
+     */
+    public DStreaMonTelemetryWindow window(String metric) {
+        DStreaMonTelemetryWindow window = windows.get(metric);
+        if (window != null) {
+            return window;
+        }
+        if (metric.isEmpty() || metric.length() > MAX_METRIC_LENGTH) {
+            return null;
+        }
+        synchronized (this) {
+            window = windows.get(metric);
+            if (window == null && windows.size() < MAX_METRICS) {
+                window = new DStreaMonTelemetryWindow();
+                windows.put(metric, window);
+            }
+            return window;
+        }
+    }
+
+    /**
+     * Sums the windows of the metrics ending at the given time, to be
+     * merged with the windows of the probe kept by the other nodes.
+     *
+     * @param now the end of the windows, in milliseconds
+     * @return the summaries of the metrics having samples, keyed by metric
+     */
+    public Map<String, DStreaMonTelemetrySummary> summaries(long now) {
+        Map<String, DStreaMonTelemetrySummary> summaries = Maps.newHashMap();
+        windows.forEach((metric, window) -> {
+            DStreaMonTelemetrySummary summary = window.summary(now);
+            if (summary.count() > 0) {
+                summaries.put(metric, summary);
+            }
+        });
+        return summaries;
+    }
+
+}
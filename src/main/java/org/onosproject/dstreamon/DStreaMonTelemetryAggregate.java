@@ -0,0 +1,157 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.onosproject.dstreamon;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Helper to hold the aggregate of the samples of a probe metric
+ * received within a window: count, sum, minimum, maximum and the
+ * estimated percentiles.
+ */
+public final class DStreaMonTelemetryAggregate {
+
+    private final long windowMillis;
+    private final long count;
+    private final double sum;
+    private final double min;
+    private final double max;
+    private final double p50;
+    private final double p90;
+    private final double p99;
+
+    /**
+     * Creates a new org.onosproject.dstreamon.DStreaMonTelemetryAggregate.
+     *
+     * @param windowMillis the duration of the window, in milliseconds
+     * @param count the number of samples
+     * @param sum the sum of the samples
+     * @param min the minimum sample, NaN if there are no samples
+     * @param max the maximum sample, NaN if there are no samples
+     * @param p50 the estimated median, NaN if there are no samples
+     * @param p90 the estimated 90th percentile, NaN if there are no samples
+     * @param p99 the estimated 99th percentile, NaN if there are no samples
+     */
+    public DStreaMonTelemetryAggregate(long windowMillis, long count, double sum, double min, double max,
+                                       double p50, double p90, double p99) {
+        this.windowMillis = windowMillis;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+    }
+
+    /**
+     * Returns the duration of the window.
+     *
+     * @return the window in milliseconds
+     */
+    public long windowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * Returns the number of samples.
+     *
+     * @return the sample count
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Returns the sum of the samples.
+     *
+     * @return the sum
+     */
+    public double sum() {
+        return sum;
+    }
+
+    /**
+     * Returns the mean of the samples.
+     *
+     * @return the mean, NaN if there are no samples
+     */
+    public double mean() {
+        return count > 0 ? sum / count : Double.NaN;
+    }
+
+    /**
+     * Returns the minimum sample.
+     *
+     * @return the minimum, NaN if there are no samples
+     */
+    public double min() {
+        return min;
+    }
+
+    /**
+     * Returns the maximum sample.
+     *
+     * @return the maximum, NaN if there are no samples
+     */
+    public double max() {
+        return max;
+    }
+
+    /**
+     * Returns the estimated median.
+     *
+     * @return the 50th percentile, NaN if there are no samples
+     */
+    public double p50() {
+        return p50;
+    }
+
+    /**
+     * Returns the estimated 90th percentile.
+     *
+     * @return the 90th percentile, NaN if there are no samples
+     */
+    public double p90() {
+        return p90;
+    }
+
+    /**
+     * Returns the estimated 99th percentile.
+     *
+     * @return the 99th percentile, NaN if there are no samples
+     */
+    public double p99() {
+        return p99;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("windowMillis", windowMillis)
+                .add("count", count)
+                .add("sum", sum)
+                .add("min", min)
+                .add("max", max)
+                .add("p50", p50)
+                .add("p90", p90)
+                .add("p99", p99)
+                .toString();
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon;
+
+import com.google.common.base.MoreObjects;
+
+import java.util.Arrays;
+
+/**
+ * Helper to hold the state of the window of a probe metric: count, sum,
+ * minimum, maximum and histogram of its samples. The states of the
+ * windows kept by the cluster nodes, each one receiving part of the
+ * samples of the probe, are merged before computing the aggregate.
+ */
+public final class DStreaMonTelemetrySummary {
+
+    private final long count;
+    private final double sum;
+    private final double min;
+    private final double max;
+    private final long[] histogram;
+
+    /**
+     * Creates a new org.onosproject.dstreamon.DStreaMonTelemetrySummary.
+     *
+     * @param count the number of samples
+     * @param sum the sum of the samples
+     * @param min the minimum sample, positive infinity if there are no samples
+     * @param max the maximum sample, negative infinity if there are no samples
+     * @param histogram the counts of the bins of the window histogram
+     */
+    public DStreaMonTelemetrySummary(long count, double sum, double min, double max, long[] histogram) {
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.histogram = Arrays.copyOf(histogram, DStreaMonTelemetryWindow.BINS);
+    }
+
+    /**
+     * Returns the number of samples.
+     *
+     * @return the sample count
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Returns the sum of the samples.
+     *
+     * @return the sum
+     */
+    public double sum() {
+        return sum;
+    }
+
+    /**
+     * Returns the minimum sample.
+     *
+     * @return the minimum, positive infinity if there are no samples
+     */
+    public double min() {
+        return min;
+    }
+
+    /**
+     * Returns the maximum sample.
+     *
+     * @return the maximum, negative infinity if there are no samples
+     */
+    public double max() {
+        return max;
+    }
+
+    /**
+     * Returns the count of a bin of the histogram.
+     *
+     * @param bin the bin, between 0 and DStreaMonTelemetryWindow.BINS excluded
+     * @return the samples in the bin
+     */
+    public long bin(int bin) {
+        return histogram[bin];
+    }
+
+    /**
+     * Merges the samples of this window with the ones of another window
+     * of the same metric.
+     *
+     * @param other the other window
+     * @return the summary of the samples of both windows
+     */
+    public DStreaMonTelemetrySummary merge(DStreaMonTelemetrySummary other) {
+        long[] merged = new long[DStreaMonTelemetryWindow.BINS];
+        for (int bin = 0; bin < merged.length; bin++) {
+            merged[bin] = histogram[bin] + other.histogram[bin];
+        }
+        return new DStreaMonTelemetrySummary(count + other.count, sum + other.sum, Math.min(min, other.min),
+                                             Math.max(max, other.max), merged);
+    }
+
+    /**
+     * Aggregates the samples, estimating the percentiles from the histogram.
+     *
+     * @return the aggregate of the samples
+     */
+    public DStreaMonTelemetryAggregate aggregate() {
+        long windowMillis = DStreaMonTelemetryWindow.WINDOW_BUCKETS * DStreaMonTelemetryWindow.BUCKET_MILLIS;
+        if (count == 0) {
+            return new DStreaMonTelemetryAggregate(windowMillis, 0, 0, Double.NaN, Double.NaN,
+                                                   Double.NaN, Double.NaN, Double.NaN);
+        }
+        return new DStreaMonTelemetryAggregate(windowMillis, count, sum, min, max,
+                                               DStreaMonTelemetryWindow.percentile(histogram, 0.5, min, max),
+                                               DStreaMonTelemetryWindow.percentile(histogram, 0.9, min, max),
+                                               DStreaMonTelemetryWindow.percentile(histogram, 0.99, min, max));
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("count", count)
+                .add("sum", sum)
+                .add("min", min)
+                .add("max", max)
+                .toString();
+    }
+
+}
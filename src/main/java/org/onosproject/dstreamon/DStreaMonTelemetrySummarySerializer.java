@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Kryo serializer for the summary of the window of a probe metric, sent
+ * to the node aggregating the windows of the cluster. Most bins of the
+ * histogram are empty: only the non-empty ones are written, each one as
+ * its index and its count.
+ */
+public class DStreaMonTelemetrySummarySerializer extends Serializer<DStreaMonTelemetrySummary> {
+
+    /**
+     * Serialize the object using kryo.
+     *
+     * @param kryo the serializer
+     * @param output the output
+     * @param object the object to serialize
+     */
+    public void write(Kryo kryo, Output output, DStreaMonTelemetrySummary object) {
+        output.writeVarLong(object.count(), true);
+        output.writeDouble(object.sum());
+        output.writeDouble(object.min());
+        output.writeDouble(object.max());
+        int bins = 0;
+        for (int bin = 0; bin < DStreaMonTelemetryWindow.BINS; bin++) {
+            if (object.bin(bin) != 0) {
+                bins++;
+            }
+        }
+        output.writeVarInt(bins, true);
+        for (int bin = 0; bin < DStreaMonTelemetryWindow.BINS; bin++) {
+            if (object.bin(bin) != 0) {
+                output.writeVarInt(bin, true);
+                output.writeVarLong(object.bin(bin), true);
+            }
+        }
+    }
+
+    /**
+     * Deserialize the object using kryo.
+     *
+     * @param kryo the serializer
+     * @param input the input
+     * @param type the type of the object
+     * @return the summary
+     */
+    public DStreaMonTelemetrySummary read(Kryo kryo, Input input, Class<DStreaMonTelemetrySummary> type) {
+        long count = input.readVarLong(true);
+        double sum = input.readDouble();
+        double min = input.readDouble();
+        double max = input.readDouble();
+        long[] histogram = new long[DStreaMonTelemetryWindow.BINS];
+        int bins = input.readVarInt(true);
+        for (int i = 0; i < bins; i++) {
+            histogram[input.readVarInt(true)] = input.readVarLong(true);
+        }
+        return new DStreaMonTelemetrySummary(count, sum, min, max, histogram);
+    }
+
+}
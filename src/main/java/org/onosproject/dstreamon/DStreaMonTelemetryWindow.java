@@ -0,0 +1,258 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.onosproject.dstreamon;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sliding window of the samples of a probe metric, aggregated while they
+ * are recorded. The window is a ring of buckets of 10 s, each one keeping
+ * the count, the sum, the minimum, the maximum and a log-linear histogram
+ * of its samples, from which the percentiles are estimated.
+ *
+ * <p>The buckets are flattened in atomic arrays, preallocated: a sample is
+ * recorded with a few compare-and-set operations, without locks and
+ * without allocations, so that concurrent batches of a probe do not block
+ * each other. A sample racing with the reset of its bucket, at the first
+ * sample of the bucket, may be lost.
+ */
+public final class DStreaMonTelemetryWindow {
+
+    /**
+     * Duration of a bucket of the window, in milliseconds.
+     */
+    public static final long BUCKET_MILLIS = 10000;
+
+    /**
+     * Number of buckets aggregated by the window.
+     */
+    public static final int WINDOW_BUCKETS = 6;
+
+    /**
+     * The ring is larger than the window, the buckets being reset
+     * only when they are no more read.
+     */
+    private static final int SLOTS = 8;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    /**
+     * The histogram splits each power of two in 8 bins, estimating the
+     * percentiles within 6%, from 2^-10 to 2^40. The first bin counts
+     * the smaller values, zero and the negative ones, the last bin the
+     * larger ones.
+     */
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BINS = 1 << SUB_BITS;
+    private static final int MIN_EXPONENT = -10;
+    private static final int MAX_EXPONENT = 40;
+
+    /**
+     * Number of bins of the histogram of the window.
+     */
+    public static final int BINS = (MAX_EXPONENT - MIN_EXPONENT) * SUB_BINS + 2;
+
+    private static final double MIN_VALUE = Math.scalb(1.0, MIN_EXPONENT);
+    private static final double MAX_VALUE = Math.scalb(1.0, MAX_EXPONENT);
+
+    private static final long NO_EPOCH = -1;
+    private static final long POSITIVE_INFINITY = Double.doubleToRawLongBits(Double.POSITIVE_INFINITY);
+    private static final long NEGATIVE_INFINITY = Double.doubleToRawLongBits(Double.NEGATIVE_INFINITY);
+
+    private final AtomicLongArray epochs = new AtomicLongArray(SLOTS);
+    private final AtomicLongArray counts = new AtomicLongArray(SLOTS);
+    private final AtomicLongArray sums = new AtomicLongArray(SLOTS);
+    private final AtomicLongArray mins = new AtomicLongArray(SLOTS);
+    private final AtomicLongArray maxs = new AtomicLongArray(SLOTS);
+    private final AtomicLongArray bins = new AtomicLongArray(SLOTS * BINS);
+
+    /**
+     * Creates a new empty window.
+     */
+    public DStreaMonTelemetryWindow() {
+        for (int slot = 0; slot < SLOTS; slot++) {
+            epochs.set(slot, NO_EPOCH);
+            mins.set(slot, POSITIVE_INFINITY);
+            maxs.set(slot, NEGATIVE_INFINITY);
+        }
+    }
+
+    /**
+     * Records a sample in the bucket of the given time.
+     *
+     * @param now the time of the sample, in milliseconds
+     * @param value the sample
+     * @return false if the sample is not finite or older than the window
+     */
+    public boolean record(long now, double value) {
+
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return false;
+        }
+        long epoch = now / BUCKET_MILLIS;
+        int slot = (int) (epoch & SLOT_MASK);
+        long current = epochs.get(slot);
+        if (current != epoch) {
+            if (current > epoch) {
+                return false;
+            }
+            if (epochs.compareAndSet(slot, current, epoch)) {
+                reset(slot);
+            }
+        }
+
+        counts.incrementAndGet(slot);
+        add(sums, slot, value);
+        min(mins, slot, value);
+        max(maxs, slot, value);
+        bins.incrementAndGet(slot * BINS + bin(value));
+        return true;
+
+    }
+
+    /**
+     * Aggregates the buckets of the window ending at the given time.
+     *
+     * @param now the end of the window, in milliseconds
+     * @return the aggregate of the samples in the window
+     */
+    public DStreaMonTelemetryAggregate aggregate(long now) {
+        return summary(now).aggregate();
+    }
+
+    /**
+     * Sums the buckets of the window ending at the given time, without
+     * estimating the percentiles, so that it can be merged with the
+     * windows of the other nodes.
+     *
+     * @param now the end of the window, in milliseconds
+     * @return the summary of the samples in the window
+     */
+    public DStreaMonTelemetrySummary summary(long now) {
+
+        long epoch = now / BUCKET_MILLIS;
+        long count = 0;
+        double sum = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        long[] histogram = new long[BINS];
+        for (int slot = 0; slot < SLOTS; slot++) {
+            long slotEpoch = epochs.get(slot);
+            if (slotEpoch > epoch || slotEpoch <= epoch - WINDOW_BUCKETS) {
+                continue;
+            }
+            count += counts.get(slot);
+            sum += Double.longBitsToDouble(sums.get(slot));
+            min = Math.min(min, Double.longBitsToDouble(mins.get(slot)));
+            max = Math.max(max, Double.longBitsToDouble(maxs.get(slot)));
+            for (int bin = 0; bin < BINS; bin++) {
+                histogram[bin] += bins.get(slot * BINS + bin);
+            }
+        }
+        return new DStreaMonTelemetrySummary(count, sum, min, max, histogram);
+
+    }
+
+    private void reset(int slot) {
+        counts.set(slot, 0);
+        sums.set(slot, 0);
+        mins.set(slot, POSITIVE_INFINITY);
+        maxs.set(slot, NEGATIVE_INFINITY);
+        for (int bin = slot * BINS; bin < (slot + 1) * BINS; bin++) {
+            bins.set(bin, 0);
+        }
+    }
+
+    /**
+     * Returns the bin of a value, from the exponent and the first bits
+     * of the mantissa of its binary representation.
+     */
+    private static int bin(double value) {
+        if (!(value >= MIN_VALUE)) {
+            return 0;
+        }
+        if (value >= MAX_VALUE) {
+            return BINS - 1;
+        }
+        long bits = Double.doubleToRawLongBits(value);
+        int exponent = Math.getExponent(value);
+        int sub = (int) (bits >>> (52 - SUB_BITS)) & (SUB_BINS - 1);
+        return 1 + (exponent - MIN_EXPONENT) * SUB_BINS + sub;
+    }
+
+    /**
+     * Estimates a percentile with the middle of the bin holding its rank,
+     * bounded by the minimum and the maximum of the samples.
+     */
+    static double percentile(long[] histogram, double quantile, double min, double max) {
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        int bin = 0;
+        while (bin < BINS - 1) {
+            seen += histogram[bin];
+            if (seen >= rank) {
+                break;
+            }
+            bin++;
+        }
+        if (bin == 0) {
+            return min;
+        }
+        if (bin == BINS - 1) {
+            return max;
+        }
+        int exponent = (bin - 1) / SUB_BINS + MIN_EXPONENT;
+        int sub = (bin - 1) % SUB_BINS;
+        double value = Math.scalb(1.0 + (sub + 0.5) / SUB_BINS, exponent);
+        return Math.min(max, Math.max(min, value));
+    }
+
+    private static void add(AtomicLongArray values, int slot, double value) {
+        while (true) {
+            long previous = values.get(slot);
+            long next = Double.doubleToRawLongBits(Double.longBitsToDouble(previous) + value);
+            if (values.compareAndSet(slot, previous, next)) {
+                return;
+            }
+        }
+    }
+
+    private static void min(AtomicLongArray values, int slot, double value) {
+        while (true) {
+            long previous = values.get(slot);
+            if (!(value < Double.longBitsToDouble(previous))
+                    || values.compareAndSet(slot, previous, Double.doubleToRawLongBits(value))) {
+                return;
+            }
+        }
+    }
+
+    private static void max(AtomicLongArray values, int slot, double value) {
+        while (true) {
+            long previous = values.get(slot);
+            if (!(value > Double.longBitsToDouble(previous))
+                    || values.compareAndSet(slot, previous, Double.doubleToRawLongBits(value))) {
+                return;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon;
+
+import com.google.common.base.MoreObjects;
+import org.onlab.packet.IPv4;
+import org.onlab.packet.Ip4Prefix;
+
+import java.util.Objects;
+
+/**
+ * Helper to store the L3/L4 fields restricting the mirrored traffic of a
+ * stack, seen from the user vm: the ip protocol, the prefix of the remote
+ * hosts and the transport ports of the vm and of the remote hosts.
+ */
+public final class DStreaMonTrafficMatch {
+
+    /**
+     * Value of the ip protocol and of the ports matching any of them.
+     */
+    public static final int ANY = 0;
+
+    /**
+     * The traffic not restricted by L3/L4 fields.
+     */
+    public static final DStreaMonTrafficMatch ALL = new DStreaMonTrafficMatch(ANY, null, ANY, ANY);
+
+    private final int ipProto;
+    private final Ip4Prefix remotePrefix;
+    private final int localPort;
+    private final int remotePort;
+
+    /**
+     * Creates a new org.onosproject.dstreamon.DStreaMonTrafficMatch.
+     *
+     * @param ipProto the ip protocol, 0 to match any of them
+     * @param remotePrefix the prefix of the remote hosts, null to match any of them
+     * @param localPort the transport port of the user vm, 0 to match any of them
+     * @param remotePort the transport port of the remote hosts, 0 to match any of them
+     */
+    public DStreaMonTrafficMatch(int ipProto, Ip4Prefix remotePrefix, int localPort, int remotePort) {
+        this.ipProto = ipProto;
+        this.remotePrefix = remotePrefix;
+        this.localPort = localPort;
+        this.remotePort = remotePort;
+    }
+
+    /**
+     * Tells whether the ports can be matched with the given ip protocol,
+     * that is TCP or UDP.
+     *
+     * @param ipProto the ip protocol
+     * @return true if the protocol has ports
+     */
+    public static boolean hasPorts(int ipProto) {
+        return ipProto == IPv4.PROTOCOL_TCP || ipProto == IPv4.PROTOCOL_UDP;
+    }
+
+    /**
+     * Returns the ip protocol of the mirrored traffic.
+     *
+     * @return the ip protocol, 0 if any of them is mirrored
+     */
+    public int ipProto() {
+        return ipProto;
+    }
+
+    /**
+     * Returns the prefix of the remote hosts.
+     *
+     * @return the remote prefix, null if any of them is mirrored
+     */
+    public Ip4Prefix remotePrefix() {
+        return remotePrefix;
+    }
+
+    /**
+     * Returns the transport port of the user vm.
+     *
+     * @return the local port, 0 if any of them is mirrored
+     */
+    public int localPort() {
+        return localPort;
+    }
+
+    /**
+     * Returns the transport port of the remote hosts.
+     *
+     * @return the remote port, 0 if any of them is mirrored
+     */
+    public int remotePort() {
+        return remotePort;
+    }
+
+    /**
+     * Tells whether the traffic is not restricted by L3/L4 fields.
+     *
+     * @return true if all the traffic is matched
+     */
+    public boolean isAll() {
+        return ipProto == ANY && remotePrefix == null && localPort == ANY && remotePort == ANY;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(ipProto, remotePrefix, localPort, remotePort);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof DStreaMonTrafficMatch) {
+            final DStreaMonTrafficMatch other = (DStreaMonTrafficMatch) obj;
+            return  this.ipProto == other.ipProto &&
+                    Objects.equals(this.remotePrefix, other.remotePrefix) &&
+                    this.localPort == other.localPort &&
+                    this.remotePort == other.remotePort;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("ipProto", ipProto)
+                .add("remotePrefix", remotePrefix)
+                .add("localPort", localPort)
+                .add("remotePort", remotePort)
+                .toString();
+    }
+
+}
@@ -0,0 +1,471 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.dstreamon;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+import org.onlab.packet.Ethernet;
+import org.onlab.packet.IPv4;
+import org.onlab.packet.TpPort;
+import org.onlab.packet.VlanId;
+import org.onosproject.core.ApplicationId;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.PortNumber;
+import org.onosproject.net.flow.DefaultFlowRule;
+import org.onosproject.net.flow.DefaultTrafficSelector;
+import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.flow.FlowEntry;
+import org.onosproject.net.flow.FlowRule;
+import org.onosproject.net.flow.FlowRuleOperations;
+import org.onosproject.net.flow.FlowRuleOperationsContext;
+import org.onosproject.net.flow.FlowRuleService;
+import org.onosproject.net.flow.TrafficSelector;
+import org.onosproject.net.flow.TrafficTreatment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Mirroring backend writing OpenFlow rules on the integration bridge:
+ * the packets sent by a user vm are matched on its port and mac, the
+ * packets sent to it on its mac, optionally restricted by L3/L4 fields,
+ * and output to the probe port besides being forwarded as usual.
+ *
+ * <p>The rules take precedence over the pipeline of the bridge and forward
+ * with NORMAL, thus the backend only works on a bridge forwarding with
+ * NORMAL alone: a rule of another application in the same table, with a
+ * lower priority and any other treatment, e.g. a security group or a
+ * tunnel, would be bypassed. The mirroring is refused on such a bridge,
+ * and the rules of the group are removed. The priority is below the
+ * packet-in rules of ONOS, the copies of the punted packets are lost.
+ *
+ * <p>The rules carry a cookie made of the application id, a hash of the
+ * group mirror name and the index of the rule in the group, so that the
+ * rules of a group are found on the device and replaced as a whole.
+ * Two groups whose names have the same hash would replace each other's
+ * rules: when a group finds on the device rules it did not write, the
+ * groups are read from the store and, on a collision, only the group with
+ * the lowest mirror name is written, the other one being refused.
+ */
+final class FlowRuleMirroringBackend implements MirroringBackend {
+
+    private static Logger log = LoggerFactory.getLogger(FlowRuleMirroringBackend.class);
+
+    private static final int PRIORITY = 30000;
+    private static final int TABLE = 0;
+    private static final int INDEX_BITS = 16;
+    private static final int MAX_RULES = 1 << INDEX_BITS;
+    private static final long GROUP_MASK = 0xffffffffL;
+    private static final long APPLY_TIMEOUT_SECONDS = 10;
+    private static final TrafficTreatment NORMAL = DefaultTrafficTreatment.builder()
+            .setOutput(PortNumber.NORMAL)
+            .build();
+
+    private final FlowRuleService flowRuleService;
+    private final ApplicationId appId;
+    private final Supplier<Set<String>> groupMirrors;
+
+    /**
+     * Creates a new org.onosproject.dstreamon.FlowRuleMirroringBackend.
+     *
+     * @param flowRuleService the flow rule service
+     * @param appId the application owning the rules
+     * @param groupMirrors reads the names of the mirrors of the groups mirrored by flow rules
+     */
+    FlowRuleMirroringBackend(FlowRuleService flowRuleService, ApplicationId appId,
+                             Supplier<Set<String>> groupMirrors) {
+        this.flowRuleService = flowRuleService;
+        this.appId = appId;
+        this.groupMirrors = groupMirrors;
+    }
+
+    /**
+     * Returns the first option of a spec the flow rules can not honour:
+     * they do not tag the copies.
+     *
+     * @param spec the mirror spec
+     * @return the name of the unsupported option, empty if the spec is supported
+     */
+    static Optional<String> unsupportedOption(DStreaMonMirrorSpec spec) {
+        if (spec.outputVlan() != null) {
+            return Optional.of("output_vlan");
+        }
+        if (spec.selectAll()) {
+            return Optional.of("select_all");
+        }
+        DStreaMonTrafficMatch match = spec.match();
+        if ((match.localPort() != DStreaMonTrafficMatch.ANY || match.remotePort() != DStreaMonTrafficMatch.ANY)
+                && !DStreaMonTrafficMatch.hasPorts(match.ipProto())) {
+            return Optional.of("match");
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean writeMirror(ComputeNode node, MirrorGroup group, Map<DStreaMonStack, LocalPort> userPorts,
+                               LocalPort probePort, Set<String> mirrors) {
+
+        Optional<String> unsupported = unsupportedOption(group.mirrorSpec());
+        if (unsupported.isPresent()) {
+            log.warn("Option {} of mirror {} is not supported by the flow rules", unsupported.get(),
+                     group.mirrorName());
+            return false;
+        }
+        Optional<DeviceId> bridgeId = node.integrationBridgeId();
+        if (!bridgeId.isPresent()) {
+            log.warn("Impossible to find the OpenFlow device of {} on {}", ComputeNode.BR_INT, node.deviceId());
+            return false;
+        }
+
+        long groupBits = groupBits(group.mirrorName());
+        List<FlowRule> rules = userPorts.isEmpty() || probePort == null ? Collections.emptyList() :
+                mirrorRules(appId, bridgeId.get(), groupBits, group.mirrorSpec(), userPorts, probePort.port());
+        if (rules.size() > MAX_RULES) {
+            log.warn("Mirror {} needs {} rules, at most {} are allowed", group.mirrorName(), rules.size(), MAX_RULES);
+            return false;
+        }
+
+        Iterable<FlowEntry> entries = flowRuleService.getFlowEntries(bridgeId.get());
+        Optional<FlowEntry> pipelineRule = rules.isEmpty() ? Optional.empty() : pipelineRule(entries);
+        if (pipelineRule.isPresent()) {
+            log.warn("Mirror {} refused, {} does not forward with NORMAL alone: {}", group.mirrorName(),
+                     bridgeId.get(), pipelineRule.get());
+            rules = Collections.emptyList();
+        }
+
+        /**
+         * Only the differences are applied: the stale rules are removed
+         * before adding the missing ones, which may reuse their cookies.
+         */
+        List<FlowRule> missing = Lists.newArrayList(rules);
+        List<FlowRule> stale = Lists.newArrayList();
+        for (FlowEntry entry : entries) {
+            if (!isGroupRule(entry, groupBits) || entry.state() == FlowEntry.FlowEntryState.PENDING_REMOVE
+                    || entry.state() == FlowEntry.FlowEntryState.REMOVED) {
+                continue;
+            }
+            if (!missing.removeIf(rule -> rule.exactMatch(entry))) {
+                stale.add(entry);
+            }
+        }
+        if (missing.isEmpty() && stale.isEmpty()) {
+            return !pipelineRule.isPresent();
+        }
+
+        /**
+         * The stale rules may belong to another group with the same hash,
+         * the store is only read in that case. The group with the lowest
+         * name wins, so that both owners take the same decision.
+         */
+        if (!stale.isEmpty()) {
+            Optional<String> colliding = collidingMirror(group.mirrorName(), groupMirrors.get());
+            if (colliding.isPresent()) {
+                if (colliding.get().compareTo(group.mirrorName()) < 0) {
+                    log.warn("Mirror {} refused, its rules would have the cookies of mirror {}",
+                             group.mirrorName(), colliding.get());
+                    return false;
+                }
+                log.warn("Mirror {} replaces on {} the rules of mirror {}, having the same cookies",
+                         group.mirrorName(), bridgeId.get(), colliding.get());
+            }
+        }
+        FlowRuleOperations.Builder operations = FlowRuleOperations.builder();
+        stale.forEach(operations::remove);
+        operations.newStage();
+        missing.forEach(operations::add);
+        return apply(operations, group.mirrorName()) && !pipelineRule.isPresent();
+
+    }
+
+    /**
+     * Removes the rules of the groups no longer mirrored. The groups are
+     * read again before removing, a stack could have been registered
+     * after the snapshot.
+     *
+     * @param node the compute node
+     * @param groupMirrors the names of the mirrors of the mirrored groups
+     * @param currentGroupMirrors reads again the names of the mirrors
+     * @return the number of groups removed
+     */
+    int removeOrphans(ComputeNode node, Set<String> groupMirrors, Supplier<Set<String>> currentGroupMirrors) {
+
+        Optional<DeviceId> bridgeId = node.integrationBridgeId();
+        if (!bridgeId.isPresent()) {
+            return 0;
+        }
+        Map<Long, List<FlowRule>> orphans = orphanRules(bridgeId.get(), groupMirrors);
+        if (orphans.isEmpty()) {
+            return 0;
+        }
+        orphans.keySet().retainAll(orphanRules(bridgeId.get(), currentGroupMirrors.get()).keySet());
+        List<FlowRule> rules = Lists.newArrayList();
+        orphans.values().forEach(rules::addAll);
+        if (!rules.isEmpty()) {
+            flowRuleService.removeFlowRules(rules.toArray(new FlowRule[rules.size()]));
+        }
+        return orphans.size();
+
+    }
+
+    /**
+     * Returns the packets and bytes copied by the given groups, summing
+     * the counters of their rules read with a single query.
+     *
+     * @param bridgeId the OpenFlow device of the integration bridge
+     * @param groupMirrors the names of the mirrors of the groups
+     * @return the packets and bytes of each group having rules, keyed by mirror name
+     */
+    Map<String, long[]> mirrorCounters(DeviceId bridgeId, Set<String> groupMirrors) {
+        Map<Long, String> groups = Maps.newHashMap();
+        groupMirrors.forEach(mirror -> groups.merge(groupBits(mirror), mirror,
+                                                    (a, b) -> a.compareTo(b) <= 0 ? a : b));
+        Map<String, long[]> counters = Maps.newHashMap();
+        for (FlowEntry entry : flowRuleService.getFlowEntries(bridgeId)) {
+            String mirror = groups.get((entry.id().value() >>> INDEX_BITS) & GROUP_MASK);
+            if (entry.appId() == appId.id() && mirror != null) {
+                long[] mirrorCounters = counters.computeIfAbsent(mirror, k -> new long[2]);
+                mirrorCounters[0] += entry.packets();
+                mirrorCounters[1] += entry.bytes();
+            }
+        }
+        return counters;
+    }
+
+    /**
+     * Returns a rule of another application the mirror rules would
+     * bypass: in the same table, with a lower priority and a treatment
+     * other than NORMAL alone.
+     */
+    private Optional<FlowEntry> pipelineRule(Iterable<FlowEntry> entries) {
+        for (FlowEntry entry : entries) {
+            if (entry.appId() != appId.id() && entry.tableId() == TABLE && entry.priority() < PRIORITY
+                    && !isNormal(entry.treatment())) {
+                return Optional.of(entry);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static boolean isNormal(TrafficTreatment treatment) {
+        return treatment.allInstructions().equals(NORMAL.allInstructions()) && !treatment.clearedDeferred()
+                && treatment.tableTransition() == null && treatment.writeMetadata() == null
+                && treatment.metered() == null;
+    }
+
+    private Map<Long, List<FlowRule>> orphanRules(DeviceId bridgeId, Set<String> groupMirrors) {
+        Set<Long> groups = Sets.newHashSet();
+        groupMirrors.forEach(mirror -> groups.add(groupBits(mirror)));
+        Map<Long, List<FlowRule>> orphans = Maps.newHashMap();
+        for (FlowEntry entry : flowRuleService.getFlowEntries(bridgeId)) {
+            long groupBits = (entry.id().value() >>> INDEX_BITS) & GROUP_MASK;
+            if (entry.appId() == appId.id() && !groups.contains(groupBits)) {
+                orphans.computeIfAbsent(groupBits, k -> Lists.newArrayList()).add(entry);
+            }
+        }
+        return orphans;
+    }
+
+    /**
+     * Builds the rules of a group, one per user port, direction and VLAN.
+     * The traffic match restricts the rules of both directions, the
+     * remote hosts being the destination of the egress traffic and the
+     * source of the ingress one.
+     * The selectors are sorted, so that the same rules get the same
+     * cookies at every rewrite.
+     *
+     * @param appId the application owning the rules
+     * @param bridgeId the OpenFlow device of the integration bridge
+     * @param groupBits the hash of the group mirror name
+     * @param spec the mirror spec of the group
+     * @param userPorts the local user ports of the mirrored stacks
+     * @param probePort the port receiving the copies
+     * @return the rules of the group, ordered by cookie
+     */
+    static List<FlowRule> mirrorRules(ApplicationId appId, DeviceId bridgeId, long groupBits,
+                                      DStreaMonMirrorSpec spec, Map<DStreaMonStack, LocalPort> userPorts,
+                                      PortNumber probePort) {
+
+        List<VlanId> vlans = spec.vlans().isEmpty() ? Collections.singletonList(null) : spec.vlans();
+        Map<String, TrafficSelector> selectors = Maps.newTreeMap();
+        userPorts.forEach((stack, userPort) -> {
+            for (VlanId vlan : vlans) {
+                String vlanKey = vlan != null ? String.valueOf(vlan.toShort()) : "";
+                if (spec.mirrorsEgress()) {
+                    TrafficSelector.Builder selector = DefaultTrafficSelector.builder()
+                            .matchInPort(userPort.port())
+                            .matchEthSrc(stack.userMac());
+                    if (vlan != null) {
+                        selector.matchVlanId(vlan);
+                    }
+                    matchTraffic(selector, spec.match(), true);
+                    selectors.put("egress/" + userPort.port().toLong() + "/" + stack.userMac() + "/" + vlanKey,
+                                  selector.build());
+                }
+                if (spec.mirrorsIngress()) {
+                    TrafficSelector.Builder selector = DefaultTrafficSelector.builder()
+                            .matchEthDst(stack.userMac());
+                    if (vlan != null) {
+                        selector.matchVlanId(vlan);
+                    }
+                    matchTraffic(selector, spec.match(), false);
+                    selectors.put("ingress/" + stack.userMac() + "/" + vlanKey, selector.build());
+                }
+            }
+        });
+
+        TrafficTreatment treatment = DefaultTrafficTreatment.builder()
+                .setOutput(probePort)
+                .setOutput(PortNumber.NORMAL)
+                .build();
+        List<FlowRule> rules = Lists.newArrayList();
+        for (TrafficSelector selector : selectors.values()) {
+            rules.add(DefaultFlowRule.builder()
+                              .forDevice(bridgeId)
+                              .forTable(TABLE)
+                              .withCookie(cookie(appId.id(), groupBits, rules.size()))
+                              .withPriority(PRIORITY)
+                              .withSelector(selector)
+                              .withTreatment(treatment)
+                              .makePermanent()
+                              .build());
+        }
+        return rules;
+
+    }
+
+    private static void matchTraffic(TrafficSelector.Builder selector, DStreaMonTrafficMatch match,
+                                     boolean egress) {
+        if (match.isAll()) {
+            return;
+        }
+        selector.matchEthType(Ethernet.TYPE_IPV4);
+        if (match.remotePrefix() != null) {
+            if (egress) {
+                selector.matchIPDst(match.remotePrefix());
+            } else {
+                selector.matchIPSrc(match.remotePrefix());
+            }
+        }
+        if (match.ipProto() == DStreaMonTrafficMatch.ANY) {
+            return;
+        }
+        selector.matchIPProtocol((byte) match.ipProto());
+        boolean tcp = match.ipProto() == IPv4.PROTOCOL_TCP;
+        int srcPort = egress ? match.localPort() : match.remotePort();
+        int dstPort = egress ? match.remotePort() : match.localPort();
+        if (srcPort != DStreaMonTrafficMatch.ANY) {
+            if (tcp) {
+                selector.matchTcpSrc(TpPort.tpPort(srcPort));
+            } else {
+                selector.matchUdpSrc(TpPort.tpPort(srcPort));
+            }
+        }
+        if (dstPort != DStreaMonTrafficMatch.ANY) {
+            if (tcp) {
+                selector.matchTcpDst(TpPort.tpPort(dstPort));
+            } else {
+                selector.matchUdpDst(TpPort.tpPort(dstPort));
+            }
+        }
+    }
+
+    /**
+     * Applies the operations, waiting for the outcome on the calling
+     * thread, which is a device worker.
+     */
+    private boolean apply(FlowRuleOperations.Builder operations, String mirrorName) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        flowRuleService.apply(operations.build(new FlowRuleOperationsContext() {
+            @Override
+            public void onSuccess(FlowRuleOperations ops) {
+                result.complete(true);
+            }
+
+            @Override
+            public void onError(FlowRuleOperations ops) {
+                result.complete(false);
+            }
+        }));
+        try {
+            return result.get(APPLY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Impossible to apply the rules of mirror {}", mirrorName, e);
+            return false;
+        }
+    }
+
+    private boolean isGroupRule(FlowRule rule, long groupBits) {
+        return rule.appId() == appId.id() && ((rule.id().value() >>> INDEX_BITS) & GROUP_MASK) == groupBits;
+    }
+
+    /**
+     * Returns the cookie of a rule of a group.
+     *
+     * @param appId the id of the application owning the rule
+     * @param groupBits the hash of the group mirror name
+     * @param index the index of the rule in the group
+     * @return the cookie, made of the application id, the hash and the index
+     */
+    static long cookie(short appId, long groupBits, int index) {
+        return ((long) appId << 48) | (groupBits << INDEX_BITS) | index;
+    }
+
+    /**
+     * Returns the hash of a group mirror name carried by the cookies.
+     *
+     * @param mirrorName the group mirror name
+     * @return the 32 bits hash
+     */
+    static long groupBits(String mirrorName) {
+        return Hashing.murmur3_32().hashUnencodedChars(mirrorName).asInt() & GROUP_MASK;
+    }
+
+    /**
+     * Returns the mirror with the lowest name among the other groups
+     * whose rules would have the same cookies as the given one.
+     *
+     * @param mirrorName the group mirror name
+     * @param groupMirrors the names of the mirrors of the groups
+     * @return the name of the colliding mirror, empty if there is none
+     */
+    static Optional<String> collidingMirror(String mirrorName, Set<String> groupMirrors) {
+        long groupBits = groupBits(mirrorName);
+        String colliding = null;
+        for (String mirror : groupMirrors) {
+            if (!mirror.equals(mirrorName) && groupBits(mirror) == groupBits
+                    && (colliding == null || mirror.compareTo(colliding) < 0)) {
+                colliding = mirror;
+            }
+        }
+        return Optional.ofNullable(colliding);
+    }
+
+}
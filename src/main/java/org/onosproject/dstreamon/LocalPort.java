@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon;
+
+import com.google.common.base.MoreObjects;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.PortNumber;
+
+import java.util.Objects;
+
+/**
+ * Helper to store a port local to a compute node,
+ * together with the OVSDB device of the node.
+ */
+final class LocalPort {
+
+    private final DeviceId deviceId;
+    private final PortNumber port;
+
+    /**
+     * Creates a new org.onosproject.dstreamon.LocalPort.
+     *
+     * @param deviceId the OVSDB device hosting the port
+     * @param port the port number and name
+     */
+    LocalPort(DeviceId deviceId, PortNumber port) {
+        this.deviceId = deviceId;
+        this.port = port;
+    }
+
+    /**
+     * Returns the OVSDB device hosting the port.
+     *
+     * @return the device id
+     */
+    DeviceId deviceId() {
+        return deviceId;
+    }
+
+    /**
+     * Returns the port number.
+     *
+     * @return the port number
+     */
+    PortNumber port() {
+        return port;
+    }
+
+    /**
+     * Returns the OVS name of the port.
+     *
+     * @return the port name
+     */
+    String name() {
+        return port.name();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(deviceId, port);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof LocalPort) {
+            final LocalPort other = (LocalPort) obj;
+            return Objects.equals(this.deviceId, other.deviceId) &&
+                    Objects.equals(this.port, other.port);
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("deviceId", deviceId)
+                .add("port", port)
+                .toString();
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.onosproject.net.DeviceId;
+import org.onosproject.ovsdb.rfc.notation.Uuid;
+
+/**
+ * Bounded LRU cache of the local ports, keyed by Neutron port.
+ * It avoids to walk the OVSDB Interface table for every registration
+ * and tells which compute node hosts a Neutron port.
+ */
+final class LocalPortCache {
+
+    private final Cache<String, LocalPort> ports;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxSize the maximum number of cached ports
+     */
+    LocalPortCache(long maxSize) {
+        ports = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the local port of a Neutron port.
+     *
+     * @param portUuid the Neutron port uuid
+     * @return the local port, null if not cached
+     */
+    LocalPort get(Uuid portUuid) {
+        return ports.getIfPresent(NeutronPortNames.portKey(portUuid));
+    }
+
+    /**
+     * Caches a local port, if its name identifies a Neutron port.
+     *
+     * @param port the local port
+     */
+    void put(LocalPort port) {
+        NeutronPortNames.portKey(port.name()).ifPresent(key -> ports.put(key, port));
+    }
+
+    /**
+     * Forgets the local port with the given name, if it is cached on the
+     * given device: a port migrated to another compute node is plugged
+     * there before being removed from the previous one.
+     *
+     * @param deviceId the OVSDB device the port is removed from
+     * @param portName the local port name
+     */
+    void invalidate(DeviceId deviceId, String portName) {
+        NeutronPortNames.portKey(portName).ifPresent(key -> ports.asMap().computeIfPresent(
+                key, (k, port) -> port.deviceId().equals(deviceId) ? null : port));
+    }
+
+    /**
+     * Tells whether a Neutron port is cached, without counting a hit or a miss.
+     *
+     * @param portKey the port key
+     * @return true if the local port is cached
+     */
+    boolean contains(String portKey) {
+        return ports.asMap().containsKey(portKey);
+    }
+
+    /**
+     * Returns the hit and miss counters of the cache.
+     *
+     * @return the cache statistics
+     */
+    CacheStats stats() {
+        return ports.stats();
+    }
+
+    /**
+     * Returns the number of cached ports.
+     *
+     * @return the cache size
+     */
+    long size() {
+        return ports.size();
+    }
+
+    /**
+     * Empties the cache.
+     */
+    void clear() {
+        ports.invalidateAll();
+    }
+
+}
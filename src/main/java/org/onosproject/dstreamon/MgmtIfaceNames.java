@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.onosproject.ovsdb.rfc.notation.Uuid;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Helper to name the mgmt interfaces of the probes. The name is derived
+ * from the probe uuid, so every node of the cluster computes the same
+ * name without coordination and the name is free again once the probe
+ * releases its interface. It is made of a prefix and 60 bits of a hash
+ * of the probe uuid in base 32, 15 characters as allowed by Linux.
+ */
+public final class MgmtIfaceNames {
+
+    private static final String PREFIX = "dsm";
+    private static final int HASH_CHARS = 12;
+    private static final int BITS_PER_CHAR = 5;
+    private static final char[] ALPHABET = "0123456789abcdefghijklmnopqrstuv".toCharArray();
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private MgmtIfaceNames() {
+    }
+
+    /**
+     * Returns the name of the mgmt interface of a probe.
+     *
+     * @param probeUuid the probe uuid
+     * @return the interface name
+     */
+    public static String ifaceName(Uuid probeUuid) {
+        return hashedName(PREFIX, probeUuid.value().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns a name made of a prefix and 60 bits of a hash of the key
+     * in base 32.
+     *
+     * @param prefix the name prefix
+     * @param key the hashed key
+     * @return the name
+     */
+    static String hashedName(String prefix, String key) {
+        long hash = HASH.hashString(key, StandardCharsets.UTF_8).asLong();
+        char[] name = new char[prefix.length() + HASH_CHARS];
+        prefix.getChars(0, prefix.length(), name, 0);
+        for (int i = name.length - 1; i >= prefix.length(); i--) {
+            name[i] = ALPHABET[(int) (hash & (ALPHABET.length - 1))];
+            hash >>>= BITS_PER_CHAR;
+        }
+        return new String(name);
+    }
+
+    /**
+     * Tells whether a name is made of the prefix and of a hash
+     * in base 32, as built by {@link #hashedName(String, String)}.
+     *
+     * @param prefix the name prefix
+     * @param name the name
+     * @return true if the name follows the hashed naming
+     */
+    static boolean isHashedName(String prefix, String name) {
+        if (name == null || name.length() != prefix.length() + HASH_CHARS || !name.startsWith(prefix)) {
+            return false;
+        }
+        for (int i = prefix.length(); i < name.length(); i++) {
+            if (Character.digit(name.charAt(i), ALPHABET.length) < 0 || Character.isUpperCase(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tells whether a port is a D-StreaMon mgmt interface.
+     *
+     * @param portName the port name
+     * @return true if the port follows the mgmt interfaces naming
+     */
+    public static boolean isIfaceName(String portName) {
+        return isHashedName(PREFIX, portName);
+    }
+
+}
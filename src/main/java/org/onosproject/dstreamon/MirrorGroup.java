@@ -0,0 +1,204 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import org.onlab.packet.VlanId;
+import org.onosproject.ovsdb.rfc.notation.Uuid;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The stacks sending their traffic to the same probe port with the same
+ * mirror spec, served by a single OVS mirror selecting all their user
+ * ports, or by a set of flow rules. The mirror is named after the probe
+ * port and the spec, so that every node of the cluster computes the same name.
+ * An OVS mirror is rewritten under the alternate name of the group, so that
+ * the new mirror is created before the previous one is deleted.
+ */
+final class MirrorGroup {
+
+    private static final String PREFIX = "dsmm";
+    private static final String ALTERNATE = "#alternate";
+
+    private final Uuid probePortUuid;
+    private final DStreaMonMirrorSpec mirrorSpec;
+    private final String mirrorName;
+    private final String alternateMirrorName;
+
+    private MirrorGroup(Uuid probePortUuid, DStreaMonMirrorSpec mirrorSpec) {
+        this.probePortUuid = probePortUuid;
+        this.mirrorSpec = mirrorSpec;
+        String key = key(probePortUuid, mirrorSpec);
+        this.mirrorName = MgmtIfaceNames.hashedName(PREFIX, key);
+        this.alternateMirrorName = MgmtIfaceNames.hashedName(PREFIX, key + ALTERNATE);
+    }
+
+    /**
+     * Returns the group of a stack. The spec of the group carries the
+     * backend actually configuring the mirroring, so that the stacks
+     * relying on the default backend share the group of the stacks
+     * asking for it explicitly.
+     *
+     * @param stack the stack
+     * @param defaultBackend the backend configured for the application
+     * @return the mirror group
+     */
+    static MirrorGroup of(DStreaMonStack stack, DStreaMonMirrorSpec.Backend defaultBackend) {
+        DStreaMonMirrorSpec spec = stack.mirrorSpec();
+        if (spec.backend() == DStreaMonMirrorSpec.Backend.DEFAULT) {
+            spec = spec.withBackend(defaultBackend);
+        }
+        return new MirrorGroup(stack.probePortUuid(), spec);
+    }
+
+    /**
+     * Tells whether a mirror is the mirror of a group.
+     *
+     * @param mirrorName the mirror name
+     * @return true if the mirror follows the group naming
+     */
+    static boolean isMirrorName(String mirrorName) {
+        return MgmtIfaceNames.isHashedName(PREFIX, mirrorName);
+    }
+
+    /**
+     * Builds the hashed key from the values of the fields, which unlike
+     * the enum hash codes are the same on every node. The backend is
+     * appended only for the flow rules, and the traffic match only when
+     * it restricts the traffic, keeping the names of the mirrors created
+     * before they were introduced.
+     */
+    private static String key(Uuid probePortUuid, DStreaMonMirrorSpec spec) {
+        StringBuilder key = new StringBuilder(probePortUuid.value().toLowerCase(Locale.ROOT))
+                .append('/').append(spec.direction().name())
+                .append('/').append(spec.selectAll())
+                .append('/').append(spec.outputVlan() != null ? spec.outputVlan().toShort() : "");
+        for (VlanId vlan : spec.vlans()) {
+            key.append(',').append(vlan.toShort());
+        }
+        if (spec.backend() == DStreaMonMirrorSpec.Backend.FLOW_RULES) {
+            key.append('/').append(spec.backend().name());
+        }
+        DStreaMonTrafficMatch match = spec.match();
+        if (!match.isAll()) {
+            key.append('/').append(match.ipProto())
+                    .append('/').append(match.remotePrefix() != null ? match.remotePrefix().toString() : "")
+                    .append('/').append(match.localPort())
+                    .append('/').append(match.remotePort());
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns the probe port receiving the copies.
+     *
+     * @return the probe port uuid
+     */
+    Uuid probePortUuid() {
+        return probePortUuid;
+    }
+
+    /**
+     * Returns the mirror spec shared by the stacks.
+     *
+     * @return the mirror spec
+     */
+    DStreaMonMirrorSpec mirrorSpec() {
+        return mirrorSpec;
+    }
+
+    /**
+     * Returns the backend configuring the mirroring of the group.
+     *
+     * @return the backend, never DEFAULT
+     */
+    DStreaMonMirrorSpec.Backend backend() {
+        return mirrorSpec.backend();
+    }
+
+    /**
+     * Returns the name of the OVS mirror of the group.
+     *
+     * @return the mirror name
+     */
+    String mirrorName() {
+        return mirrorName;
+    }
+
+    /**
+     * Returns the names the OVS mirror of the group can have.
+     *
+     * @return the mirror name and the alternate one
+     */
+    List<String> mirrorNames() {
+        return ImmutableList.of(mirrorName, alternateMirrorName);
+    }
+
+    /**
+     * Returns the name of the OVS mirror of the group among the given mirrors.
+     *
+     * @param mirrors the names of the mirrors of a compute node
+     * @return the name of the existing mirror, the mirror name if there is none
+     */
+    String mirrorName(Set<String> mirrors) {
+        return !mirrors.contains(mirrorName) && mirrors.contains(alternateMirrorName) ?
+                alternateMirrorName : mirrorName;
+    }
+
+    /**
+     * Tells whether the OVS mirror of the group is among the given mirrors.
+     *
+     * @param mirrors the names of the mirrors of a compute node
+     * @return true if the mirror exists under any of its names
+     */
+    boolean hasMirror(Set<String> mirrors) {
+        return mirrors.contains(mirrorName) || mirrors.contains(alternateMirrorName);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(probePortUuid, mirrorSpec);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof MirrorGroup) {
+            final MirrorGroup other = (MirrorGroup) obj;
+            return  Objects.equals(this.probePortUuid, other.probePortUuid) &&
+                    Objects.equals(this.mirrorSpec, other.mirrorSpec);
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("probePortUuid", probePortUuid)
+                .add("mirrorSpec", mirrorSpec)
+                .add("mirrorName", mirrorName)
+                .toString();
+    }
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.dstreamon;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Strategy configuring on a compute node the mirroring of a group of
+ * stacks, either as an OVS mirror or as flow rules.
+ */
+interface MirroringBackend {
+
+    /**
+     * Writes the mirroring of a group, replacing the previous one: the
+     * traffic of the given user ports is copied to the probe port. With
+     * no user port or no probe port the mirroring of the group is removed.
+     *
+     * @param node the compute node
+     * @param group the mirror group
+     * @param userPorts the local user ports of the mirrored stacks
+     * @param probePort the local probe port, null if it is not on the node
+     * @param mirrors the names of the OVS mirrors of the node, kept up to date
+     * @return true if the mirroring has been written or removed
+     */
+    boolean writeMirror(ComputeNode node, MirrorGroup group, Map<DStreaMonStack, LocalPort> userPorts,
+                        LocalPort probePort, Set<String> mirrors);
+
+}
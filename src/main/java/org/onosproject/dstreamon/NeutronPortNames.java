@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon;
+
+import org.onosproject.ovsdb.rfc.notation.Uuid;
+
+import java.util.Optional;
+
+/**
+ * Helper to relate the OVS port names to the Neutron port uuids.
+ * Nova plugs the VM interfaces using as name a three characters
+ * prefix (tap, qvo, vhu) followed by the first 11 characters
+ * of the Neutron port uuid.
+ */
+public final class NeutronPortNames {
+
+    private static final int PREFIX_LENGTH = 3;
+    private static final int ID_LENGTH = 11;
+
+    private NeutronPortNames() {
+    }
+
+    /**
+     * Returns the key shared by a Neutron port and its OVS port.
+     *
+     * @param portUuid the Neutron port uuid
+     * @return the port key
+     */
+    public static String portKey(Uuid portUuid) {
+        String value = portUuid.value();
+        return value.length() > ID_LENGTH ? value.substring(0, ID_LENGTH) : value;
+    }
+
+    /**
+     * Returns the key of the Neutron port plugged as the given OVS port.
+     *
+     * @param portName the OVS port name
+     * @return the port key, if the name follows the Nova naming
+     */
+    public static Optional<String> portKey(String portName) {
+        if (portName == null || portName.length() != PREFIX_LENGTH + ID_LENGTH) {
+            return Optional.empty();
+        }
+        return Optional.of(portName.substring(PREFIX_LENGTH));
+    }
+
+}
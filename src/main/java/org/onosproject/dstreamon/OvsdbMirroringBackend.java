@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.dstreamon;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.onlab.packet.VlanId;
+import org.onosproject.net.DefaultAnnotations;
+import org.onosproject.net.behaviour.BridgeName;
+import org.onosproject.net.behaviour.DefaultMirroringDescription;
+import org.onosproject.net.behaviour.MirroringDescription;
+import org.onosproject.net.behaviour.MirroringName;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Mirroring backend writing a single OVS mirror per group on the
+ * integration bridge, through OVSDB. The driver can only add and delete
+ * the mirrors, thus a mirror is rewritten by adding the new one under
+ * the other name of the group and then deleting the previous one: the
+ * stacks of the group are never left unmirrored, and a failed add leaves
+ * the previous mirror in place.
+ */
+final class OvsdbMirroringBackend implements MirroringBackend {
+
+    /**
+     * Returns the first option of a spec the OVS mirrors can not honour:
+     * the select_all column is not written by the driver, the annotation
+     * ending up in external_ids. An empty port selection does not select
+     * all the traffic either, it selects none. A mirror selects by port
+     * and VLAN only, not by L3/L4 fields.
+     *
+     * @param spec the mirror spec
+     * @return the name of the unsupported option, empty if the spec is supported
+     */
+    static Optional<String> unsupportedOption(DStreaMonMirrorSpec spec) {
+        if (spec.selectAll()) {
+            return Optional.of("select_all");
+        }
+        if (!spec.match().isAll()) {
+            return Optional.of("match");
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean writeMirror(ComputeNode node, MirrorGroup group, Map<DStreaMonStack, LocalPort> userPorts,
+                               LocalPort probePort, Set<String> mirrors) {
+
+        Set<String> userPortNames = Sets.newTreeSet();
+        userPorts.values().forEach(port -> userPortNames.add(port.name()));
+
+        List<String> previous = Lists.newArrayList(group.mirrorNames());
+        previous.retainAll(mirrors);
+        if (userPortNames.isEmpty() || probePort == null) {
+            deleteMirrors(node, previous, mirrors);
+            return true;
+        }
+
+        /**
+         * Both names are in use only after an interrupted rewrite: one of the
+         * mirrors is deleted first, the other one keeps serving the group.
+         */
+        String mirrorName = group.mirrorNames().get(previous.contains(group.mirrorName()) ? 1 : 0);
+        if (previous.size() == group.mirrorNames().size()) {
+            deleteMirrors(node, Lists.newArrayList(mirrorName), mirrors);
+            previous.remove(mirrorName);
+        }
+        if (!node.mirroringConfig().addMirroring(
+                BridgeName.bridgeName(ComputeNode.BR_INT),
+                mirroringDescription(MirroringName.mirroringName(mirrorName), group.mirrorSpec(),
+                                     Lists.newArrayList(userPortNames), probePort.name()))) {
+            return false;
+        }
+        mirrors.add(mirrorName);
+        deleteMirrors(node, previous, mirrors);
+        return true;
+
+    }
+
+    private static void deleteMirrors(ComputeNode node, List<String> mirrorNames, Set<String> mirrors) {
+        for (String mirrorName : mirrorNames) {
+            node.mirroringConfig().deleteMirroring(MirroringName.mirroringName(mirrorName));
+            mirrors.remove(mirrorName);
+        }
+    }
+
+    private static MirroringDescription mirroringDescription(MirroringName mirroringName,
+                                                             DStreaMonMirrorSpec spec,
+                                                             List<String> userPortNames,
+                                                             String probePortName) {
+
+        /**
+         * OVS selects by source port the packets received from the vms,
+         * that is the ones sent by the vms, and by destination port the
+         * packets sent to them.
+         */
+        List<String> selectSrcPorts = spec.mirrorsEgress() ? userPortNames : Arrays.asList();
+        List<String> selectDstPorts = spec.mirrorsIngress() ? userPortNames : Arrays.asList();
+        List<VlanId> selectVlanIds = spec.vlans();
+        Optional<String> outputPort = spec.outputVlan() == null ? Optional.of(probePortName) : Optional.empty();
+        Optional<VlanId> outputVlan = Optional.ofNullable(spec.outputVlan());
+
+        return new DefaultMirroringDescription(
+                mirroringName,
+                selectSrcPorts,
+                selectDstPorts,
+                selectVlanIds,
+                outputPort,
+                outputVlan,
+                DefaultAnnotations.EMPTY
+        );
+
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.onosproject.dstreamon;
+
+import com.google.common.collect.Lists;
+import org.onosproject.ovsdb.rfc.notation.Uuid;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fixed size ring buffer of the counters sampled for a stack. The samples
+ * are copied in preallocated arrays, the oldest one being overwritten.
+ */
+final class StackStatsHistory {
+
+    private static final int COUNTERS = DStreaMonStackStats.Counter.values().length;
+
+    private final long[] times;
+    private final long[] values;
+    private String mirrorName;
+    private int next;
+    private int size;
+
+    /**
+     * Creates a new history.
+     *
+     * @param capacity the number of samples kept
+     */
+    StackStatsHistory(int capacity) {
+        this.times = new long[capacity];
+        this.values = new long[capacity * COUNTERS];
+    }
+
+    /**
+     * Records a sample, overwriting the oldest one when the history is full.
+     * The samples of another mirror, e.g. after a change of backend, are
+     * forgotten, their counters can not be compared.
+     *
+     * @param time the time of the sample, in milliseconds
+     * @param mirrorName the name of the mirror sampled
+     * @param sample the values of the counters, in the order of Counter
+     */
+    synchronized void add(long time, String mirrorName, long[] sample) {
+        if (!mirrorName.equals(this.mirrorName)) {
+            this.mirrorName = mirrorName;
+            size = 0;
+        }
+        times[next] = time;
+        System.arraycopy(sample, 0, values, next * COUNTERS, COUNTERS);
+        next = (next + 1) % times.length;
+        size = Math.min(size + 1, times.length);
+    }
+
+    /**
+     * Returns the samples recorded and the rates computed over them.
+     *
+     * @param stackUuid the stack uuid
+     * @return the statistics of the stack
+     */
+    synchronized DStreaMonStackStats snapshot(Uuid stackUuid) {
+        List<DStreaMonStackStats.Sample> samples = Lists.newArrayListWithCapacity(size);
+        int first = (next - size + times.length) % times.length;
+        for (int i = 0; i < size; i++) {
+            int slot = (first + i) % times.length;
+            samples.add(new DStreaMonStackStats.Sample(
+                    times[slot], Arrays.copyOfRange(values, slot * COUNTERS, (slot + 1) * COUNTERS)));
+        }
+        return new DStreaMonStackStats(stackUuid, mirrorName, samples);
+    }
+
+}
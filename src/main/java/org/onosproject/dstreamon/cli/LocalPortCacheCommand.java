@@ -16,19 +16,24 @@
 
 package org.onosproject.dstreamon.cli;
 
+import com.google.common.cache.CacheStats;
 import org.apache.karaf.shell.commands.Command;
 import org.onosproject.cli.AbstractShellCommand;
+import org.onosproject.dstreamon.DStreaMonService;
 
 /**
- * Sample Apache Karaf CLI command.
+ * Shows the hit and miss counters of the D-StreaMon local port cache.
  */
-@Command(scope = "onos", name = "sample",
-         description = "Sample Apache Karaf CLI command")
-public class AppCommand extends AbstractShellCommand {
+@Command(scope = "onos", name = "dstreamon-port-cache",
+         description = "Shows the hit and miss counters of the D-StreaMon local port cache")
+public class LocalPortCacheCommand extends AbstractShellCommand {
+
+    private static final String FORMAT = "hits=%d, misses=%d, hitRate=%.2f, evictions=%d";
 
     @Override
     protected void execute() {
-        print("Hello %s", "World");
+        CacheStats stats = get(DStreaMonService.class).getLocalPortCacheStats();
+        print(FORMAT, stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount());
     }
 
 }
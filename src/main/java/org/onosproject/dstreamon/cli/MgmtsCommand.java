@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.dstreamon.cli;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.apache.karaf.shell.commands.Argument;
+import org.apache.karaf.shell.commands.Command;
+import org.onosproject.cli.AbstractShellCommand;
+import org.onosproject.dstreamon.DStreaMonException;
+import org.onosproject.dstreamon.DStreaMonService;
+import org.onosproject.ovsdb.rfc.notation.Uuid;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Lists the mgmt interfaces of the D-StreaMon probes.
+ */
+@Command(scope = "onos", name = "dstreamon-mgmts",
+         description = "Lists the mgmt interfaces of the D-StreaMon probes")
+public class MgmtsCommand extends AbstractShellCommand {
+
+    private static final String FORMAT = "probe=%s, iface=%s, stacks=%d";
+
+    @Argument(index = 0, name = "probeUuid", description = "Probe uuid",
+            required = false, multiValued = false)
+    private String probeUuid = null;
+
+    @Override
+    protected void execute() {
+        DStreaMonService service = get(DStreaMonService.class);
+        Set<String> probes = new TreeSet<>();
+        if (probeUuid != null) {
+            probes.add(probeUuid);
+        } else {
+            service.getMgmtPorts().forEach(probe -> probes.add(probe.value()));
+        }
+
+        ArrayNode result = mapper().createArrayNode();
+        for (String probe : probes) {
+            String ifaceName;
+            try {
+                ifaceName = service.getMgmtPort(Uuid.uuid(probe));
+            } catch (DStreaMonException e) {
+                error("%s", e.getMessage());
+                continue;
+            }
+            int stacks = service.getStacksByProbe(Uuid.uuid(probe)).size();
+            if (outputJson()) {
+                result.addObject()
+                        .put("probe_uuid", probe)
+                        .put("iface", ifaceName)
+                        .put("stacks", stacks);
+            } else {
+                print(FORMAT, probe, ifaceName, stacks);
+            }
+        }
+        if (outputJson()) {
+            print("%s", result);
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.dstreamon.cli;
+
+import org.apache.karaf.shell.commands.Command;
+import org.apache.karaf.shell.commands.Option;
+import org.onosproject.cli.AbstractShellCommand;
+import org.onosproject.dstreamon.DStreaMonReconciliation;
+import org.onosproject.dstreamon.DStreaMonService;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Reconciles the D-StreaMon stacks with the compute nodes,
+ * or shows the progress of the reconciliation.
+ */
+@Command(scope = "onos", name = "dstreamon-reconcile",
+         description = "Reconciles the D-StreaMon stacks with the compute nodes")
+public class ReconcileCommand extends AbstractShellCommand {
+
+    private static final String FORMAT = "running=%s, runs=%d, stacks=%d/%d, mirrors=+%d/-%d, " +
+            "mgmtPorts=+%d/-%d, failures=%d, lastStarted=%d, lastCompleted=%d";
+
+    @Option(name = "-s", aliases = "--status", description = "Only shows the progress of the reconciliation",
+            required = false, multiValued = false)
+    private boolean statusOnly = false;
+
+    @Option(name = "-w", aliases = "--wait", description = "Waits the end of the reconciliation",
+            required = false, multiValued = false)
+    private boolean waitEnd = false;
+
+    @Override
+    protected void execute() {
+        DStreaMonService service = get(DStreaMonService.class);
+        if (!statusOnly) {
+            CompletableFuture<Void> future = service.reconcile();
+            if (waitEnd) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    error("Reconciliation failed: %s", e.getCause().getMessage());
+                }
+            }
+        }
+
+        DStreaMonReconciliation reconciliation = service.getReconciliation();
+        if (outputJson()) {
+            print("%s", mapper().createObjectNode()
+                    .put("running", reconciliation.isRunning())
+                    .put("runs", reconciliation.runs())
+                    .put("total_stacks", reconciliation.totalStacks())
+                    .put("checked_stacks", reconciliation.checkedStacks())
+                    .put("created_mirrors", reconciliation.createdMirrors())
+                    .put("removed_mirrors", reconciliation.removedMirrors())
+                    .put("created_mgmt_ports", reconciliation.createdMgmtPorts())
+                    .put("removed_mgmt_ports", reconciliation.removedMgmtPorts())
+                    .put("failures", reconciliation.failures())
+                    .put("last_started", reconciliation.lastStarted())
+                    .put("last_completed", reconciliation.lastCompleted()));
+            return;
+        }
+        print(FORMAT, reconciliation.isRunning(), reconciliation.runs(),
+              reconciliation.checkedStacks(), reconciliation.totalStacks(),
+              reconciliation.createdMirrors(), reconciliation.removedMirrors(),
+              reconciliation.createdMgmtPorts(), reconciliation.removedMgmtPorts(),
+              reconciliation.failures(), reconciliation.lastStarted(), reconciliation.lastCompleted());
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.dstreamon.cli;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.karaf.shell.commands.Argument;
+import org.apache.karaf.shell.commands.Command;
+import org.onosproject.cli.AbstractShellCommand;
+import org.onosproject.dstreamon.DStreaMonMirrorSpec;
+import org.onosproject.dstreamon.DStreaMonService;
+import org.onosproject.dstreamon.DStreaMonStack;
+import org.onosproject.dstreamon.DStreaMonStackState;
+import org.onosproject.dstreamon.DStreaMonTrafficMatch;
+import org.onosproject.ovsdb.rfc.notation.Uuid;
+
+/**
+ * Shows a D-StreaMon stack and the progress of its installation.
+ */
+@Command(scope = "onos", name = "dstreamon-stack",
+         description = "Shows a D-StreaMon stack and its status")
+public class StackCommand extends AbstractShellCommand {
+
+    @Argument(index = 0, name = "stackUuid", description = "Stack uuid",
+            required = true, multiValued = false)
+    private String stackUuid = null;
+
+    @Override
+    protected void execute() {
+        DStreaMonService service = get(DStreaMonService.class);
+        DStreaMonStack stack = service.getStack(Uuid.uuid(stackUuid));
+        if (stack == null) {
+            error("Stack %s does not exist", stackUuid);
+            return;
+        }
+        DStreaMonStackState state = service.getStackState(stack.stackUuid());
+
+        if (outputJson()) {
+            ObjectNode result = jsonForEntity(stack, DStreaMonStack.class);
+            if (state != null) {
+                result.put("status", state.status().name())
+                        .put("attempts", state.attempts());
+                if (state.error() != null) {
+                    result.put("error", state.error());
+                }
+            }
+            print("%s", result);
+            return;
+        }
+        DStreaMonMirrorSpec spec = stack.mirrorSpec();
+        print("stack=%s", stack.stackUuid().value());
+        print("  user=%s, ip=%s, mac=%s, port=%s", stack.userUuid().value(), stack.userIp(),
+              stack.userMac(), stack.userPortUuid().value());
+        print("  probe=%s, ip=%s, mac=%s, port=%s", stack.probeUuid().value(), stack.probeIp(),
+              stack.probeMac(), stack.probePortUuid().value());
+        print("  mirror: direction=%s, vlans=%s, outputVlan=%s, selectAll=%s, backend=%s",
+              spec.direction(), spec.vlans(), spec.outputVlan(), spec.selectAll(), spec.backend());
+        if (!spec.match().isAll()) {
+            DStreaMonTrafficMatch match = spec.match();
+            print("  match: ipProto=%d, remoteIp=%s, localPort=%d, remotePort=%d", match.ipProto(),
+                  match.remotePrefix(), match.localPort(), match.remotePort());
+        }
+        if (state == null) {
+            print("  status=%s", DStreaMonStackState.Status.INSTALLED);
+        } else {
+            print("  status=%s, attempts=%d%s", state.status(), state.attempts(),
+                  state.error() != null ? ", error=" + state.error() : "");
+        }
+    }
+
+}
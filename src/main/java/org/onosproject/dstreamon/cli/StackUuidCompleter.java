@@ -0,0 +1,60 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.dstreamon.cli;
+
+import org.apache.karaf.shell.console.Completer;
+import org.apache.karaf.shell.console.completer.StringsCompleter;
+import org.onosproject.cli.AbstractShellCommand;
+import org.onosproject.dstreamon.DStreaMonService;
+import org.onosproject.dstreamon.DStreaMonStack;
+import org.onosproject.ovsdb.rfc.notation.Uuid;
+
+import java.util.List;
+import java.util.SortedSet;
+
+/**
+ * Stack uuid completer. The stacks are read in order starting from the
+ * typed prefix, so that a large store is not loaded for a completion.
+ */
+public class StackUuidCompleter implements Completer {
+
+    private static final int MAX_CANDIDATES = 100;
+
+    @Override
+    public int complete(String buffer, int cursor, List<String> candidates) {
+        StringsCompleter delegate = new StringsCompleter();
+        SortedSet<String> strings = delegate.getStrings();
+        DStreaMonService service = AbstractShellCommand.get(DStreaMonService.class);
+
+        String prefix = buffer == null ? "" : buffer;
+        Uuid after = null;
+        if (!prefix.isEmpty()) {
+            after = Uuid.uuid(prefix);
+            if (service.getStack(after) != null) {
+                strings.add(prefix);
+            }
+        }
+        for (DStreaMonStack stack : service.getStacks(after)) {
+            String stackUuid = stack.stackUuid().value();
+            if (!stackUuid.startsWith(prefix) || strings.size() >= MAX_CANDIDATES) {
+                break;
+            }
+            strings.add(stackUuid);
+        }
+        return delegate.complete(buffer, cursor, candidates);
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.dstreamon.cli;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.collect.Iterables;
+import org.apache.karaf.shell.commands.Command;
+import org.apache.karaf.shell.commands.Option;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.MacAddress;
+import org.onosproject.cli.AbstractShellCommand;
+import org.onosproject.codec.JsonCodec;
+import org.onosproject.dstreamon.DStreaMonService;
+import org.onosproject.dstreamon.DStreaMonStack;
+import org.onosproject.dstreamon.DStreaMonStackState;
+import org.onosproject.ovsdb.rfc.notation.Uuid;
+
+import java.io.IOException;
+
+/**
+ * Lists the registered D-StreaMon stacks. The stacks are read from the
+ * store while they are printed, a page at a time when a limit is given.
+ */
+@Command(scope = "onos", name = "dstreamon-stacks",
+         description = "Lists the registered D-StreaMon stacks, ordered by uuid")
+public class StacksListCommand extends AbstractShellCommand {
+
+    private static final String FORMAT = "stack=%s, user=%s/%s, probe=%s/%s, mirror=%s/%s, status=%s";
+    private static final String NEXT_FORMAT = "next=%s";
+
+    @Option(name = "--probe", description = "Only the stacks of the probe",
+            required = false, multiValued = false)
+    private String probe = null;
+
+    @Option(name = "--user", description = "Only the stacks of the user vm",
+            required = false, multiValued = false)
+    private String user = null;
+
+    @Option(name = "--user-ip", description = "Only the stacks of the user vm ip",
+            required = false, multiValued = false)
+    private String userIp = null;
+
+    @Option(name = "--user-mac", description = "Only the stacks of the user vm mac",
+            required = false, multiValued = false)
+    private String userMac = null;
+
+    @Option(name = "--port", description = "Only the stacks of the user or probe port",
+            required = false, multiValued = false)
+    private String port = null;
+
+    @Option(name = "-s", aliases = "--status",
+            description = "Only the stacks in the status (PENDING, INSTALLED, FAILED, WITHDRAWING)",
+            required = false, multiValued = false)
+    private String status = null;
+
+    @Option(name = "-a", aliases = "--after", description = "Starts after the given stack uuid",
+            required = false, multiValued = false)
+    private String after = null;
+
+    @Option(name = "-l", aliases = "--limit", description = "Maximum number of stacks to list",
+            required = false, multiValued = false)
+    private int limit = 0;
+
+    @Override
+    protected void execute() {
+        DStreaMonService service = get(DStreaMonService.class);
+        DStreaMonStackState.Status wanted;
+        Iterable<DStreaMonStack> stacks;
+        try {
+            wanted = status == null ? null : DStreaMonStackState.Status.valueOf(status.toUpperCase());
+            stacks = lookup(service);
+        } catch (IllegalArgumentException e) {
+            error("Invalid filter: %s", e.getMessage());
+            return;
+        }
+        if (wanted != null) {
+            stacks = Iterables.filter(stacks, stack -> wanted == status(service.getStackState(stack.stackUuid())));
+        }
+        if (limit > 0) {
+            stacks = Iterables.limit(stacks, limit);
+        }
+
+        if (outputJson()) {
+            printJson(stacks);
+            return;
+        }
+        DStreaMonStack last = null;
+        int count = 0;
+        for (DStreaMonStack stack : stacks) {
+            print(FORMAT, stack.stackUuid().value(), stack.userIp(), stack.userMac(),
+                  stack.probeIp(), stack.probeMac(),
+                  stack.mirrorSpec().direction().name().toLowerCase(),
+                  stack.mirrorSpec().backend().name().toLowerCase(),
+                  status(service.getStackState(stack.stackUuid())));
+            last = stack;
+            count++;
+        }
+        if (limit > 0 && count == limit) {
+            print(NEXT_FORMAT, last.stackUuid().value());
+        }
+    }
+
+    /**
+     * Returns the stacks matching the index filters, or all of them
+     * read from the store in uuid order.
+     */
+    private Iterable<DStreaMonStack> lookup(DStreaMonService service) {
+        if (probe != null) {
+            return service.getStacksByProbe(Uuid.uuid(probe));
+        } else if (user != null) {
+            return service.getStacksByUser(Uuid.uuid(user));
+        } else if (userIp != null) {
+            return service.getStacksByUserIp(Ip4Address.valueOf(userIp));
+        } else if (userMac != null) {
+            return service.getStacksByUserMac(MacAddress.valueOf(userMac));
+        } else if (port != null) {
+            return service.getStacksByPort(Uuid.uuid(port));
+        }
+        return service.getStacks(after == null ? null : Uuid.uuid(after));
+    }
+
+    /**
+     * The stacks stored before the desired states were introduced
+     * have no state and are installed.
+     */
+    private static DStreaMonStackState.Status status(DStreaMonStackState state) {
+        return state == null ? DStreaMonStackState.Status.INSTALLED : state.status();
+    }
+
+    private void printJson(Iterable<DStreaMonStack> stacks) {
+        JsonCodec<DStreaMonStack> codec = codec(DStreaMonStack.class);
+        try {
+            JsonGenerator generator = mapper().getFactory().createGenerator(System.out);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            for (DStreaMonStack stack : stacks) {
+                mapper().writeTree(generator, codec.encode(stack, this));
+            }
+            generator.writeEndArray();
+            generator.close();
+            print("");
+        } catch (IOException e) {
+            error("Impossible to write the stacks: %s", e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.dstreamon.cli;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Lists;
+import org.apache.karaf.shell.commands.Argument;
+import org.apache.karaf.shell.commands.Command;
+import org.onosproject.cli.AbstractShellCommand;
+import org.onosproject.dstreamon.DStreaMonMetrics;
+import org.onosproject.dstreamon.DStreaMonService;
+
+import java.util.List;
+
+import static org.onosproject.dstreamon.DStreaMonMetrics.millis;
+
+/**
+ * Shows the latency of each phase of the D-StreaMon registrations,
+ * the in-flight gauges and the outcome counters.
+ */
+@Command(scope = "onos", name = "dstreamon-stats",
+         description = "Shows the latency of each phase of the D-StreaMon registrations and the counters")
+public class StatsCommand extends AbstractShellCommand {
+
+    private static final String TIMER_FORMAT =
+            "%-34s count=%d, rate1m=%.2f/s, p50=%.3fms, p99=%.3fms, p999=%.3fms, max=%.3fms";
+    private static final String VALUE_FORMAT = "%-34s %s";
+
+    @Argument(index = 0, name = "prefix", description = "Shows only the metrics starting with the prefix, " +
+            "e.g. ovsdb or convergence", required = false, multiValued = false)
+    private String prefix = "";
+
+    @Override
+    protected void execute() {
+        DStreaMonMetrics metrics = get(DStreaMonService.class).getMetrics();
+        if (outputJson()) {
+            printJson(metrics);
+            return;
+        }
+        metrics.metrics().forEach((name, metric) -> {
+            if (!name.startsWith(prefix)) {
+                return;
+            }
+            if (metric instanceof Timer) {
+                Timer timer = (Timer) metric;
+                Snapshot snapshot = timer.getSnapshot();
+                print(TIMER_FORMAT, name, timer.getCount(), timer.getOneMinuteRate(),
+                      millis(snapshot.getMedian()), millis(snapshot.get99thPercentile()),
+                      millis(snapshot.get999thPercentile()), millis(snapshot.getMax()));
+            } else if (metric instanceof Counter) {
+                print(VALUE_FORMAT, name, ((Counter) metric).getCount());
+            } else if (metric instanceof Gauge) {
+                print(VALUE_FORMAT, name, ((Gauge<?>) metric).getValue());
+            }
+        });
+    }
+
+    /**
+     * Prints the metrics encoded as the REST API does, keeping in each
+     * group only the metrics starting with the prefix.
+     */
+    private void printJson(DStreaMonMetrics metrics) {
+        ObjectNode result = codec(DStreaMonMetrics.class).encode(metrics, this);
+        for (JsonNode group : result) {
+            List<String> names = Lists.newArrayList(group.fieldNames());
+            names.removeIf(name -> !name.startsWith(prefix));
+            ((ObjectNode) group).retain(names);
+        }
+        print("%s", result);
+    }
+
+}
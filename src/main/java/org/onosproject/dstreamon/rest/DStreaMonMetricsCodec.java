@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon.rest;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.onosproject.codec.CodecContext;
+import org.onosproject.codec.JsonCodec;
+import org.onosproject.dstreamon.DStreaMonMetrics;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.onosproject.dstreamon.DStreaMonMetrics.millis;
+
+/**
+ * JSON codec of the metrics of the registrations and of the convergence:
+ * the timers, with their percentiles in milliseconds, the outcome counters
+ * and the in-flight gauges, keyed by name.
+ */
+public final class DStreaMonMetricsCodec extends JsonCodec<DStreaMonMetrics> {
+
+    static final String TIMERS = "timers";
+    static final String COUNTERS = "counters";
+    static final String GAUGES = "gauges";
+
+    @Override
+    public ObjectNode encode(DStreaMonMetrics metrics, CodecContext context) {
+        checkNotNull(metrics, "Metrics cannot be null");
+        ObjectNode result = context.mapper().createObjectNode();
+        ObjectNode timers = result.putObject(TIMERS);
+        ObjectNode counters = result.putObject(COUNTERS);
+        ObjectNode gauges = result.putObject(GAUGES);
+        metrics.metrics().forEach((name, metric) -> {
+            if (metric instanceof Timer) {
+                Timer timer = (Timer) metric;
+                Snapshot snapshot = timer.getSnapshot();
+                timers.putObject(name)
+                        .put("count", timer.getCount())
+                        .put("rate_1m", timer.getOneMinuteRate())
+                        .put("mean_ms", millis(snapshot.getMean()))
+                        .put("p50_ms", millis(snapshot.getMedian()))
+                        .put("p99_ms", millis(snapshot.get99thPercentile()))
+                        .put("p999_ms", millis(snapshot.get999thPercentile()))
+                        .put("max_ms", millis(snapshot.getMax()));
+            } else if (metric instanceof Counter) {
+                counters.put(name, ((Counter) metric).getCount());
+            } else if (metric instanceof Gauge) {
+                gauges.put(name, String.valueOf(((Gauge<?>) metric).getValue()));
+            }
+        });
+        return result;
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon.rest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Lists;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.Ip4Prefix;
+import org.onlab.packet.MacAddress;
+import org.onlab.packet.VlanId;
+import org.onosproject.codec.CodecContext;
+import org.onosproject.codec.JsonCodec;
+import org.onosproject.dstreamon.DStreaMonMirrorSpec;
+import org.onosproject.dstreamon.DStreaMonStack;
+import org.onosproject.dstreamon.DStreaMonTrafficMatch;
+import org.onosproject.ovsdb.rfc.notation.Uuid;
+
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * JSON codec of the stacks, mirroring the payload of the registration.
+ */
+public final class DStreaMonStackCodec extends JsonCodec<DStreaMonStack> {
+
+    static final String STACK_UUID = "stack_uuid";
+    static final String USER = "user";
+    static final String PROBE = "probe";
+    static final String UUID = "uuid";
+    static final String IP = "ip";
+    static final String MAC = "mac";
+    static final String PORT_UUID = "port_uuid";
+    static final String MIRROR = "mirror";
+    static final String DIRECTION = "direction";
+    static final String VLANS = "vlans";
+    static final String OUTPUT_VLAN = "output_vlan";
+    static final String SELECT_ALL = "select_all";
+    static final String BACKEND = "backend";
+    static final String MATCH = "match";
+    static final String IP_PROTO = "ip_proto";
+    static final String REMOTE_IP = "remote_ip";
+    static final String LOCAL_PORT = "local_port";
+    static final String REMOTE_PORT = "remote_port";
+
+    private static final String ERROR_MISSING = "%s field is missing";
+
+    @Override
+    public ObjectNode encode(DStreaMonStack stack, CodecContext context) {
+        checkNotNull(stack, "Stack cannot be null");
+        ObjectNode result = context.mapper().createObjectNode()
+                .put(STACK_UUID, stack.stackUuid().value());
+        result.putObject(USER)
+                .put(UUID, stack.userUuid().value())
+                .put(IP, stack.userIp().toString())
+                .put(MAC, stack.userMac().toString().toLowerCase())
+                .put(PORT_UUID, stack.userPortUuid().value());
+        result.putObject(PROBE)
+                .put(UUID, stack.probeUuid().value())
+                .put(IP, stack.probeIp().toString())
+                .put(MAC, stack.probeMac().toString().toLowerCase())
+                .put(PORT_UUID, stack.probePortUuid().value());
+        DStreaMonMirrorSpec spec = stack.mirrorSpec();
+        ObjectNode mirror = result.putObject(MIRROR)
+                .put(DIRECTION, spec.direction().name().toLowerCase())
+                .put(SELECT_ALL, spec.selectAll())
+                .put(BACKEND, spec.backend().name().toLowerCase());
+        ArrayNode vlans = mirror.putArray(VLANS);
+        spec.vlans().forEach(vlan -> vlans.add(vlan.toShort()));
+        if (spec.outputVlan() != null) {
+            mirror.put(OUTPUT_VLAN, spec.outputVlan().toShort());
+        }
+        DStreaMonTrafficMatch match = spec.match();
+        ObjectNode matchNode = mirror.putObject(MATCH)
+                .put(IP_PROTO, match.ipProto())
+                .put(LOCAL_PORT, match.localPort())
+                .put(REMOTE_PORT, match.remotePort());
+        if (match.remotePrefix() != null) {
+            matchNode.put(REMOTE_IP, match.remotePrefix().toString());
+        }
+        return result;
+    }
+
+    @Override
+    public DStreaMonStack decode(ObjectNode json, CodecContext context) {
+        if (json == null || !json.isObject()) {
+            return null;
+        }
+        JsonNode user = field(json, USER);
+        JsonNode probe = field(json, PROBE);
+        return new DStreaMonStack(Uuid.uuid(field(json, STACK_UUID).asText()),
+                                  Uuid.uuid(field(user, UUID).asText()),
+                                  Uuid.uuid(field(probe, UUID).asText()),
+                                  Ip4Address.valueOf(field(user, IP).asText()),
+                                  Ip4Address.valueOf(field(probe, IP).asText()),
+                                  MacAddress.valueOf(field(user, MAC).asText()),
+                                  MacAddress.valueOf(field(probe, MAC).asText()),
+                                  Uuid.uuid(field(user, PORT_UUID).asText()),
+                                  Uuid.uuid(field(probe, PORT_UUID).asText()),
+                                  mirrorSpec(json.get(MIRROR)));
+    }
+
+    /**
+     * Decodes the optional mirror spec, the missing fields taking
+     * the values of the default spec.
+     */
+    private static DStreaMonMirrorSpec mirrorSpec(JsonNode mirror) {
+        if (mirror == null || mirror.isNull()) {
+            return DStreaMonMirrorSpec.DEFAULT;
+        }
+        DStreaMonMirrorSpec.Direction direction = mirror.hasNonNull(DIRECTION) ?
+                DStreaMonMirrorSpec.Direction.valueOf(mirror.get(DIRECTION).asText().toUpperCase()) :
+                DStreaMonMirrorSpec.DEFAULT.direction();
+        List<VlanId> vlans = Lists.newArrayList();
+        if (mirror.hasNonNull(VLANS)) {
+            mirror.get(VLANS).forEach(vlan -> vlans.add(VlanId.vlanId((short) vlan.asInt())));
+        }
+        VlanId outputVlan = mirror.hasNonNull(OUTPUT_VLAN) ?
+                VlanId.vlanId((short) mirror.get(OUTPUT_VLAN).asInt()) : null;
+        return new DStreaMonMirrorSpec(direction, vlans, outputVlan,
+                                       mirror.path(SELECT_ALL).asBoolean(false),
+                                       mirror.hasNonNull(BACKEND) ?
+                                               DStreaMonMirrorSpec.Backend.valueOf(
+                                                       mirror.get(BACKEND).asText().toUpperCase()) :
+                                               DStreaMonMirrorSpec.Backend.DEFAULT,
+                                       match(mirror.get(MATCH)));
+    }
+
+    private static DStreaMonTrafficMatch match(JsonNode match) {
+        if (match == null || match.isNull()) {
+            return DStreaMonTrafficMatch.ALL;
+        }
+        return new DStreaMonTrafficMatch(match.path(IP_PROTO).asInt(DStreaMonTrafficMatch.ANY),
+                                         match.hasNonNull(REMOTE_IP) ?
+                                                 Ip4Prefix.valueOf(match.get(REMOTE_IP).asText()) : null,
+                                         match.path(LOCAL_PORT).asInt(DStreaMonTrafficMatch.ANY),
+                                         match.path(REMOTE_PORT).asInt(DStreaMonTrafficMatch.ANY));
+    }
+
+    private static JsonNode field(JsonNode json, String name) {
+        JsonNode node = json.get(name);
+        if (node == null || node.isNull()) {
+            throw new IllegalArgumentException(String.format(ERROR_MISSING, name));
+        }
+        return node;
+    }
+
+}
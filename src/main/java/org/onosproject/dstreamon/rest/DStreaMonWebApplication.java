@@ -26,6 +26,8 @@ import java.util.Set;
 public class DStreaMonWebApplication extends AbstractWebApplication {
     @Override
     public Set<Class<?>> getClasses() {
-        return getClasses(StackResource.class, MgmtInterfaceResource.class);
+        return getClasses(StackResource.class, MgmtInterfaceResource.class,
+                          OperationResource.class, ReconciliationResource.class,
+                          StatsResource.class, TelemetryResource.class);
     }
 }
@@ -16,6 +16,8 @@
 
 package org.onosproject.dstreamon.rest;
 
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.onosproject.dstreamon.DStreaMonException;
 import org.onosproject.dstreamon.DStreaMonService;
 import org.onosproject.ovsdb.rfc.notation.Uuid;
@@ -50,12 +52,10 @@ public class MgmtInterfaceResource extends AbstractWebResource {
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     public Response getMgmtPorts() {
-        Iterable<Uuid> probeUuids = get(DStreaMonService.class).getMgmtPorts();
-        /**
-         * FIXME
-         * Check if Uuid are serializable
-         */
-        return ok(encodeArray(Uuid.class, "probeUuids", probeUuids)).build();
+        ObjectNode result = mapper().createObjectNode();
+        ArrayNode probeUuids = result.putArray("probeUuids");
+        get(DStreaMonService.class).getMgmtPorts().forEach(probeUuid -> probeUuids.add(probeUuid.value()));
+        return ok(result).build();
     }
 
     /**
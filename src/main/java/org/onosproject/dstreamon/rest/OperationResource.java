@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon.rest;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.onosproject.dstreamon.DStreaMonException;
+import org.onosproject.dstreamon.DStreaMonOperation;
+import org.onosproject.dstreamon.DStreaMonService;
+import org.onosproject.ovsdb.rfc.notation.Uuid;
+import org.onosproject.rest.AbstractWebResource;
+import org.slf4j.Logger;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Web resource for polling the asynchronous operations.
+ */
+@Path("operations")
+public class OperationResource extends AbstractWebResource {
+
+    private static final Logger log = getLogger(OperationResource.class);
+    private static final String FAILED = "FAILED\n";
+
+    /**
+     * Retrieves the status of an asynchronous operation.
+     *
+     * @param operationId the operation id
+     * @return the result of the operation
+     */
+    @GET
+    @Path("{operationId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getOperation(@PathParam("operationId") String operationId) {
+        DStreaMonOperation operation = null;
+        try {
+            operation = get(DStreaMonService.class).getOperation(Uuid.uuid(operationId));
+        } catch (DStreaMonException e) {
+            log.info(e.getMessage());
+            return Response.status(Response.Status.NOT_FOUND).entity(FAILED).build();
+        }
+        ObjectNode result = mapper().createObjectNode()
+                .put("operation", operation.operationId().value())
+                .put("status", operation.status().name());
+        if (operation.error() != null) {
+            result.put("error", operation.error());
+        }
+        return ok(result).build();
+    }
+
+}
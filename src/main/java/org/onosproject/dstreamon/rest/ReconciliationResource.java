@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon.rest;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.onosproject.dstreamon.DStreaMonOperation;
+import org.onosproject.dstreamon.DStreaMonReconciliation;
+import org.onosproject.dstreamon.DStreaMonService;
+import org.onosproject.rest.AbstractWebResource;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.net.URI;
+
+/**
+ * Web resource for the reconciliation of the compute nodes.
+ */
+@Path("reconciliation")
+public class ReconciliationResource extends AbstractWebResource {
+
+    /**
+     * Starts a reconciliation in background.
+     *
+     * @return the operation tracking the reconciliation
+     */
+    @POST
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response reconcile() {
+        DStreaMonService service = get(DStreaMonService.class);
+        DStreaMonOperation operation = service.trackOperation(service.reconcile());
+        ObjectNode result = mapper().createObjectNode()
+                .put("operation", operation.operationId().value());
+        return Response.accepted(result)
+                .location(URI.create("operations/" + operation.operationId().value()))
+                .build();
+    }
+
+    /**
+     * Retrieves the progress of the reconciliation.
+     *
+     * @return the reconciliation counters
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getReconciliation() {
+        DStreaMonReconciliation reconciliation = get(DStreaMonService.class).getReconciliation();
+        ObjectNode result = mapper().createObjectNode()
+                .put("running", reconciliation.isRunning())
+                .put("runs", reconciliation.runs())
+                .put("total_stacks", reconciliation.totalStacks())
+                .put("checked_stacks", reconciliation.checkedStacks())
+                .put("created_mirrors", reconciliation.createdMirrors())
+                .put("removed_mirrors", reconciliation.removedMirrors())
+                .put("created_mgmt_ports", reconciliation.createdMgmtPorts())
+                .put("removed_mgmt_ports", reconciliation.removedMgmtPorts())
+                .put("failures", reconciliation.failures())
+                .put("last_started", reconciliation.lastStarted())
+                .put("last_completed", reconciliation.lastCompleted());
+        return ok(result).build();
+    }
+
+}
@@ -0,0 +1,620 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon.rest;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.collect.Lists;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.Ip4Prefix;
+import org.onlab.packet.MacAddress;
+import org.onlab.packet.VlanId;
+import org.onosproject.dstreamon.DStreaMonMirrorSpec;
+import org.onosproject.dstreamon.DStreaMonStack;
+import org.onosproject.dstreamon.DStreaMonTrafficMatch;
+import org.onosproject.ovsdb.rfc.notation.Uuid;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.onosproject.dstreamon.rest.DStreaMonStackCodec.BACKEND;
+import static org.onosproject.dstreamon.rest.DStreaMonStackCodec.DIRECTION;
+import static org.onosproject.dstreamon.rest.DStreaMonStackCodec.IP;
+import static org.onosproject.dstreamon.rest.DStreaMonStackCodec.IP_PROTO;
+import static org.onosproject.dstreamon.rest.DStreaMonStackCodec.LOCAL_PORT;
+import static org.onosproject.dstreamon.rest.DStreaMonStackCodec.MAC;
+import static org.onosproject.dstreamon.rest.DStreaMonStackCodec.MATCH;
+import static org.onosproject.dstreamon.rest.DStreaMonStackCodec.MIRROR;
+import static org.onosproject.dstreamon.rest.DStreaMonStackCodec.OUTPUT_VLAN;
+import static org.onosproject.dstreamon.rest.DStreaMonStackCodec.PORT_UUID;
+import static org.onosproject.dstreamon.rest.DStreaMonStackCodec.PROBE;
+import static org.onosproject.dstreamon.rest.DStreaMonStackCodec.REMOTE_IP;
+import static org.onosproject.dstreamon.rest.DStreaMonStackCodec.REMOTE_PORT;
+import static org.onosproject.dstreamon.rest.DStreaMonStackCodec.SELECT_ALL;
+import static org.onosproject.dstreamon.rest.DStreaMonStackCodec.STACK_UUID;
+import static org.onosproject.dstreamon.rest.DStreaMonStackCodec.USER;
+import static org.onosproject.dstreamon.rest.DStreaMonStackCodec.UUID;
+import static org.onosproject.dstreamon.rest.DStreaMonStackCodec.VLANS;
+
+/**
+ * Streaming decoder of the stack payloads. The fields are validated
+ * while they are read, without building the json tree of the body:
+ * besides the decoded stacks only the uuid strings are allocated.
+ */
+final class StackDecoder {
+
+    private static final String ERROR_MISSING = "missing field";
+    private static final String ERROR_UUID = "invalid uuid";
+    private static final String ERROR_IP = "invalid ipv4 address";
+    private static final String ERROR_PREFIX = "invalid ipv4 prefix";
+    private static final String ERROR_IP_PROTO = "invalid ip protocol";
+    private static final String ERROR_PORT = "invalid port";
+    private static final String ERROR_PORTS = "ports need ip_proto 6 (tcp) or 17 (udp)";
+    private static final String ERROR_MAC = "invalid mac address";
+    private static final String ERROR_OBJECT = "object expected";
+    private static final String ERROR_ARRAY = "array expected";
+    private static final String ERROR_STRING = "string expected";
+    private static final String ERROR_BOOLEAN = "boolean expected";
+    private static final String ERROR_DIRECTION = "invalid direction";
+    private static final String ERROR_VLAN = "invalid vlan id";
+    private static final String ERROR_BACKEND = "invalid backend";
+    private static final String ERROR_UNSUPPORTED = "not supported by the mirroring backends";
+    private static final String ERROR_TRAILING = "unexpected content after the body";
+
+    /**
+     * Slots of the decoded fields: the stack uuid, then uuid,
+     * ip, mac and port uuid of the user and of the probe.
+     */
+    private static final int STACK_FIELD = 0;
+    private static final int USER_FIELDS = 1;
+    private static final int PROBE_FIELDS = 5;
+    private static final int UUID_FIELD = 0;
+    private static final int IP_FIELD = 1;
+    private static final int MAC_FIELD = 2;
+    private static final int PORT_UUID_FIELD = 3;
+    private static final String[] FIELDS = {
+            STACK_UUID,
+            USER + "." + UUID, USER + "." + IP, USER + "." + MAC, USER + "." + PORT_UUID,
+            PROBE + "." + UUID, PROBE + "." + IP, PROBE + "." + MAC, PROBE + "." + PORT_UUID
+    };
+
+    private static final String MIRROR_DIRECTION = MIRROR + "." + DIRECTION;
+    private static final String MIRROR_VLANS = MIRROR + "." + VLANS;
+    private static final String MIRROR_OUTPUT_VLAN = MIRROR + "." + OUTPUT_VLAN;
+    private static final String MIRROR_SELECT_ALL = MIRROR + "." + SELECT_ALL;
+    private static final String MIRROR_BACKEND = MIRROR + "." + BACKEND;
+    private static final String MIRROR_MATCH = MIRROR + "." + MATCH;
+    private static final String MATCH_IP_PROTO = MIRROR_MATCH + "." + IP_PROTO;
+    private static final String MATCH_REMOTE_IP = MIRROR_MATCH + "." + REMOTE_IP;
+    private static final String MATCH_LOCAL_PORT = MIRROR_MATCH + "." + LOCAL_PORT;
+    private static final String MATCH_REMOTE_PORT = MIRROR_MATCH + "." + REMOTE_PORT;
+
+    private static final int MIN_VLAN = 1;
+    private static final int MAX_VLAN = 4094;
+
+    /**
+     * A truncated packet keeps at least its ethernet header.
+     */
+
+    private static final int MAX_IP_PROTO = 255;
+    private static final int MAX_PORT = 65535;
+    private static final int MAX_PREFIX_LENGTH = 32;
+
+    private static final int UUID_LENGTH = 36;
+    private static final int MAC_LENGTH = 17;
+    private static final int IP_OCTETS = 4;
+
+    private StackDecoder() {
+    }
+
+    /**
+     * Decodes a single stack, the body being a json object.
+     *
+     * @param parser the parser of the body
+     * @return the decoded stack
+     * @throws IOException if the body is not valid json
+     * @throws DecodingException if the stack is not valid
+     */
+    static DStreaMonStack decodeStack(JsonParser parser) throws IOException, DecodingException {
+        DStreaMonStack stack = readStack(parser, parser.nextToken(), new Object[FIELDS.length], -1);
+        endBody(parser);
+        return stack;
+    }
+
+    /**
+     * Decodes a batch of stacks, the body being a json array of objects.
+     * The stacks are decoded one at a time while the body is read.
+     *
+     * @param parser the parser of the body
+     * @param stacks the list receiving the decoded stacks
+     * @throws IOException if the body is not valid json
+     * @throws DecodingException if a stack is not valid
+     */
+    static void decodeStacks(JsonParser parser, List<DStreaMonStack> stacks)
+            throws IOException, DecodingException {
+        startArray(parser);
+        Object[] fields = new Object[FIELDS.length];
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            stacks.add(readStack(parser, token, fields, stacks.size()));
+        }
+        endBody(parser);
+    }
+
+    /**
+     * Decodes a batch of uuids, the body being a json array of strings.
+     *
+     * @param parser the parser of the body
+     * @param uuids the list receiving the decoded uuids
+     * @throws IOException if the body is not valid json
+     * @throws DecodingException if an uuid is not valid
+     */
+    static void decodeUuids(JsonParser parser, List<Uuid> uuids) throws IOException, DecodingException {
+        startArray(parser);
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            uuids.add(readUuid(parser, token, uuids.size(), ""));
+        }
+        endBody(parser);
+    }
+
+    /**
+     * Validates an uuid received out of the body, e.g. as query parameter.
+     *
+     * @param value the uuid string
+     * @param field the name of the parameter
+     * @return the uuid
+     * @throws DecodingException if the value is not a valid uuid
+     */
+    static Uuid decodeUuid(String value, String field) throws DecodingException {
+        if (!isUuid(value.toCharArray(), 0, value.length())) {
+            throw new DecodingException(field, ERROR_UUID);
+        }
+        return Uuid.uuid(value);
+    }
+
+    private static void startArray(JsonParser parser) throws IOException, DecodingException {
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new DecodingException("", ERROR_ARRAY);
+        }
+    }
+
+    private static void endBody(JsonParser parser) throws IOException, DecodingException {
+        if (parser.nextToken() != null) {
+            throw new DecodingException("", ERROR_TRAILING);
+        }
+    }
+
+    private static DStreaMonStack readStack(JsonParser parser, JsonToken token, Object[] fields, int index)
+            throws IOException, DecodingException {
+
+        if (token != JsonToken.START_OBJECT) {
+            throw new DecodingException(path(index, ""), ERROR_OBJECT);
+        }
+        Arrays.fill(fields, null);
+        DStreaMonMirrorSpec mirrorSpec = DStreaMonMirrorSpec.DEFAULT;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            token = parser.nextToken();
+            switch (name) {
+                case STACK_UUID:
+                    fields[STACK_FIELD] = readUuid(parser, token, index, STACK_UUID);
+                    break;
+                case USER:
+                    readVm(parser, token, fields, USER_FIELDS, index);
+                    break;
+                case PROBE:
+                    readVm(parser, token, fields, PROBE_FIELDS, index);
+                    break;
+                case MIRROR:
+                    mirrorSpec = readMirror(parser, token, index);
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] == null) {
+                throw new DecodingException(path(index, FIELDS[i]), ERROR_MISSING);
+            }
+        }
+
+        return new DStreaMonStack((Uuid) fields[STACK_FIELD],
+                                  (Uuid) fields[USER_FIELDS + UUID_FIELD],
+                                  (Uuid) fields[PROBE_FIELDS + UUID_FIELD],
+                                  (Ip4Address) fields[USER_FIELDS + IP_FIELD],
+                                  (Ip4Address) fields[PROBE_FIELDS + IP_FIELD],
+                                  (MacAddress) fields[USER_FIELDS + MAC_FIELD],
+                                  (MacAddress) fields[PROBE_FIELDS + MAC_FIELD],
+                                  (Uuid) fields[USER_FIELDS + PORT_UUID_FIELD],
+                                  (Uuid) fields[PROBE_FIELDS + PORT_UUID_FIELD],
+                                  mirrorSpec);
+
+    }
+
+    private static void readVm(JsonParser parser, JsonToken token, Object[] fields, int base, int index)
+            throws IOException, DecodingException {
+
+        String vm = base == USER_FIELDS ? USER : PROBE;
+        if (token != JsonToken.START_OBJECT) {
+            throw new DecodingException(path(index, vm), ERROR_OBJECT);
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            token = parser.nextToken();
+            switch (name) {
+                case UUID:
+                    fields[base + UUID_FIELD] = readUuid(parser, token, index, FIELDS[base + UUID_FIELD]);
+                    break;
+                case IP:
+                    fields[base + IP_FIELD] = readIp(parser, token, index, FIELDS[base + IP_FIELD]);
+                    break;
+                case MAC:
+                    fields[base + MAC_FIELD] = readMac(parser, token, index, FIELDS[base + MAC_FIELD]);
+                    break;
+                case PORT_UUID:
+                    fields[base + PORT_UUID_FIELD] = readUuid(parser, token, index,
+                                                              FIELDS[base + PORT_UUID_FIELD]);
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+
+    }
+
+    /**
+     * Reads the optional mirror spec, the missing fields taking
+     * the values of the default spec.
+     */
+    private static DStreaMonMirrorSpec readMirror(JsonParser parser, JsonToken token, int index)
+            throws IOException, DecodingException {
+
+        if (token == JsonToken.VALUE_NULL) {
+            return DStreaMonMirrorSpec.DEFAULT;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw new DecodingException(path(index, MIRROR), ERROR_OBJECT);
+        }
+        DStreaMonMirrorSpec.Direction direction = DStreaMonMirrorSpec.DEFAULT.direction();
+        List<VlanId> vlans = Collections.emptyList();
+        VlanId outputVlan = null;
+        boolean selectAll = false;
+        DStreaMonMirrorSpec.Backend backend = DStreaMonMirrorSpec.Backend.DEFAULT;
+        DStreaMonTrafficMatch match = DStreaMonTrafficMatch.ALL;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            token = parser.nextToken();
+            switch (name) {
+                case DIRECTION:
+                    direction = readEnum(parser, token, index, MIRROR_DIRECTION,
+                                         DStreaMonMirrorSpec.Direction.values(), ERROR_DIRECTION);
+                    break;
+                case VLANS:
+                    vlans = readVlans(parser, token, index);
+                    break;
+                case OUTPUT_VLAN:
+                    outputVlan = readVlan(parser, token, index, MIRROR_OUTPUT_VLAN);
+                    break;
+                case SELECT_ALL:
+                    if (token != JsonToken.VALUE_TRUE && token != JsonToken.VALUE_FALSE) {
+                        throw new DecodingException(path(index, MIRROR_SELECT_ALL), ERROR_BOOLEAN);
+                    }
+                    selectAll = token == JsonToken.VALUE_TRUE;
+                    if (selectAll) {
+                        throw new DecodingException(path(index, MIRROR_SELECT_ALL), ERROR_UNSUPPORTED);
+                    }
+                    break;
+                case BACKEND:
+                    backend = readEnum(parser, token, index, MIRROR_BACKEND,
+                                       DStreaMonMirrorSpec.Backend.values(), ERROR_BACKEND);
+                    break;
+                case MATCH:
+                    match = readMatch(parser, token, index);
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        return new DStreaMonMirrorSpec(direction, vlans, outputVlan, selectAll, backend, match);
+
+    }
+
+    /**
+     * Reads the optional L3/L4 fields of the mirrored traffic, the
+     * missing fields matching any value. The ports need TCP or UDP.
+     */
+    private static DStreaMonTrafficMatch readMatch(JsonParser parser, JsonToken token, int index)
+            throws IOException, DecodingException {
+
+        if (token == JsonToken.VALUE_NULL) {
+            return DStreaMonTrafficMatch.ALL;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw new DecodingException(path(index, MIRROR_MATCH), ERROR_OBJECT);
+        }
+        int ipProto = DStreaMonTrafficMatch.ANY;
+        Ip4Prefix remotePrefix = null;
+        int localPort = DStreaMonTrafficMatch.ANY;
+        int remotePort = DStreaMonTrafficMatch.ANY;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            token = parser.nextToken();
+            switch (name) {
+                case IP_PROTO:
+                    ipProto = (int) readInt(parser, token, index, MATCH_IP_PROTO, 0, MAX_IP_PROTO, ERROR_IP_PROTO);
+                    break;
+                case REMOTE_IP:
+                    remotePrefix = token == JsonToken.VALUE_NULL ? null : readPrefix(parser, token, index);
+                    break;
+                case LOCAL_PORT:
+                    localPort = (int) readInt(parser, token, index, MATCH_LOCAL_PORT, 0, MAX_PORT, ERROR_PORT);
+                    break;
+                case REMOTE_PORT:
+                    remotePort = (int) readInt(parser, token, index, MATCH_REMOTE_PORT, 0, MAX_PORT, ERROR_PORT);
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        if ((localPort != DStreaMonTrafficMatch.ANY || remotePort != DStreaMonTrafficMatch.ANY)
+                && !DStreaMonTrafficMatch.hasPorts(ipProto)) {
+            throw new DecodingException(path(index, MATCH_IP_PROTO), ERROR_PORTS);
+        }
+        return new DStreaMonTrafficMatch(ipProto, remotePrefix, localPort, remotePort);
+
+    }
+
+    private static <E extends Enum<E>> E readEnum(JsonParser parser, JsonToken token, int index, String field,
+                                                  E[] values, String error)
+            throws IOException, DecodingException {
+
+        expectString(token, index, field);
+        String text = parser.getText();
+        for (E value : values) {
+            if (value.name().equalsIgnoreCase(text)) {
+                return value;
+            }
+        }
+        throw new DecodingException(path(index, field), error);
+
+    }
+
+    private static List<VlanId> readVlans(JsonParser parser, JsonToken token, int index)
+            throws IOException, DecodingException {
+
+        if (token != JsonToken.START_ARRAY) {
+            throw new DecodingException(path(index, MIRROR_VLANS), ERROR_ARRAY);
+        }
+        List<VlanId> vlans = Lists.newArrayList();
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            vlans.add(readVlan(parser, token, index, MIRROR_VLANS));
+        }
+        return vlans;
+
+    }
+
+    private static VlanId readVlan(JsonParser parser, JsonToken token, int index, String field)
+            throws IOException, DecodingException {
+        return VlanId.vlanId((short) readInt(parser, token, index, field, MIN_VLAN, MAX_VLAN, ERROR_VLAN));
+    }
+
+    private static long readInt(JsonParser parser, JsonToken token, int index, String field,
+                                long min, long max, String error) throws IOException, DecodingException {
+
+        if (token != JsonToken.VALUE_NUMBER_INT
+                || parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+            throw new DecodingException(path(index, field), error);
+        }
+        long value = parser.getLongValue();
+        if (value < min || value > max) {
+            throw new DecodingException(path(index, field), error);
+        }
+        return value;
+
+    }
+
+    private static Uuid readUuid(JsonParser parser, JsonToken token, int index, String field)
+            throws IOException, DecodingException {
+
+        expectString(token, index, field);
+        if (!isUuid(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength())) {
+            throw new DecodingException(path(index, field), ERROR_UUID);
+        }
+        return Uuid.uuid(parser.getText());
+
+    }
+
+    private static boolean isUuid(char[] text, int offset, int length) {
+        if (length != UUID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = text[offset + i];
+            boolean valid = i == 8 || i == 13 || i == 18 || i == 23 ? c == '-' : Character.digit(c, 16) >= 0;
+            if (!valid) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Ip4Address readIp(JsonParser parser, JsonToken token, int index, String field)
+            throws IOException, DecodingException {
+
+        expectString(token, index, field);
+        int offset = parser.getTextOffset();
+        long address = parseIp(parser.getTextCharacters(), offset, offset + parser.getTextLength());
+        if (address < 0) {
+            throw new DecodingException(path(index, field), ERROR_IP);
+        }
+        return Ip4Address.valueOf((int) address);
+
+    }
+
+    /**
+     * Reads a prefix in CIDR notation, a plain address being a /32.
+     */
+    private static Ip4Prefix readPrefix(JsonParser parser, JsonToken token, int index)
+            throws IOException, DecodingException {
+
+        expectString(token, index, MATCH_REMOTE_IP);
+        char[] text = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int end = offset + parser.getTextLength();
+        int slash = offset;
+        while (slash < end && text[slash] != '/') {
+            slash++;
+        }
+        int length = MAX_PREFIX_LENGTH;
+        if (slash < end) {
+            length = 0;
+            for (int i = slash + 1; i < end; i++) {
+                if (text[i] < '0' || text[i] > '9' || i - slash > 2) {
+                    throw new DecodingException(path(index, MATCH_REMOTE_IP), ERROR_PREFIX);
+                }
+                length = length * 10 + text[i] - '0';
+            }
+            if (slash + 1 == end || length > MAX_PREFIX_LENGTH) {
+                throw new DecodingException(path(index, MATCH_REMOTE_IP), ERROR_PREFIX);
+            }
+        }
+        long address = parseIp(text, offset, slash);
+        if (address < 0) {
+            throw new DecodingException(path(index, MATCH_REMOTE_IP), ERROR_PREFIX);
+        }
+        return Ip4Prefix.valueOf((int) address, length);
+
+    }
+
+    /**
+     * Parses a dotted ipv4 address. The octets with leading zeros, e.g.
+     * 010.1.1.1, are rejected: other parsers read them as octal, so the
+     * address would not be the one the caller meant.
+     *
+     * @return the address, -1 if the text is not a valid address
+     */
+    private static long parseIp(char[] text, int offset, int end) {
+
+        long address = 0;
+        int octets = 0;
+        int i = offset;
+        while (i < end && octets < IP_OCTETS) {
+            int octet = 0;
+            int digits = 0;
+            while (i < end && text[i] >= '0' && text[i] <= '9' && digits < 3) {
+                octet = octet * 10 + text[i++] - '0';
+                digits++;
+            }
+            if (digits == 0 || octet > 255 || (digits > 1 && text[i - digits] == '0')) {
+                break;
+            }
+            address = address << 8 | octet;
+            octets++;
+            if (octets < IP_OCTETS) {
+                if (i == end || text[i] != '.') {
+                    break;
+                }
+                i++;
+            }
+        }
+        return octets == IP_OCTETS && i == end ? address : -1;
+
+    }
+
+    private static MacAddress readMac(JsonParser parser, JsonToken token, int index, String field)
+            throws IOException, DecodingException {
+
+        expectString(token, index, field);
+        char[] text = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        if (parser.getTextLength() != MAC_LENGTH) {
+            throw new DecodingException(path(index, field), ERROR_MAC);
+        }
+        long address = 0;
+        for (int i = 0; i < MAC_LENGTH; i++) {
+            char c = text[offset + i];
+            if (i % 3 == 2) {
+                if (c != ':' && c != '-') {
+                    throw new DecodingException(path(index, field), ERROR_MAC);
+                }
+                continue;
+            }
+            int digit = Character.digit(c, 16);
+            if (digit < 0) {
+                throw new DecodingException(path(index, field), ERROR_MAC);
+            }
+            address = address << 4 | digit;
+        }
+        return MacAddress.valueOf(address);
+
+    }
+
+    private static void expectString(JsonToken token, int index, String field) throws DecodingException {
+        if (token != JsonToken.VALUE_STRING) {
+            throw new DecodingException(path(index, field), ERROR_STRING);
+        }
+    }
+
+    /**
+     * Builds the path of a field, only when an error has to be reported.
+     */
+    private static String path(int index, String field) {
+        if (index < 0) {
+            return field;
+        }
+        return field.isEmpty() ? "[" + index + "]" : "[" + index + "]." + field;
+    }
+
+    /**
+     * Signals an invalid field of the payload.
+     */
+    static final class DecodingException extends Exception {
+
+        private static final long serialVersionUID = -4178220318950474632L;
+
+        private final String field;
+
+        /**
+         * Creates a new decoding exception.
+         *
+         * @param field the path of the invalid field, empty for the whole body
+         * @param message the error message
+         */
+        DecodingException(String field, String message) {
+            super(message);
+            this.field = field;
+        }
+
+        /**
+         * Returns the path of the invalid field.
+         *
+         * @return the field path
+         */
+        String field() {
+            return field;
+        }
+
+    }
+
+}
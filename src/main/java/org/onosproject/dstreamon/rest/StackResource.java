@@ -15,12 +15,27 @@
  */
 package org.onosproject.dstreamon.rest;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.MacAddress;
+import org.onosproject.codec.JsonCodec;
 import org.onosproject.dstreamon.DStreaMonException;
+import org.onosproject.dstreamon.DStreaMonMetrics;
+import org.onosproject.dstreamon.DStreaMonOperation;
 import org.onosproject.dstreamon.DStreaMonService;
 import org.onosproject.dstreamon.DStreaMonStack;
+import org.onosproject.dstreamon.DStreaMonStackState;
+import org.onosproject.dstreamon.DStreaMonStackStats;
+import org.onosproject.dstreamon.DStreaMonTelemetryAggregate;
 import org.onosproject.ovsdb.rfc.notation.Uuid;
 import org.onosproject.rest.AbstractWebResource;
 import org.slf4j.Logger;
@@ -32,11 +47,21 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
 
+import static org.onlab.metrics.MetricsUtil.startTimer;
+import static org.onlab.metrics.MetricsUtil.stopTimer;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
@@ -48,61 +73,50 @@ public class StackResource extends AbstractWebResource {
     private static final Logger log = getLogger(StackResource.class);
     private static final String INVALID_PARAMETER = "INVALID_PARAMETER\n";
     private static final String REGISTERED = "REGISTERED\n";
+    private static final String UNREGISTERED = "UNREGISTERED\n";
     private static final String FAILED = "FAILED\n";
     private static final String OK = "OK\n";
+    private static final String ERROR_LIMIT = "limit must be between 1 and %d";
+
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1000;
 
 
     /**
      * Registers the data of a new stack created through OpenStack Heat.
+     * The stack is installed in background. When async is requested the
+     * returned operation can be polled until the stack is installed.
      *
+     * @param async true to not wait the end of the registration
      * @param stream the input stream
      * @return the result of the operation
      */
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
-    public Response registerStack(InputStream stream) {
-
-        ObjectNode root = mapper().createObjectNode();
-        DStreaMonStack stack = null;
-        String stackUuid = null;
-        JsonNode vm = null;
-        String userUuid = null;
-        String userIp = null;
-        String userMac = null;
-        String userPortUuid = null;
-        String probeUuid = null;
-        String probeIp = null;
-        String probeMac = null;
-        String probePortUuid = null;
+    public Response registerStack(@QueryParam("async") boolean async,
+                                  InputStream stream) {
 
-        try {
+        DStreaMonStack stack;
 
-            root = (ObjectNode) mapper().readTree(stream);
-            stackUuid = root.get("stack_uuid").asText();
-            vm = root.get("user");
-            userUuid = vm.get("uuid").asText();
-            userIp = vm.get("ip").asText();
-            userMac = vm.get("mac").asText();
-            userPortUuid = vm.get("port_uuid").asText();
-            vm = root.get("probe");
-            probeUuid = vm.get("uuid").asText();
-            probeIp = vm.get("ip").asText();
-            probeMac = vm.get("mac").asText();
-            probePortUuid = vm.get("port_uuid").asText();
+        Timer.Context context = startTimer(decodeTimer());
+        try (JsonParser parser = mapper().getFactory().createParser(stream)) {
 
+            stack = StackDecoder.decodeStack(parser);
+
+        } catch (StackDecoder.DecodingException e) {
+            return invalidParameter(e.field(), e.getMessage());
         } catch (IOException e) {
-            e.printStackTrace();
-            return Response.ok(INVALID_PARAMETER).build();
+            return invalidParameter("", e.getMessage());
+        } finally {
+            stopTimer(context);
         }
 
 
         try {
-            stack = DStreaMonStack
-                    .dStreaMonStack(stackUuid, userUuid, probeUuid,
-                                    userIp, probeIp,
-                                    userMac, probeMac,
-                                    userPortUuid, probePortUuid);
             DStreaMonService service = get(DStreaMonService.class);
+            if (async) {
+                return accepted(service.trackOperation(service.registerStackAsync(stack)));
+            }
             service.registerStack(stack);
 
         } catch (Exception e) {
@@ -114,35 +128,238 @@ public class StackResource extends AbstractWebResource {
 
     }
 
+    /**
+     * Registers a batch of stacks created through OpenStack Heat.
+     *
+     * @param stream the input stream
+     * @return the result of the operation for each stack
+     */
+    @POST
+    @Path("batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response registerStacks(InputStream stream) {
+
+        List<DStreaMonStack> stacks = Lists.newArrayList();
+
+        Timer.Context context = startTimer(decodeTimer());
+        try (JsonParser parser = mapper().getFactory().createParser(stream)) {
+
+            StackDecoder.decodeStacks(parser, stacks);
+
+        } catch (StackDecoder.DecodingException e) {
+            return invalidParameter(e.field(), e.getMessage());
+        } catch (IOException e) {
+            return invalidParameter("", e.getMessage());
+        } finally {
+            stopTimer(context);
+        }
+
+        Map<Uuid, String> failures = get(DStreaMonService.class).registerStacks(stacks);
+
+        ObjectNode result = mapper().createObjectNode();
+        ArrayNode results = result.putArray("stacks");
+        for (DStreaMonStack stack : stacks) {
+            ObjectNode node = results.addObject().put("stack_uuid", stack.stackUuid().value());
+            String error = failures.get(stack.stackUuid());
+            if (error == null) {
+                node.put("result", REGISTERED.trim());
+            } else {
+                node.put("result", FAILED.trim());
+                node.put("error", error);
+            }
+        }
+        return ok(result).build();
+
+    }
+
+    /**
+     * Returns the timer of the JSON decoding of the registrations.
+     */
+    private Timer decodeTimer() {
+        return get(DStreaMonService.class).getMetrics().timer(DStreaMonMetrics.REST, "decodeStacks");
+    }
+
+    /**
+     * Answers 400 Bad Request, telling which field is invalid.
+     */
+    private Response invalidParameter(String field, String error) {
+        log.info("Invalid parameter {}: {}", field, error);
+        ObjectNode result = mapper().createObjectNode()
+                .put("result", INVALID_PARAMETER.trim())
+                .put("field", field)
+                .put("error", error);
+        return Response.status(Response.Status.BAD_REQUEST).entity(result).build();
+    }
+
     /**
      * Uregisters a stack  previously created.
      *
      * @param stackUuid the stack uuid
+     * @param async true to not wait the end of the unregistration
      * @return the result of the operation
      */
     @DELETE
     @Path("{stackUuid}")
-    public Response unregisterStack(@PathParam("stackUuid") String stackUuid) {
+    public Response unregisterStack(@PathParam("stackUuid") String stackUuid,
+                                    @QueryParam("async") boolean async) {
 
         log.info("Unmarshaled Stack Uuid {}", stackUuid);
+        DStreaMonService service = get(DStreaMonService.class);
+        if (async) {
+            return accepted(service.trackOperation(service.unregisterStackAsync(Uuid.uuid(stackUuid))));
+        }
+        try {
+            service.unregisterStack(Uuid.uuid(stackUuid));
+        } catch (DStreaMonException e) {
+            log.info(e.getMessage());
+            return Response.ok(FAILED).build();
+        }
         return Response.ok(OK).build();
 
     }
 
     /**
-     * Returns the uuids of the registered stacks.
+     * Unregisters a batch of stacks previously created.
+     * The unknown stacks are considered already unregistered.
+     *
+     * @param stream the input stream, a json array of stack uuids
+     * @return the result of the operation for each stack
+     */
+    @DELETE
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response unregisterStacks(InputStream stream) {
+
+        List<Uuid> stackUuids = Lists.newArrayList();
+
+        try (JsonParser parser = mapper().getFactory().createParser(stream)) {
+
+            StackDecoder.decodeUuids(parser, stackUuids);
+
+        } catch (StackDecoder.DecodingException e) {
+            return invalidParameter(e.field(), e.getMessage());
+        } catch (IOException e) {
+            return invalidParameter("", e.getMessage());
+        }
+
+        Map<Uuid, String> failures = get(DStreaMonService.class).unregisterStacks(stackUuids);
+
+        ObjectNode result = mapper().createObjectNode();
+        ArrayNode results = result.putArray("stacks");
+        for (Uuid stackUuid : stackUuids) {
+            ObjectNode node = results.addObject().put("stack_uuid", stackUuid.value());
+            String error = failures.get(stackUuid);
+            if (error == null) {
+                node.put("result", UNREGISTERED.trim());
+            } else {
+                node.put("result", FAILED.trim());
+                node.put("error", error);
+            }
+        }
+        return ok(result).build();
+
+    }
+
+    private Response accepted(DStreaMonOperation operation) {
+        ObjectNode result = mapper().createObjectNode()
+                .put("operation", operation.operationId().value());
+        return Response.accepted(result)
+                .location(URI.create("operations/" + operation.operationId().value()))
+                .build();
+    }
+
+    /**
+     * Returns the registered stacks ordered by uuid, a page at a time:
+     * the next page starts after the "next" uuid of the previous one.
+     * When streamed the stacks are written while they are read from the
+     * store. When filtered by probe, user vm, user ip, user mac or port
+     * only the uuids of the matching stacks are returned.
      *
+     * @param limit the maximum number of stacks of the page
+     * @param after the uuid preceding the first stack of the page
+     * @param stream true to stream the stacks, all of them if no limit is given
+     * @param probe the probe uuid
+     * @param user the user vm uuid
+     * @param userIp the user vm ip
+     * @param userMac the user vm mac
+     * @param port the user or probe port uuid
      * @return the result of the operation
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getStacks() {
-        Iterable<Uuid> stacks = get(DStreaMonService.class).getStacks();
-        /**
-         * FIXME
-         * Check if Uuid are serializable
-         */
-        return ok(encodeArray(Uuid.class, "stacks", stacks)).build();
+    public Response getStacks(@QueryParam("limit") Integer limit,
+                              @QueryParam("after") String after,
+                              @QueryParam("stream") boolean stream,
+                              @QueryParam("probe") String probe,
+                              @QueryParam("user") String user,
+                              @QueryParam("userIp") String userIp,
+                              @QueryParam("userMac") String userMac,
+                              @QueryParam("port") String port) {
+        DStreaMonService service = get(DStreaMonService.class);
+        Set<DStreaMonStack> found = null;
+        Uuid cursor = null;
+        try {
+            if (probe != null) {
+                found = service.getStacksByProbe(Uuid.uuid(probe));
+            } else if (user != null) {
+                found = service.getStacksByUser(Uuid.uuid(user));
+            } else if (userIp != null) {
+                found = service.getStacksByUserIp(Ip4Address.valueOf(userIp));
+            } else if (userMac != null) {
+                found = service.getStacksByUserMac(MacAddress.valueOf(userMac));
+            } else if (port != null) {
+                found = service.getStacksByPort(Uuid.uuid(port));
+            }
+            if (after != null) {
+                cursor = StackDecoder.decodeUuid(after, "after");
+            }
+        } catch (StackDecoder.DecodingException e) {
+            return invalidParameter(e.field(), e.getMessage());
+        } catch (IllegalArgumentException e) {
+            log.info(e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST).entity(INVALID_PARAMETER).build();
+        }
+        if (found != null) {
+            ObjectNode result = mapper().createObjectNode();
+            ArrayNode uuids = result.putArray("stacks");
+            found.forEach(stack -> uuids.add(stack.stackUuid().value()));
+            return ok(result).build();
+        }
+        if (limit != null && (limit < 1 || limit > MAX_LIMIT)) {
+            return invalidParameter("limit", String.format(ERROR_LIMIT, MAX_LIMIT));
+        }
+
+        JsonCodec<DStreaMonStack> codec = codec(DStreaMonStack.class);
+        Iterable<DStreaMonStack> stacks = service.getStacks(cursor);
+        if (stream) {
+            Iterable<DStreaMonStack> streamed = limit == null ? stacks : Iterables.limit(stacks, limit);
+            StreamingOutput output = out -> {
+                try (JsonGenerator generator = mapper().getFactory().createGenerator(out)) {
+                    generator.writeStartObject();
+                    generator.writeArrayFieldStart("stacks");
+                    for (DStreaMonStack stack : streamed) {
+                        mapper().writeTree(generator, codec.encode(stack, this));
+                    }
+                    generator.writeEndArray();
+                    generator.writeEndObject();
+                }
+            };
+            return Response.ok(output, MediaType.APPLICATION_JSON_TYPE).build();
+        }
+
+        int pageSize = limit == null ? DEFAULT_LIMIT : limit;
+        ObjectNode result = mapper().createObjectNode();
+        ArrayNode page = result.putArray("stacks");
+        DStreaMonStack last = null;
+        for (DStreaMonStack stack : Iterables.limit(stacks, pageSize)) {
+            page.add(codec.encode(stack, this));
+            last = stack;
+        }
+        if (page.size() == pageSize) {
+            result.put("next", last.stackUuid().value());
+        }
+        return ok(result).build();
     }
 
     /**
@@ -155,12 +372,101 @@ public class StackResource extends AbstractWebResource {
     @Path("{stackUuid}")
     @Produces(MediaType.APPLICATION_JSON)
     public Response getStack(@PathParam("stackUuid") String stackUuid) {
-        DStreaMonStack stack = get(DStreaMonService.class).getStack(Uuid.uuid(stackUuid));
-        /**
-         * FIXME
-         * Check if DStreaMonStack is serializable
-         */
-        return ok(codec(DStreaMonStack.class).encode(stack, this)).build();
+        DStreaMonService service = get(DStreaMonService.class);
+        DStreaMonStack stack = service.getStack(Uuid.uuid(stackUuid));
+        if (stack == null) {
+            return Response.status(Response.Status.NOT_FOUND).entity(FAILED).build();
+        }
+        ObjectNode result = codec(DStreaMonStack.class).encode(stack, this);
+        DStreaMonStackState state = service.getStackState(stack.stackUuid());
+        if (state != null) {
+            result.put("status", state.status().name())
+                    .put("attempts", state.attempts());
+            if (state.error() != null) {
+                result.put("error", state.error());
+            }
+        }
+        return ok(result).build();
+    }
+
+    /**
+     * Retrieves the traffic statistics of a stack: the rates per second
+     * of the counters of the mirror of its group, of the probe port and
+     * of the mgmt interface, and their samples. The samples are kept by
+     * the node programming the stack, the other nodes ask them to it.
+     *
+     * @param stackUuid the uuid of the stack
+     * @return the result of the operation: not found if the stack is not
+     *         registered or not sampled, unavailable if the node sampling
+     *         it cannot be reached
+     */
+    @GET
+    @Path("{stackUuid}/stats")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getStackStats(@PathParam("stackUuid") String stackUuid) {
+        DStreaMonStackStats stats;
+        try {
+            stats = get(DStreaMonService.class).getStackStats(Uuid.uuid(stackUuid));
+        } catch (DStreaMonException e) {
+            log.info(e.getMessage());
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).entity(FAILED).build();
+        }
+        if (stats == null) {
+            return Response.status(Response.Status.NOT_FOUND).entity(FAILED).build();
+        }
+        ObjectNode result = mapper().createObjectNode().put("stack_uuid", stats.stackUuid().value());
+        ObjectNode rates = result.putObject("rates");
+        ArrayNode samples = result.putArray("samples");
+        result.put("group_mirror", stats.mirrorName());
+        for (DStreaMonStackStats.Counter counter : DStreaMonStackStats.Counter.values()) {
+            double rate = stats.rate(counter);
+            if (!Double.isNaN(rate)) {
+                rates.put(fieldName(counter), rate);
+            }
+        }
+        for (DStreaMonStackStats.Sample sample : stats.samples()) {
+            ObjectNode node = samples.addObject().put("time", sample.time());
+            for (DStreaMonStackStats.Counter counter : DStreaMonStackStats.Counter.values()) {
+                if (sample.value(counter) != DStreaMonStackStats.NOT_AVAILABLE) {
+                    node.put(fieldName(counter), sample.value(counter));
+                }
+            }
+        }
+        return ok(result).build();
+    }
+
+    /**
+     * Retrieves the aggregates of the measurements sent by the probe
+     * of a stack over the last minute, received by any node of the
+     * cluster. A probe without mgmt interface has no measurements.
+     *
+     * @param stackUuid the uuid of the stack
+     * @return the result of the operation: unavailable if a node of the
+     *         cluster cannot be reached
+     */
+    @GET
+    @Path("{stackUuid}/telemetry")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getStackTelemetry(@PathParam("stackUuid") String stackUuid) {
+        DStreaMonService service = get(DStreaMonService.class);
+        DStreaMonStack stack = service.getStack(Uuid.uuid(stackUuid));
+        if (stack == null) {
+            return Response.status(Response.Status.NOT_FOUND).entity(FAILED).build();
+        }
+        SortedMap<String, DStreaMonTelemetryAggregate> aggregates;
+        try {
+            aggregates = service.getProbeTelemetry(stack.probeUuid());
+        } catch (DStreaMonException e) {
+            log.info(e.getMessage());
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).entity(FAILED).build();
+        }
+        ObjectNode result = mapper().createObjectNode().put("stack_uuid", stackUuid);
+        return ok(TelemetryResource.encodeTelemetry(result, stack.probeUuid(),
+                                                    aggregates != null ? aggregates : Maps.newTreeMap())).build();
+    }
+
+    private static String fieldName(DStreaMonStackStats.Counter counter) {
+        return counter.name().toLowerCase(Locale.ROOT);
     }
 
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.dstreamon.rest;
+
+import org.onosproject.dstreamon.DStreaMonMetrics;
+import org.onosproject.dstreamon.DStreaMonService;
+import org.onosproject.rest.AbstractWebResource;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * Web resource for the metrics of the registrations and of the convergence.
+ */
+@Path("stats")
+public class StatsResource extends AbstractWebResource {
+
+    /**
+     * Retrieves the latency of each phase, with its percentiles in
+     * milliseconds, the in-flight gauges and the outcome counters.
+     *
+     * @return the D-StreaMon metrics
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getStats() {
+        DStreaMonMetrics metrics = get(DStreaMonService.class).getMetrics();
+        return ok(codec(DStreaMonMetrics.class).encode(metrics, this)).build();
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.onosproject.dstreamon.rest;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.collect.Maps;
+import org.onosproject.dstreamon.DStreaMonTelemetry;
+import org.onosproject.dstreamon.DStreaMonTelemetryWindow;
+import org.onosproject.ovsdb.rfc.notation.Uuid;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Streaming decoder of the telemetry batches, a json object keyed by
+ * probe uuid, each probe sending an array of samples for each metric.
+ * The samples are recorded in the windows of their metrics while the
+ * body is read, each one parsed as a primitive double: besides the probe
+ * uuids nothing is allocated.
+ */
+final class TelemetryDecoder {
+
+    private static final String ERROR_OBJECT = "object expected";
+    private static final String ERROR_ARRAY = "array expected";
+    private static final String ERROR_NUMBER = "number expected";
+    private static final String ERROR_TRAILING = "unexpected content after the body";
+    private static final String ERROR_PROBE = "unknown probe";
+    private static final String ERROR_METRIC = "invalid metric %s, at most %d metrics of %d characters";
+
+    private TelemetryDecoder() {
+    }
+
+    /**
+     * Decodes a batch, recording its samples. The samples of the unknown
+     * probes and of the invalid metrics are skipped and reported, while
+     * a malformed body stops the decoding, the samples read so far being
+     * recorded.
+     *
+     * @param parser the parser of the body
+     * @param probes resolves the telemetry of a probe, null if the probe is unknown
+     * @param now the time of the samples, in milliseconds
+     * @return the outcome of the batch
+     * @throws IOException if the body is not valid json
+     * @throws StackDecoder.DecodingException if the batch is not valid
+     */
+    static Result decodeSamples(JsonParser parser, Function<Uuid, DStreaMonTelemetry> probes, long now)
+            throws IOException, StackDecoder.DecodingException {
+
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new StackDecoder.DecodingException("", ERROR_OBJECT);
+        }
+        Result result = new Result();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String probeField = parser.getCurrentName();
+            Uuid probeUuid = StackDecoder.decodeUuid(probeField, probeField);
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new StackDecoder.DecodingException(probeField, ERROR_OBJECT);
+            }
+            DStreaMonTelemetry telemetry = probes.apply(probeUuid);
+            if (telemetry == null) {
+                parser.skipChildren();
+                result.failures.put(probeUuid, ERROR_PROBE);
+                continue;
+            }
+            readMetrics(parser, telemetry, probeField, now, result);
+        }
+        if (parser.nextToken() != null) {
+            throw new StackDecoder.DecodingException("", ERROR_TRAILING);
+        }
+        return result;
+
+    }
+
+    private static void readMetrics(JsonParser parser, DStreaMonTelemetry telemetry, String probeField, long now,
+                                    Result result) throws IOException, StackDecoder.DecodingException {
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String metric = parser.getCurrentName();
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new StackDecoder.DecodingException(probeField + "." + metric, ERROR_ARRAY);
+            }
+            DStreaMonTelemetryWindow window = telemetry.window(metric);
+            if (window == null) {
+                parser.skipChildren();
+                result.failures.putIfAbsent(telemetry.probeUuid(), String.format(
+                        ERROR_METRIC, metric, DStreaMonTelemetry.MAX_METRICS, DStreaMonTelemetry.MAX_METRIC_LENGTH));
+                continue;
+            }
+            JsonToken token;
+            int index = 0;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT) {
+                    throw new StackDecoder.DecodingException(
+                            probeField + "." + metric + "[" + index + "]", ERROR_NUMBER);
+                }
+                if (window.record(now, parser.getDoubleValue())) {
+                    result.accepted++;
+                } else {
+                    result.rejected++;
+                }
+                index++;
+            }
+        }
+
+    }
+
+    /**
+     * Outcome of a batch: the samples recorded, the samples rejected
+     * (not finite numbers) and the errors of the skipped probes.
+     */
+    static final class Result {
+
+        private long accepted;
+        private long rejected;
+        private final Map<Uuid, String> failures = Maps.newLinkedHashMap();
+
+        /**
+         * Returns the number of samples recorded.
+         *
+         * @return the accepted samples
+         */
+        long accepted() {
+            return accepted;
+        }
+
+        /**
+         * Returns the number of samples rejected.
+         *
+         * @return the rejected samples
+         */
+        long rejected() {
+            return rejected;
+        }
+
+        /**
+         * Returns the errors of the probes whose samples were skipped.
+         *
+         * @return the error messages, keyed by probe uuid
+         */
+        Map<Uuid, String> failures() {
+            return failures;
+        }
+
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.onosproject.dstreamon.rest;
+
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.onosproject.dstreamon.DStreaMonException;
+import org.onosproject.dstreamon.DStreaMonMetrics;
+import org.onosproject.dstreamon.DStreaMonService;
+import org.onosproject.dstreamon.DStreaMonTelemetryAggregate;
+import org.onosproject.dstreamon.DStreaMonTelemetryWindow;
+import org.onosproject.ovsdb.rfc.notation.Uuid;
+import org.onosproject.rest.AbstractWebResource;
+import org.slf4j.Logger;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.SortedMap;
+
+import static org.onlab.metrics.MetricsUtil.startTimer;
+import static org.onlab.metrics.MetricsUtil.stopTimer;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Web resource receiving the measurements of the probes, sent through
+ * their mgmt interfaces, and serving their aggregates.
+ */
+@Path("telemetry")
+public class TelemetryResource extends AbstractWebResource {
+
+    private static final Logger log = getLogger(TelemetryResource.class);
+    private static final String INVALID_PARAMETER = "INVALID_PARAMETER\n";
+    private static final String FAILED = "FAILED\n";
+
+    /**
+     * Records a batch of samples, keyed by probe uuid and metric.
+     * The samples are windowed by their arrival time, on this node.
+     *
+     * @param stream the input stream
+     * @return the number of samples recorded and the errors of the skipped probes
+     */
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response recordSamples(InputStream stream) {
+
+        DStreaMonService service = get(DStreaMonService.class);
+        TelemetryDecoder.Result batch;
+        Timer.Context context = startTimer(service.getMetrics().timer(DStreaMonMetrics.REST, "decodeTelemetry"));
+        try (JsonParser parser = mapper().getFactory().createParser(stream)) {
+
+            batch = TelemetryDecoder.decodeSamples(parser, service::getLocalProbeTelemetry, System.currentTimeMillis());
+
+        } catch (StackDecoder.DecodingException e) {
+            return invalidParameter(e.field(), e.getMessage());
+        } catch (IOException e) {
+            return invalidParameter("", e.getMessage());
+        } finally {
+            stopTimer(context);
+        }
+
+        ObjectNode result = mapper().createObjectNode()
+                .put("accepted", batch.accepted())
+                .put("rejected", batch.rejected());
+        ArrayNode probes = result.putArray("probes");
+        batch.failures().forEach((probeUuid, error) -> probes.addObject()
+                .put("probe_uuid", probeUuid.value())
+                .put("result", FAILED.trim())
+                .put("error", error));
+        return ok(result).build();
+
+    }
+
+    /**
+     * Retrieves the aggregates of the metrics of a probe over the last
+     * minute, received by any node of the cluster.
+     *
+     * @param probeUuid the probe uuid
+     * @return the result of the operation: unavailable if a node of the
+     *         cluster cannot be reached
+     */
+    @GET
+    @Path("{probeUuid}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getProbeTelemetry(@PathParam("probeUuid") String probeUuid) {
+        Uuid uuid;
+        SortedMap<String, DStreaMonTelemetryAggregate> aggregates;
+        try {
+            uuid = StackDecoder.decodeUuid(probeUuid, "probeUuid");
+            aggregates = get(DStreaMonService.class).getProbeTelemetry(uuid);
+        } catch (StackDecoder.DecodingException e) {
+            return invalidParameter(e.field(), e.getMessage());
+        } catch (DStreaMonException e) {
+            log.info(e.getMessage());
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).entity(FAILED).build();
+        }
+        if (aggregates == null) {
+            return Response.status(Response.Status.NOT_FOUND).entity(FAILED).build();
+        }
+        return ok(encodeTelemetry(mapper().createObjectNode(), uuid, aggregates)).build();
+    }
+
+    /**
+     * Encodes the aggregates of the metrics of a probe in the given node.
+     *
+     * @param result the json node receiving the aggregates
+     * @param probeUuid the probe uuid
+     * @param aggregates the aggregates of the metrics of the probe
+     * @return the json node
+     */
+    static ObjectNode encodeTelemetry(ObjectNode result, Uuid probeUuid,
+                                      SortedMap<String, DStreaMonTelemetryAggregate> aggregates) {
+        result.put("probe_uuid", probeUuid.value())
+                .put("window_ms", DStreaMonTelemetryWindow.WINDOW_BUCKETS * DStreaMonTelemetryWindow.BUCKET_MILLIS);
+        ObjectNode metrics = result.putObject("metrics");
+        aggregates.forEach((metric, aggregate) -> metrics.putObject(metric)
+                .put("count", aggregate.count())
+                .put("sum", aggregate.sum())
+                .put("mean", aggregate.mean())
+                .put("min", aggregate.min())
+                .put("max", aggregate.max())
+                .put("p50", aggregate.p50())
+                .put("p90", aggregate.p90())
+                .put("p99", aggregate.p99()));
+        return result;
+    }
+
+    /**
+     * Answers 400 Bad Request, telling which field is invalid.
+     */
+    private Response invalidParameter(String field, String error) {
+        log.info("Invalid parameter {}: {}", field, error);
+        ObjectNode result = mapper().createObjectNode()
+                .put("result", INVALID_PARAMETER.trim())
+                .put("field", field)
+                .put("error", error);
+        return Response.status(Response.Status.BAD_REQUEST).entity(result).build();
+    }
+
+}
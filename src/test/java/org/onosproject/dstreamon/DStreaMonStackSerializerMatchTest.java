@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon;
+
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.onosproject.dstreamon.DStreaMonStackSerializerTest.BACKEND;
+import static org.onosproject.dstreamon.DStreaMonStackSerializerTest.DIRECTION;
+import static org.onosproject.dstreamon.DStreaMonStackSerializerTest.MATCH;
+import static org.onosproject.dstreamon.DStreaMonStackSerializerTest.OUTPUT_VLAN;
+import static org.onosproject.dstreamon.DStreaMonStackSerializerTest.STACK_UUID;
+import static org.onosproject.dstreamon.DStreaMonStackSerializerTest.VLANS;
+import static org.onosproject.dstreamon.DStreaMonStackSerializerTest.compactHeader;
+import static org.onosproject.dstreamon.DStreaMonStackSerializerTest.read;
+import static org.onosproject.dstreamon.DStreaMonStackSerializerTest.stack;
+import static org.onosproject.dstreamon.DStreaMonStackSerializerTest.writeVlans;
+
+/**
+ * Tests of the formats of the stack serializer carrying the mirroring
+ * backend and the traffic match, and of the format preceding them.
+ */
+public class DStreaMonStackSerializerMatchTest {
+
+    /**
+     * Tests reading the format without backend.
+     */
+    @Test
+    public void testReadVersionNoBackend() {
+        Output output = compactHeader(2);
+        writeVlans(output);
+        assertEquals(stack(STACK_UUID, new DStreaMonMirrorSpec(DIRECTION, VLANS, OUTPUT_VLAN, false)),
+                     read(output));
+    }
+
+    /**
+     * Tests reading the format without traffic match.
+     */
+    @Test
+    public void testReadVersionNoMatch() {
+        Output output = compactHeader(3);
+        writeVlans(output);
+        output.writeByte(BACKEND.ordinal());
+        assertEquals(stack(STACK_UUID, new DStreaMonMirrorSpec(DIRECTION, VLANS, OUTPUT_VLAN, false, BACKEND)),
+                     read(output));
+    }
+
+    /**
+     * Tests reading the current format written field by field, so that
+     * a change of the format is noticed.
+     */
+    @Test
+    public void testReadVersionMatch() {
+        Output output = compactHeader(4);
+        writeVlans(output);
+        output.writeByte(BACKEND.ordinal());
+        output.writeVarInt(MATCH.ipProto(), true);
+        output.writeBoolean(true);
+        output.writeInt(MATCH.remotePrefix().address().toInt());
+        output.writeByte(MATCH.remotePrefix().prefixLength());
+        output.writeVarInt(MATCH.localPort(), true);
+        output.writeVarInt(MATCH.remotePort(), true);
+        assertEquals(stack(STACK_UUID, new DStreaMonMirrorSpec(DIRECTION, VLANS, OUTPUT_VLAN, false,
+                                                               BACKEND, MATCH)),
+                     read(output));
+    }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon;
+
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.onosproject.dstreamon.DStreaMonStackSerializerTest.DIRECTION;
+import static org.onosproject.dstreamon.DStreaMonStackSerializerTest.NAMESPACE;
+import static org.onosproject.dstreamon.DStreaMonStackSerializerTest.OUTPUT_VLAN;
+import static org.onosproject.dstreamon.DStreaMonStackSerializerTest.STACK_UUID;
+import static org.onosproject.dstreamon.DStreaMonStackSerializerTest.VLANS;
+import static org.onosproject.dstreamon.DStreaMonStackSerializerTest.compactHeader;
+import static org.onosproject.dstreamon.DStreaMonStackSerializerTest.read;
+import static org.onosproject.dstreamon.DStreaMonStackSerializerTest.stack;
+
+/**
+ * Tests of the mirror spec in the stack serializer: the spec is read back
+ * unchanged, and the format preceding it reads with the default spec.
+ */
+public class DStreaMonStackSerializerMirrorTest {
+
+    /**
+     * Tests that a stack with the direction, the vlans and the output vlan
+     * of its spec is read back unchanged.
+     */
+    @Test
+    public void testRoundTripMirrorSpec() {
+        DStreaMonStack stack = stack(STACK_UUID, new DStreaMonMirrorSpec(DIRECTION, VLANS, OUTPUT_VLAN, false));
+        assertEquals(stack, NAMESPACE.deserialize(NAMESPACE.serialize(stack)));
+    }
+
+    /**
+     * Tests reading the first compact format, without mirror spec.
+     */
+    @Test
+    public void testReadVersionNoSpec() {
+        Output output = compactHeader(1);
+        assertEquals(stack(STACK_UUID, DStreaMonMirrorSpec.DEFAULT), read(output));
+    }
+
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.google.common.collect.ImmutableList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.Ip4Prefix;
+import org.onlab.packet.IPv4;
+import org.onlab.packet.MacAddress;
+import org.onlab.packet.VlanId;
+import org.onlab.util.KryoNamespace;
+import org.onosproject.ovsdb.rfc.notation.Uuid;
+import org.onosproject.store.serializers.KryoNamespaces;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests of the Kryo serializer of the stacks: the current format and the
+ * formats written by the previous versions, which are still read.
+ */
+public class DStreaMonStackSerializerTest {
+
+    static final String STACK_UUID = "a68decaa-1c9c-4f4e-9b7e-0d5f6a4b3c21";
+    private static final String USER_UUID = "e3f57693-dc80-42d9-b6df-c963eb92bbe0";
+    private static final String PROBE_UUID = "b71e0c2d-5a3f-4e6b-8c9d-1f2e3a4b5c6d";
+    private static final String USER_PORT_UUID = "0c8e1f2a-3b4c-4d5e-8f6a-7b8c9d0e1f2a";
+    private static final String PROBE_PORT_UUID = "9f8e7d6c-5b4a-4392-8170-6f5e4d3c2b1a";
+    private static final Ip4Address USER_IP = Ip4Address.valueOf("10.0.10.60");
+    private static final Ip4Address PROBE_IP = Ip4Address.valueOf("10.0.10.61");
+    private static final MacAddress USER_MAC = MacAddress.valueOf("fa:16:3e:12:34:56");
+    private static final MacAddress PROBE_MAC = MacAddress.valueOf("fa:16:3e:ab:cd:ef");
+
+    static final DStreaMonMirrorSpec.Direction DIRECTION = DStreaMonMirrorSpec.Direction.BOTH;
+    static final ImmutableList<VlanId> VLANS = ImmutableList.of(VlanId.vlanId((short) 100),
+                                                                       VlanId.vlanId((short) 200));
+    static final VlanId OUTPUT_VLAN = VlanId.vlanId((short) 300);
+    static final DStreaMonMirrorSpec.Backend BACKEND = DStreaMonMirrorSpec.Backend.FLOW_RULES;
+    static final DStreaMonTrafficMatch MATCH = new DStreaMonTrafficMatch(
+            IPv4.PROTOCOL_TCP, Ip4Prefix.valueOf("192.168.1.0/24"), 80, 0);
+
+    private static final byte COMPACT_MARKER = 0;
+
+    private static final DStreaMonStackSerializer SERIALIZER = new DStreaMonStackSerializer();
+    static final KryoNamespace NAMESPACE = KryoNamespace.newBuilder()
+            .register(KryoNamespaces.API)
+            .nextId(KryoNamespaces.BEGIN_USER_CUSTOM_ID)
+            .register(SERIALIZER, new Class[]{DStreaMonStack.class})
+            .build();
+    private Kryo kryo;
+
+    @Before
+    public void setUp() {
+        kryo = NAMESPACE.borrow();
+    }
+
+    @After
+    public void tearDown() {
+        NAMESPACE.release(kryo);
+    }
+
+    /**
+     * Tests that a stack with every mirror option is read back unchanged.
+     */
+    @Test
+    public void testRoundTrip() {
+        DStreaMonStack stack = stack(STACK_UUID, new DStreaMonMirrorSpec(
+                DIRECTION, VLANS, OUTPUT_VLAN, false, BACKEND, MATCH));
+        assertEquals(stack, roundTrip(stack));
+    }
+
+    /**
+     * Tests that a stack with the default mirror spec is read back unchanged.
+     */
+    @Test
+    public void testRoundTripDefaultSpec() {
+        DStreaMonStack stack = stack(STACK_UUID, DStreaMonMirrorSpec.DEFAULT);
+        assertEquals(stack, roundTrip(stack));
+    }
+
+    /**
+     * Tests that the uuids not in canonical form are read back unchanged.
+     */
+    @Test
+    public void testRoundTripNonCanonicalUuids() {
+        DStreaMonStack stack = stack(STACK_UUID.toUpperCase(), DStreaMonMirrorSpec.DEFAULT);
+        DStreaMonStack read = roundTrip(stack);
+        assertEquals(stack, read);
+        assertEquals(STACK_UUID.toUpperCase(), read.stackUuid().value());
+    }
+
+    /**
+     * Tests that the stacks written through the namespace, as the store
+     * does, are read back unchanged.
+     */
+    @Test
+    public void testNamespaceRoundTrip() {
+        DStreaMonStack stack = stack(STACK_UUID, new DStreaMonMirrorSpec(
+                DIRECTION, VLANS, null, false, BACKEND, MATCH));
+        assertEquals(stack, NAMESPACE.deserialize(NAMESPACE.serialize(stack)));
+    }
+
+    /**
+     * Tests reading a stack written with the legacy format, made of
+     * nine class-tagged fields.
+     */
+    @Test
+    public void testReadLegacy() {
+        Output output = new Output(256);
+        kryo.writeClassAndObject(output, STACK_UUID);
+        kryo.writeClassAndObject(output, USER_UUID);
+        kryo.writeClassAndObject(output, PROBE_UUID);
+        kryo.writeClassAndObject(output, USER_IP);
+        kryo.writeClassAndObject(output, PROBE_IP);
+        kryo.writeClassAndObject(output, USER_MAC);
+        kryo.writeClassAndObject(output, PROBE_MAC);
+        kryo.writeClassAndObject(output, USER_PORT_UUID);
+        kryo.writeClassAndObject(output, PROBE_PORT_UUID);
+        assertEquals(stack(STACK_UUID, DStreaMonMirrorSpec.DEFAULT), read(output));
+    }
+
+    /**
+     * Tests that a stack missing a field is written with the legacy
+     * format and read back.
+     */
+    @Test
+    public void testRoundTripLegacy() {
+        DStreaMonStack stack = new DStreaMonStack(Uuid.uuid(STACK_UUID), Uuid.uuid(USER_UUID),
+                                                  Uuid.uuid(PROBE_UUID), USER_IP, PROBE_IP,
+                                                  USER_MAC, PROBE_MAC, Uuid.uuid(USER_PORT_UUID),
+                                                  Uuid.uuid(PROBE_PORT_UUID), null);
+        Output output = new Output(256);
+        SERIALIZER.write(kryo, output, stack);
+        assertEquals(stack(STACK_UUID, DStreaMonMirrorSpec.DEFAULT), read(output));
+    }
+
+    /**
+     * Tests that a format newer than the serializer is rejected.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testReadUnknownVersion() {
+        read(compactHeader(5));
+    }
+
+    private DStreaMonStack roundTrip(DStreaMonStack stack) {
+        Output output = new Output(256);
+        SERIALIZER.write(kryo, output, stack);
+        return read(output);
+    }
+
+    /**
+     * Reads a stack with a Kryo instance of the store namespace.
+     */
+    static DStreaMonStack read(Output output) {
+        Kryo reader = NAMESPACE.borrow();
+        try {
+            return SERIALIZER.read(reader, new Input(output.toBytes()), DStreaMonStack.class);
+        } finally {
+            NAMESPACE.release(reader);
+        }
+    }
+
+    static DStreaMonStack stack(String stackUuid, DStreaMonMirrorSpec spec) {
+        return new DStreaMonStack(Uuid.uuid(stackUuid), Uuid.uuid(USER_UUID), Uuid.uuid(PROBE_UUID),
+                                  USER_IP, PROBE_IP, USER_MAC, PROBE_MAC,
+                                  Uuid.uuid(USER_PORT_UUID), Uuid.uuid(PROBE_PORT_UUID), spec);
+    }
+
+    /**
+     * Writes the compact format up to the mirror spec, with canonical
+     * uuids: the first version has no flag telling it.
+     */
+    static Output compactHeader(int version) {
+        Output output = new Output(256);
+        output.writeByte(COMPACT_MARKER);
+        output.writeByte(version);
+        if (version > 1) {
+            output.writeBoolean(true);
+        }
+        writeUuid(output, STACK_UUID);
+        writeUuid(output, USER_UUID);
+        writeUuid(output, PROBE_UUID);
+        output.writeInt(USER_IP.toInt());
+        output.writeInt(PROBE_IP.toInt());
+        writeMac(output, USER_MAC);
+        writeMac(output, PROBE_MAC);
+        writeUuid(output, USER_PORT_UUID);
+        writeUuid(output, PROBE_PORT_UUID);
+        return output;
+    }
+
+    private static void writeUuid(Output output, String value) {
+        UUID uuid = UUID.fromString(value);
+        output.writeLong(uuid.getMostSignificantBits());
+        output.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static void writeMac(Output output, MacAddress mac) {
+        output.writeShort((int) (mac.toLong() >>> 32));
+        output.writeInt((int) mac.toLong());
+    }
+
+    static void writeVlans(Output output) {
+        output.writeByte(DIRECTION.ordinal());
+        output.writeBoolean(false);
+        output.writeBoolean(true);
+        output.writeShort(OUTPUT_VLAN.toShort());
+        output.writeVarInt(VLANS.size(), true);
+        VLANS.forEach(vlan -> output.writeShort(vlan.toShort()));
+    }
+
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.junit.Test;
+import org.onlab.packet.Ethernet;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.Ip4Prefix;
+import org.onlab.packet.IPv4;
+import org.onlab.packet.MacAddress;
+import org.onlab.packet.TpPort;
+import org.onlab.packet.VlanId;
+import org.onosproject.core.ApplicationId;
+import org.onosproject.core.DefaultApplicationId;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.PortNumber;
+import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.flow.FlowRule;
+import org.onosproject.net.flow.TrafficSelector;
+import org.onosproject.net.flow.criteria.Criteria;
+import org.onosproject.net.flow.criteria.Criterion;
+import org.onosproject.ovsdb.rfc.notation.Uuid;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the rules written by the flow rule backend: their selectors,
+ * their cookies and the specs they can not honour.
+ */
+public class FlowRuleMirroringBackendTest {
+
+    private static final ApplicationId APP_ID = new DefaultApplicationId(42, "org.onosproject.dstreamon");
+    private static final DeviceId BRIDGE_ID = DeviceId.deviceId("of:0000000000000001");
+    private static final PortNumber PROBE_PORT = PortNumber.portNumber(9);
+    private static final long GROUP_BITS = 0xdeadbeefL;
+
+    private static final DStreaMonStack FIRST_STACK = stack("a68decaa-1c9c-4f4e-9b7e-0d5f6a4b3c21",
+                                                            "0c8e1f2a-3b4c-4d5e-8f6a-7b8c9d0e1f2a",
+                                                            "fa:16:3e:12:34:56");
+    private static final DStreaMonStack SECOND_STACK = stack("3d2c1b0a-9f8e-4d7c-a6b5-4c3d2e1f0a9b",
+                                                             "5e6f7a8b-9c0d-4e1f-8a2b-3c4d5e6f7a8b",
+                                                             "fa:16:3e:65:43:21");
+    private static final LocalPort FIRST_PORT = new LocalPort(BRIDGE_ID, PortNumber.portNumber(3));
+    private static final LocalPort SECOND_PORT = new LocalPort(BRIDGE_ID, PortNumber.portNumber(4));
+
+    private static final List<VlanId> VLANS = ImmutableList.of(VlanId.vlanId((short) 100),
+                                                                VlanId.vlanId((short) 200));
+    private static final DStreaMonTrafficMatch MATCH = new DStreaMonTrafficMatch(
+            IPv4.PROTOCOL_TCP, Ip4Prefix.valueOf("192.168.1.0/24"), 80, DStreaMonTrafficMatch.ANY);
+
+    /**
+     * Tests the layout of the cookies: application id, group hash, index.
+     */
+    @Test
+    public void testCookie() {
+        assertEquals(0x002adeadbeef0003L, FlowRuleMirroringBackend.cookie(APP_ID.id(), GROUP_BITS, 3));
+        assertEquals(0x002affffffffffffL, FlowRuleMirroringBackend.cookie(APP_ID.id(), 0xffffffffL, 0xffff));
+        assertEquals(0x0000000000000000L, FlowRuleMirroringBackend.cookie((short) 0, 0, 0));
+    }
+
+    /**
+     * Tests that the hash of a mirror name fits in 32 bits and is the same at every call.
+     */
+    @Test
+    public void testGroupBits() {
+        long groupBits = FlowRuleMirroringBackend.groupBits("dsmm0123456789");
+        assertEquals(groupBits, FlowRuleMirroringBackend.groupBits("dsmm0123456789"));
+        assertEquals(0, groupBits >>> 32);
+        assertNotEquals(groupBits, FlowRuleMirroringBackend.groupBits("dsmm0123456788"));
+    }
+
+    /**
+     * Tests the single rule mirroring the traffic sent by a user vm.
+     */
+    @Test
+    public void testMirrorRulesEgress() {
+        List<FlowRule> rules = mirrorRules(DStreaMonMirrorSpec.DEFAULT, ImmutableList.of(FIRST_STACK));
+
+        assertEquals(1, rules.size());
+        FlowRule rule = rules.get(0);
+        assertEquals(BRIDGE_ID, rule.deviceId());
+        assertEquals(FlowRuleMirroringBackend.cookie(APP_ID.id(), GROUP_BITS, 0), rule.id().value());
+        assertEquals(APP_ID.id(), rule.appId());
+        assertTrue(rule.isPermanent());
+        assertEquals(ImmutableSet.of(Criteria.matchInPort(FIRST_PORT.port()),
+                                     Criteria.matchEthSrc(FIRST_STACK.userMac())),
+                     rule.selector().criteria());
+        assertEquals(DefaultTrafficTreatment.builder()
+                             .setOutput(PROBE_PORT)
+                             .setOutput(PortNumber.NORMAL)
+                             .build().allInstructions(),
+                     rule.treatment().allInstructions());
+    }
+
+    /**
+     * Tests the rule mirroring the traffic sent to a user vm.
+     */
+    @Test
+    public void testMirrorRulesIngress() {
+        List<FlowRule> rules = mirrorRules(spec(DStreaMonMirrorSpec.Direction.INGRESS, ImmutableList.of(),
+                                                DStreaMonTrafficMatch.ALL),
+                                           ImmutableList.of(FIRST_STACK));
+
+        assertEquals(1, rules.size());
+        assertEquals(ImmutableSet.of(Criteria.matchEthDst(FIRST_STACK.userMac())),
+                     rules.get(0).selector().criteria());
+    }
+
+    /**
+     * Tests that a rule is written per user port, direction and VLAN,
+     * with consecutive indexes.
+     */
+    @Test
+    public void testMirrorRulesVlans() {
+        List<FlowRule> rules = mirrorRules(spec(DStreaMonMirrorSpec.Direction.BOTH, VLANS,
+                                                DStreaMonTrafficMatch.ALL),
+                                           ImmutableList.of(FIRST_STACK, SECOND_STACK));
+
+        assertEquals(8, rules.size());
+        for (int i = 0; i < rules.size(); i++) {
+            assertEquals(FlowRuleMirroringBackend.cookie(APP_ID.id(), GROUP_BITS, i), rules.get(i).id().value());
+        }
+        Set<Criterion> vlans = Sets.newHashSet();
+        for (FlowRule rule : rules) {
+            vlans.add(rule.selector().getCriterion(Criterion.Type.VLAN_VID));
+        }
+        assertEquals(ImmutableSet.of(Criteria.matchVlanId(VLANS.get(0)), Criteria.matchVlanId(VLANS.get(1))),
+                     vlans);
+    }
+
+    /**
+     * Tests that the same stacks get the same rules and cookies whatever their order.
+     */
+    @Test
+    public void testMirrorRulesStable() {
+        DStreaMonMirrorSpec spec = spec(DStreaMonMirrorSpec.Direction.BOTH, VLANS, DStreaMonTrafficMatch.ALL);
+        List<FlowRule> rules = mirrorRules(spec, ImmutableList.of(FIRST_STACK, SECOND_STACK));
+        List<FlowRule> reversed = mirrorRules(spec, ImmutableList.of(SECOND_STACK, FIRST_STACK));
+
+        assertEquals(rules.size(), reversed.size());
+        for (int i = 0; i < rules.size(); i++) {
+            assertEquals(rules.get(i).id(), reversed.get(i).id());
+            assertEquals(rules.get(i).selector(), reversed.get(i).selector());
+        }
+    }
+
+    /**
+     * Tests that the traffic match restricts both directions, the remote
+     * hosts being the destination of the egress traffic and the source
+     * of the ingress one.
+     */
+    @Test
+    public void testMirrorRulesMatch() {
+        List<FlowRule> rules = mirrorRules(spec(DStreaMonMirrorSpec.Direction.BOTH, ImmutableList.of(), MATCH),
+                                           ImmutableList.of(FIRST_STACK));
+
+        assertEquals(2, rules.size());
+        TrafficSelector egress = selector(rules, Criterion.Type.IN_PORT);
+        assertEquals(ImmutableSet.of(Criteria.matchInPort(FIRST_PORT.port()),
+                                     Criteria.matchEthSrc(FIRST_STACK.userMac()),
+                                     Criteria.matchEthType(Ethernet.TYPE_IPV4),
+                                     Criteria.matchIPDst(MATCH.remotePrefix()),
+                                     Criteria.matchIPProtocol((byte) IPv4.PROTOCOL_TCP),
+                                     Criteria.matchTcpSrc(TpPort.tpPort(80))),
+                     egress.criteria());
+        TrafficSelector ingress = selector(rules, Criterion.Type.ETH_DST);
+        assertEquals(ImmutableSet.of(Criteria.matchEthDst(FIRST_STACK.userMac()),
+                                     Criteria.matchEthType(Ethernet.TYPE_IPV4),
+                                     Criteria.matchIPSrc(MATCH.remotePrefix()),
+                                     Criteria.matchIPProtocol((byte) IPv4.PROTOCOL_TCP),
+                                     Criteria.matchTcpDst(TpPort.tpPort(80))),
+                     ingress.criteria());
+    }
+
+    /**
+     * Tests the options the flow rules can not honour.
+     */
+    @Test
+    public void testUnsupportedOption() {
+        assertEquals(Optional.empty(), FlowRuleMirroringBackend.unsupportedOption(DStreaMonMirrorSpec.DEFAULT));
+        assertEquals(Optional.empty(), FlowRuleMirroringBackend.unsupportedOption(
+                spec(DStreaMonMirrorSpec.Direction.BOTH, VLANS, MATCH)));
+        assertEquals(Optional.of("output_vlan"), FlowRuleMirroringBackend.unsupportedOption(
+                new DStreaMonMirrorSpec(DStreaMonMirrorSpec.Direction.EGRESS, ImmutableList.of(),
+                                        VlanId.vlanId((short) 300), false)));
+        assertEquals(Optional.of("select_all"), FlowRuleMirroringBackend.unsupportedOption(
+                new DStreaMonMirrorSpec(DStreaMonMirrorSpec.Direction.EGRESS, ImmutableList.of(), null, true)));
+        assertEquals(Optional.of("match"), FlowRuleMirroringBackend.unsupportedOption(
+                spec(DStreaMonMirrorSpec.Direction.EGRESS, ImmutableList.of(),
+                     new DStreaMonTrafficMatch(DStreaMonTrafficMatch.ANY, null, 80, DStreaMonTrafficMatch.ANY))));
+        assertEquals(Optional.of("match"), FlowRuleMirroringBackend.unsupportedOption(
+                spec(DStreaMonMirrorSpec.Direction.EGRESS, ImmutableList.of(),
+                     new DStreaMonTrafficMatch(IPv4.PROTOCOL_ICMP, null, DStreaMonTrafficMatch.ANY, 80))));
+    }
+
+    /**
+     * Tests that the groups whose rules would have the same cookies are
+     * found, the one with the lowest name being returned.
+     */
+    @Test
+    public void testCollidingMirror() {
+        Map<Long, String> names = Maps.newHashMap();
+        String first = null;
+        String second = null;
+        for (int i = 0; second == null; i++) {
+            String name = "dsmm" + i;
+            first = names.putIfAbsent(FlowRuleMirroringBackend.groupBits(name), name);
+            if (first != null) {
+                second = name;
+            }
+        }
+
+        assertEquals(Optional.empty(), FlowRuleMirroringBackend.collidingMirror(first, ImmutableSet.of(first)));
+        assertEquals(Optional.empty(), FlowRuleMirroringBackend.collidingMirror(first,
+                                                                               ImmutableSet.of(first, "dsmm-")));
+        assertEquals(Optional.of(second), FlowRuleMirroringBackend.collidingMirror(first,
+                                                                                  ImmutableSet.of(first, second)));
+        assertEquals(Optional.of(first), FlowRuleMirroringBackend.collidingMirror(second,
+                                                                                 ImmutableSet.of(first, second)));
+    }
+
+    private static List<FlowRule> mirrorRules(DStreaMonMirrorSpec spec, List<DStreaMonStack> stacks) {
+        Map<DStreaMonStack, LocalPort> userPorts = Maps.newLinkedHashMap();
+        for (DStreaMonStack stack : stacks) {
+            userPorts.put(stack, stack.equals(FIRST_STACK) ? FIRST_PORT : SECOND_PORT);
+        }
+        return FlowRuleMirroringBackend.mirrorRules(APP_ID, BRIDGE_ID, GROUP_BITS, spec, userPorts, PROBE_PORT);
+    }
+
+    private static TrafficSelector selector(List<FlowRule> rules, Criterion.Type type) {
+        List<TrafficSelector> selectors = Lists.newArrayList();
+        for (FlowRule rule : rules) {
+            if (rule.selector().getCriterion(type) != null) {
+                selectors.add(rule.selector());
+            }
+        }
+        assertEquals(1, selectors.size());
+        return selectors.get(0);
+    }
+
+    private static DStreaMonMirrorSpec spec(DStreaMonMirrorSpec.Direction direction, List<VlanId> vlans,
+                                            DStreaMonTrafficMatch match) {
+        return new DStreaMonMirrorSpec(direction, vlans, null, false, DStreaMonMirrorSpec.Backend.FLOW_RULES,
+                                       match);
+    }
+
+    private static DStreaMonStack stack(String stackUuid, String userPortUuid, String userMac) {
+        return new DStreaMonStack(Uuid.uuid(stackUuid),
+                                  Uuid.uuid("e3f57693-dc80-42d9-b6df-c963eb92bbe0"),
+                                  Uuid.uuid("b71e0c2d-5a3f-4e6b-8c9d-1f2e3a4b5c6d"),
+                                  Ip4Address.valueOf("10.0.10.60"), Ip4Address.valueOf("10.0.10.61"),
+                                  MacAddress.valueOf(userMac), MacAddress.valueOf("fa:16:3e:ab:cd:ef"),
+                                  Uuid.uuid(userPortUuid), Uuid.uuid("9f8e7d6c-5b4a-4392-8170-6f5e4d3c2b1a"),
+                                  DStreaMonMirrorSpec.DEFAULT);
+    }
+
+}
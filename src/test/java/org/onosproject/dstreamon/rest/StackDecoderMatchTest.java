@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon.rest;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Test;
+import org.onlab.packet.Ip4Prefix;
+import org.onlab.packet.IPv4;
+import org.onosproject.dstreamon.DStreaMonMirrorSpec;
+import org.onosproject.dstreamon.DStreaMonTrafficMatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.onosproject.dstreamon.rest.StackDecoderTest.ERROR_STRING;
+import static org.onosproject.dstreamon.rest.StackDecoderTest.assertMatchRejected;
+import static org.onosproject.dstreamon.rest.StackDecoderTest.assertMirrorRejected;
+import static org.onosproject.dstreamon.rest.StackDecoderTest.body;
+import static org.onosproject.dstreamon.rest.StackDecoderTest.decodeStack;
+import static org.onosproject.dstreamon.rest.StackDecoderTest.match;
+import static org.onosproject.dstreamon.rest.StackDecoderTest.mirror;
+
+/**
+ * Tests of the decoding of the mirroring backend and of the L3/L4 traffic
+ * match of the mirror spec.
+ */
+public class StackDecoderMatchTest {
+
+    private static final String ERROR_PREFIX = "invalid ipv4 prefix";
+    private static final String ERROR_IP_PROTO = "invalid ip protocol";
+    private static final String ERROR_PORT = "invalid port";
+    private static final String ERROR_PORTS = "ports need ip_proto 6 (tcp) or 17 (udp)";
+    private static final String ERROR_BACKEND = "invalid backend";
+
+    /**
+     * Tests decoding the backend and every field of the match.
+     */
+    @Test
+    public void testDecodeMatch() throws Exception {
+        ObjectNode body = body();
+        ObjectNode mirror = body.putObject("mirror").put("backend", "flow_rules");
+        mirror.putObject("match")
+                .put("ip_proto", 6)
+                .put("remote_ip", "192.168.1.0/24")
+                .put("local_port", 80)
+                .put("remote_port", 0);
+        DStreaMonMirrorSpec spec = decodeStack(body.toString()).mirrorSpec();
+        assertEquals(DStreaMonMirrorSpec.Backend.FLOW_RULES, spec.backend());
+        assertEquals(new DStreaMonTrafficMatch(IPv4.PROTOCOL_TCP, Ip4Prefix.valueOf("192.168.1.0/24"), 80, 0),
+                     spec.match());
+    }
+
+    /**
+     * Tests that a null match takes the default.
+     */
+    @Test
+    public void testDecodeNullMatch() throws Exception {
+        ObjectNode body = body();
+        body.putObject("mirror").putNull("match");
+        assertEquals(DStreaMonMirrorSpec.DEFAULT, decodeStack(body.toString()).mirrorSpec());
+    }
+
+    /**
+     * Tests that a plain remote ip matches a single host.
+     */
+    @Test
+    public void testDecodeHostMatch() throws Exception {
+        ObjectNode body = body();
+        body.putObject("mirror").putObject("match").put("remote_ip", "192.168.1.10");
+        DStreaMonTrafficMatch match = decodeStack(body.toString()).mirrorSpec().match();
+        assertEquals(Ip4Prefix.valueOf("192.168.1.10/32"), match.remotePrefix());
+        assertEquals(DStreaMonTrafficMatch.ANY, match.ipProto());
+    }
+
+    /**
+     * Tests the rejection of an unknown backend.
+     */
+    @Test
+    public void testRejectBackend() throws Exception {
+        assertMirrorRejected(mirror().put("backend", "p4"), "mirror.backend", ERROR_BACKEND);
+        assertMirrorRejected(mirror().put("backend", 1), "mirror.backend", ERROR_STRING);
+    }
+
+    /**
+     * Tests the rejections of the L3/L4 fields of the match.
+     */
+    @Test
+    public void testRejectMatch() throws Exception {
+        assertMatchRejected(match().put("ip_proto", 256), "mirror.match.ip_proto", ERROR_IP_PROTO);
+        assertMatchRejected(match().put("ip_proto", -1), "mirror.match.ip_proto", ERROR_IP_PROTO);
+        assertMatchRejected(match().put("ip_proto", 6).put("local_port", 65536), "mirror.match.local_port",
+                            ERROR_PORT);
+        assertMatchRejected(match().put("ip_proto", 17).put("remote_port", -1), "mirror.match.remote_port",
+                            ERROR_PORT);
+        assertMatchRejected(match().put("local_port", 80), "mirror.match.ip_proto", ERROR_PORTS);
+        assertMatchRejected(match().put("ip_proto", 1).put("remote_port", 80), "mirror.match.ip_proto",
+                            ERROR_PORTS);
+        for (String prefix : new String[]{"192.168.1.0/33", "192.168.1.0/", "192.168.1.0/024", "192.168.1.0/a",
+                "192.168.1/24", "192.168.01.0/24", "/24", "any"}) {
+            assertMatchRejected(match().put("remote_ip", prefix), "mirror.match.remote_ip", ERROR_PREFIX);
+        }
+        assertMatchRejected(match().put("remote_ip", 24), "mirror.match.remote_ip", ERROR_STRING);
+    }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon.rest;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.onlab.packet.VlanId;
+import org.onosproject.dstreamon.DStreaMonMirrorSpec;
+
+import static org.junit.Assert.assertEquals;
+import static org.onosproject.dstreamon.rest.StackDecoderTest.ERROR_ARRAY;
+import static org.onosproject.dstreamon.rest.StackDecoderTest.ERROR_STRING;
+import static org.onosproject.dstreamon.rest.StackDecoderTest.MAPPER;
+import static org.onosproject.dstreamon.rest.StackDecoderTest.assertBatchRejected;
+import static org.onosproject.dstreamon.rest.StackDecoderTest.assertMirrorRejected;
+import static org.onosproject.dstreamon.rest.StackDecoderTest.body;
+import static org.onosproject.dstreamon.rest.StackDecoderTest.decodeStack;
+import static org.onosproject.dstreamon.rest.StackDecoderTest.mirror;
+import static org.onosproject.dstreamon.rest.StackDecoderTest.stack;
+
+/**
+ * Tests of the decoding of the mirror spec: the direction, the vlans and
+ * the options no backend honours.
+ */
+public class StackDecoderMirrorTest {
+
+    private static final String ERROR_BOOLEAN = "boolean expected";
+    private static final String ERROR_DIRECTION = "invalid direction";
+    private static final String ERROR_VLAN = "invalid vlan id";
+    private static final String ERROR_UNSUPPORTED = "not supported by the mirroring backends";
+
+    /**
+     * Tests decoding a stack with every mirror option.
+     */
+    @Test
+    public void testDecodeMirror() throws Exception {
+        ObjectNode body = body();
+        ObjectNode mirror = body.putObject("mirror")
+                .put("direction", "Ingress")
+                .put("output_vlan", 300)
+                .put("select_all", false);
+        mirror.putArray("vlans").add(100).add(200);
+        DStreaMonMirrorSpec spec = new DStreaMonMirrorSpec(
+                DStreaMonMirrorSpec.Direction.INGRESS,
+                ImmutableList.of(VlanId.vlanId((short) 100), VlanId.vlanId((short) 200)),
+                VlanId.vlanId((short) 300), false);
+        assertEquals(stack(spec), decodeStack(body.toString()));
+    }
+
+    /**
+     * Tests that a null mirror takes the default spec.
+     */
+    @Test
+    public void testDecodeNullMirror() throws Exception {
+        ObjectNode body = body();
+        body.putNull("mirror");
+        assertEquals(stack(DStreaMonMirrorSpec.DEFAULT), decodeStack(body.toString()));
+    }
+
+    /**
+     * Tests the rejections of the direction and of the vlans.
+     */
+    @Test
+    public void testRejectMirror() throws Exception {
+        assertMirrorRejected(mirror().put("direction", "sideways"), "mirror.direction", ERROR_DIRECTION);
+        assertMirrorRejected(mirror().put("direction", 1), "mirror.direction", ERROR_STRING);
+        assertMirrorRejected(mirror().put("vlans", 100), "mirror.vlans", ERROR_ARRAY);
+        ObjectNode mirror = mirror();
+        mirror.putArray("vlans").add(100).add(0);
+        assertMirrorRejected(mirror, "mirror.vlans", ERROR_VLAN);
+        mirror = mirror();
+        mirror.putArray("vlans").add(4095);
+        assertMirrorRejected(mirror, "mirror.vlans", ERROR_VLAN);
+        mirror = mirror();
+        mirror.putArray("vlans").add("100");
+        assertMirrorRejected(mirror, "mirror.vlans", ERROR_VLAN);
+        assertMirrorRejected(mirror().put("output_vlan", 5000), "mirror.output_vlan", ERROR_VLAN);
+        assertMirrorRejected(mirror().put("output_vlan", 1.5), "mirror.output_vlan", ERROR_VLAN);
+        assertMirrorRejected(mirror().put("select_all", "yes"), "mirror.select_all", ERROR_BOOLEAN);
+    }
+
+    /**
+     * Tests that the options no backend honours are rejected, alone and in a batch.
+     */
+    @Test
+    public void testRejectUnsupported() throws Exception {
+        assertMirrorRejected(mirror().put("select_all", true), "mirror.select_all", ERROR_UNSUPPORTED);
+
+        ObjectNode invalid = body();
+        invalid.putObject("mirror").put("select_all", true);
+        ArrayNode batch = MAPPER.createArrayNode().add(body()).add(invalid);
+        assertBatchRejected(batch.toString(), "[1].mirror.select_all", ERROR_UNSUPPORTED);
+    }
+
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.dstreamon.rest;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.MacAddress;
+import org.onosproject.dstreamon.DStreaMonMirrorSpec;
+import org.onosproject.dstreamon.DStreaMonStack;
+import org.onosproject.ovsdb.rfc.notation.Uuid;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the streaming decoder of the stack payloads: the valid bodies
+ * and the path and message of each rejection.
+ */
+public class StackDecoderTest {
+
+    private static final String STACK_UUID = "a68decaa-1c9c-4f4e-9b7e-0d5f6a4b3c21";
+    private static final String USER_UUID = "e3f57693-dc80-42d9-b6df-c963eb92bbe0";
+    private static final String PROBE_UUID = "b71e0c2d-5a3f-4e6b-8c9d-1f2e3a4b5c6d";
+    private static final String USER_PORT_UUID = "0c8e1f2a-3b4c-4d5e-8f6a-7b8c9d0e1f2a";
+    private static final String PROBE_PORT_UUID = "9f8e7d6c-5b4a-4392-8170-6f5e4d3c2b1a";
+    private static final String USER_IP = "10.0.10.60";
+    private static final String PROBE_IP = "10.0.10.61";
+    private static final String USER_MAC = "fa:16:3e:12:34:56";
+    private static final String PROBE_MAC = "fa:16:3e:ab:cd:ef";
+
+    private static final String ERROR_MISSING = "missing field";
+    private static final String ERROR_UUID = "invalid uuid";
+    private static final String ERROR_IP = "invalid ipv4 address";
+    private static final String ERROR_MAC = "invalid mac address";
+    private static final String ERROR_OBJECT = "object expected";
+    static final String ERROR_ARRAY = "array expected";
+    static final String ERROR_STRING = "string expected";
+    private static final String ERROR_TRAILING = "unexpected content after the body";
+
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Tests decoding a stack without mirror spec.
+     */
+    @Test
+    public void testDecodeStack() throws Exception {
+        assertEquals(stack(DStreaMonMirrorSpec.DEFAULT), decodeStack(body().toString()));
+    }
+
+    /**
+     * Tests that the unknown fields are skipped, whatever their value.
+     */
+    @Test
+    public void testDecodeUnknownFields() throws Exception {
+        ObjectNode body = body();
+        body.putObject("extra").putArray("values").add(1).addObject().put("nested", true);
+        body.with("user").put("name", "user-vm");
+        body.putObject("mirror").put("comment", "egress only").putObject("match").put("tos", 4);
+        assertEquals(stack(DStreaMonMirrorSpec.DEFAULT), decodeStack(body.toString()));
+    }
+
+    /**
+     * Tests the accepted spellings of the mac addresses.
+     */
+    @Test
+    public void testDecodeMacSpellings() throws Exception {
+        ObjectNode body = body();
+        body.with("user").put("mac", "FA-16-3E-12-34-56");
+        assertEquals(MacAddress.valueOf(USER_MAC), decodeStack(body.toString()).userMac());
+    }
+
+    /**
+     * Tests the ip addresses at the bounds of the octets.
+     */
+    @Test
+    public void testDecodeIpBounds() throws Exception {
+        ObjectNode body = body();
+        body.with("user").put("ip", "0.0.0.0");
+        body.with("probe").put("ip", "255.255.255.255");
+        DStreaMonStack stack = decodeStack(body.toString());
+        assertEquals(Ip4Address.valueOf("0.0.0.0"), stack.userIp());
+        assertEquals(Ip4Address.valueOf("255.255.255.255"), stack.probeIp());
+    }
+
+    /**
+     * Tests decoding a batch of stacks.
+     */
+    @Test
+    public void testDecodeStacks() throws Exception {
+        ArrayNode batch = MAPPER.createArrayNode();
+        batch.add(body());
+        batch.add(body().put("stack_uuid", PROBE_PORT_UUID));
+        List<DStreaMonStack> stacks = Lists.newArrayList();
+        StackDecoder.decodeStacks(parser(batch.toString()), stacks);
+        assertEquals(2, stacks.size());
+        assertEquals(stack(DStreaMonMirrorSpec.DEFAULT), stacks.get(0));
+        assertEquals(Uuid.uuid(PROBE_PORT_UUID), stacks.get(1).stackUuid());
+    }
+
+    /**
+     * Tests decoding a batch of uuids.
+     */
+    @Test
+    public void testDecodeUuids() throws Exception {
+        List<Uuid> uuids = Lists.newArrayList();
+        StackDecoder.decodeUuids(parser("[\"" + STACK_UUID + "\", \"" + USER_UUID + "\"]"), uuids);
+        assertEquals(ImmutableList.of(Uuid.uuid(STACK_UUID), Uuid.uuid(USER_UUID)), uuids);
+    }
+
+    /**
+     * Tests the rejections of the body as a whole.
+     */
+    @Test
+    public void testRejectBody() throws Exception {
+        assertRejected("[]", "", ERROR_OBJECT);
+        assertRejected("\"stack\"", "", ERROR_OBJECT);
+        assertRejected(body().toString() + " {}", "", ERROR_TRAILING);
+        assertBatchRejected(body().toString(), "", ERROR_ARRAY);
+        assertBatchRejected("[" + body() + "] []", "", ERROR_TRAILING);
+        assertBatchRejected("[" + body() + ", 1]", "[1]", ERROR_OBJECT);
+    }
+
+    /**
+     * Tests that each missing field is reported with its path.
+     */
+    @Test
+    public void testRejectMissing() throws Exception {
+        ObjectNode body = body();
+        body.remove("stack_uuid");
+        assertRejected(body, "stack_uuid", ERROR_MISSING);
+
+        for (String vm : new String[]{"user", "probe"}) {
+            for (String field : new String[]{"uuid", "ip", "mac", "port_uuid"}) {
+                body = body();
+                body.with(vm).remove(field);
+                assertRejected(body, vm + "." + field, ERROR_MISSING);
+            }
+            body = body();
+            body.remove(vm);
+            assertRejected(body, vm + ".uuid", ERROR_MISSING);
+        }
+    }
+
+    /**
+     * Tests the rejections of the uuids.
+     */
+    @Test
+    public void testRejectUuid() throws Exception {
+        assertRejected(body().put("stack_uuid", "a68decaa"), "stack_uuid", ERROR_UUID);
+        assertRejected(body().put("stack_uuid", "a68decaa-1c9c-4f4e-9b7e-0d5f6a4b3c2g"), "stack_uuid",
+                       ERROR_UUID);
+        assertRejected(body().put("stack_uuid", "a68decaa_1c9c-4f4e-9b7e-0d5f6a4b3c21"), "stack_uuid",
+                       ERROR_UUID);
+        assertRejected(body().put("stack_uuid", 42), "stack_uuid", ERROR_STRING);
+
+        ObjectNode body = body();
+        body.with("probe").put("port_uuid", "");
+        assertRejected(body, "probe.port_uuid", ERROR_UUID);
+
+        List<Uuid> uuids = Lists.newArrayList();
+        try {
+            StackDecoder.decodeUuids(parser("[\"" + STACK_UUID + "\", \"bad\"]"), uuids);
+            fail("Invalid uuid accepted");
+        } catch (StackDecoder.DecodingException e) {
+            assertEquals("[1]", e.field());
+            assertEquals(ERROR_UUID, e.getMessage());
+        }
+        try {
+            StackDecoder.decodeUuid("bad", "probeUuid");
+            fail("Invalid uuid accepted");
+        } catch (StackDecoder.DecodingException e) {
+            assertEquals("probeUuid", e.field());
+            assertEquals(ERROR_UUID, e.getMessage());
+        }
+    }
+
+    /**
+     * Tests the rejections of the ip addresses, the octets with leading
+     * zeros included.
+     */
+    @Test
+    public void testRejectIp() throws Exception {
+        for (String ip : new String[]{"", "10.0.10", "10.0.10.60.1", "256.0.10.60", "10.0.10.", ".10.0.10",
+                "10..0.10", "10.0.10.6a", "1000.0.10.60", "010.0.10.60", "10.0.10.00", " 10.0.10.60"}) {
+            ObjectNode body = body();
+            body.with("user").put("ip", ip);
+            assertRejected(body, "user.ip", ERROR_IP);
+        }
+        ObjectNode body = body();
+        body.with("probe").put("ip", 167774781);
+        assertRejected(body, "probe.ip", ERROR_STRING);
+    }
+
+    /**
+     * Tests the rejections of the mac addresses.
+     */
+    @Test
+    public void testRejectMac() throws Exception {
+        for (String mac : new String[]{"fa:16:3e:12:34", "fa:16:3e:12:34:5g", "fa.16.3e.12.34.56",
+                "fa:16:3e:12:34:567", "fa163e123456"}) {
+            ObjectNode body = body();
+            body.with("probe").put("mac", mac);
+            assertRejected(body, "probe.mac", ERROR_MAC);
+        }
+    }
+
+    /**
+     * Tests the rejections of the objects of the vms and of the mirror.
+     */
+    @Test
+    public void testRejectObjects() throws Exception {
+        assertRejected(body().put("user", "user-vm"), "user", ERROR_OBJECT);
+        assertRejected(body().put("probe", 1), "probe", ERROR_OBJECT);
+        assertRejected(body().put("mirror", "egress"), "mirror", ERROR_OBJECT);
+        ObjectNode body = body();
+        body.putObject("mirror").put("match", "tcp");
+        assertRejected(body, "mirror.match", ERROR_OBJECT);
+    }
+
+    /**
+     * Tests that the errors of a batch tell the index of the stack.
+     */
+    @Test
+    public void testRejectInBatch() throws Exception {
+        ObjectNode invalid = body();
+        invalid.with("user").put("ip", "10.0.10.256");
+        ArrayNode batch = MAPPER.createArrayNode().add(body()).add(invalid);
+        assertBatchRejected(batch.toString(), "[1].user.ip", ERROR_IP);
+    }
+
+    static ObjectNode body() {
+        ObjectNode body = MAPPER.createObjectNode().put("stack_uuid", STACK_UUID);
+        body.putObject("user")
+                .put("uuid", USER_UUID)
+                .put("ip", USER_IP)
+                .put("mac", USER_MAC)
+                .put("port_uuid", USER_PORT_UUID);
+        body.putObject("probe")
+                .put("uuid", PROBE_UUID)
+                .put("ip", PROBE_IP)
+                .put("mac", PROBE_MAC)
+                .put("port_uuid", PROBE_PORT_UUID);
+        return body;
+    }
+
+    static ObjectNode mirror() {
+        return MAPPER.createObjectNode();
+    }
+
+    static ObjectNode match() {
+        return MAPPER.createObjectNode();
+    }
+
+    static DStreaMonStack stack(DStreaMonMirrorSpec spec) {
+        return new DStreaMonStack(Uuid.uuid(STACK_UUID), Uuid.uuid(USER_UUID), Uuid.uuid(PROBE_UUID),
+                                  Ip4Address.valueOf(USER_IP), Ip4Address.valueOf(PROBE_IP),
+                                  MacAddress.valueOf(USER_MAC), MacAddress.valueOf(PROBE_MAC),
+                                  Uuid.uuid(USER_PORT_UUID), Uuid.uuid(PROBE_PORT_UUID), spec);
+    }
+
+    static JsonParser parser(String body) throws IOException {
+        return MAPPER.getFactory().createParser(body);
+    }
+
+    static DStreaMonStack decodeStack(String body) throws IOException, StackDecoder.DecodingException {
+        return StackDecoder.decodeStack(parser(body));
+    }
+
+    static void assertMirrorRejected(ObjectNode mirror, String field, String error) throws IOException {
+        ObjectNode body = body();
+        body.set("mirror", mirror);
+        assertRejected(body, field, error);
+    }
+
+    static void assertMatchRejected(ObjectNode match, String field, String error) throws IOException {
+        ObjectNode mirror = mirror();
+        mirror.set("match", match);
+        assertMirrorRejected(mirror, field, error);
+    }
+
+    static void assertRejected(ObjectNode body, String field, String error) throws IOException {
+        assertRejected(body.toString(), field, error);
+    }
+
+    static void assertRejected(String body, String field, String error) throws IOException {
+        try {
+            decodeStack(body);
+            fail("Invalid body accepted: " + body);
+        } catch (StackDecoder.DecodingException e) {
+            assertEquals(body, field, e.field());
+            assertEquals(body, error, e.getMessage());
+        }
+    }
+
+    static void assertBatchRejected(String body, String field, String error) throws IOException {
+        try {
+            StackDecoder.decodeStacks(parser(body), Lists.newArrayList());
+            fail("Invalid batch accepted: " + body);
+        } catch (StackDecoder.DecodingException e) {
+            assertEquals(body, field, e.field());
+            assertEquals(body, error, e.getMessage());
+        }
+    }
+
+}